@@ -0,0 +1,57 @@
+/**
+ * AdmissionBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 8:40:12 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of admitting a log by {@link Admission}: sampling hashes the key, rate limit takes a token.
+ *
+ * @author leo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdmissionBenchmark {
+    private final String[] keys = new String[1024];
+    private Admission sample;
+    private Admission limit;
+    private int i = 0;
+
+    @Setup
+    public void setup() {
+        for (int k = 0; k < keys.length; k++) {
+            keys[k] = "0123456789abcdef-" + k;
+        }
+        sample = new Admission("trace", 0.5, null);
+        limit = new Admission("trace", 1, new TokenBucket(1e6, 1000));
+    }
+
+    @Benchmark
+    public boolean sample() {
+        return sample.admit(keys[++i & 1023]);
+    }
+
+    @Benchmark
+    public boolean rateLimit() {
+        return limit.admit(null);
+    }
+}
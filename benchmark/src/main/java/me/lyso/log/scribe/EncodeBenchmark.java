@@ -0,0 +1,98 @@
+/**
+ * EncodeBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:37:02 PM
+ */
+package me.lyso.log.scribe;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TIOStreamTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the sender turning #batchSize logs into a framed "Log" call: UTF-8 into a {@link LogBatch},
+ * optionally packed by {@link LogPacker}, and written by {@link ScribeConnection#writeCall} to a discarding stream.
+ *
+ * @author leo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeBenchmark {
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    @Param({"false", "true"})
+    public boolean pack;
+
+    private String[] messages;
+    private LogBatch batch;
+    private LogPacker packer;
+    private TProtocol out;
+    private long bytes;
+    private int seqid;
+
+    @Setup
+    public void setup() {
+        messages = new String[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            messages[i] = "10.0.0.1,msg_sent,100" + i % 97 + "@lyso.me/a,1002@lyso.me," + i
+                    + ",chat,2026-10-18 16:37:02,1";
+        }
+        batch = new LogBatch("bench", batchSize);
+        packer = pack ? new LogPacker(ScribeLoggerConfig.DEFAULT_PACK_LEVEL, LogPacker.DEFAULT_DICTIONARY) : null;
+        out = new TBinaryProtocol(new TFramedTransport(new TIOStreamTransport(new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytes += len;
+            }
+        })));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (packer != null) {
+            packer.close();
+        }
+    }
+
+    @Benchmark
+    public long encode() throws TException {
+        batch.reset();
+        long ts = System.currentTimeMillis();
+        for (String message : messages) {
+            batch.add(message, ts);
+        }
+        if (packer != null) {
+            batch.pack(packer);
+        }
+        ScribeConnection.writeCall(out, ++seqid, batch);
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * EncoderBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 9:03:48 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import me.lyso.log.usage.MessageDirection;
+import me.lyso.log.usage.UsageLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of deferred logs formatted by 0 (the sender itself) to 8 {@link LogEncoder}s, producers block on a
+ * full ring so the score is what the encoders and sender keep up with. {@link ScribeBenchmarks} runs 1, 2, 4 and 8
+ * threads.
+ *
+ * @author leo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncoderBenchmark {
+    @Param({"0", "1", "2", "4", "8"})
+    public int encoders;
+
+    private ScribeLogger logger;
+
+    /** usage record of each thread, copied into the ring */
+    @State(Scope.Thread)
+    public static class Record {
+        private final UsageLog usage = new UsageLog().setDir(MessageDirection.ClientToServer).setAction("msg_sent")
+                .setResource("res,with,comma").setMsgId("msg-0123456789").setAppId("app")
+                .setPackageName("me.lyso.app").setTopicOrAlias("topic").setModule("bench")
+                .setMessageCreateTimestamp(1400000000000L).setCount(2);
+        private int i = 0;
+    }
+
+    @Setup
+    public void setup() {
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 14).batchSize(1000)
+                .publishPolicy(PublishPolicy.Block).encoders(encoders);
+        logger = new ScribeLogger(new LogSender("bench", new CountingScribeClient(), config), config,
+                WaitStrategyType.Yielding, new SenderThreadFactory("bench-sender"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        logger.close();
+    }
+
+    @Benchmark
+    public boolean logDeferred(Record record) {
+        int i = ++record.i;
+        record.usage.setUuid("uuid-" + (i & 1023)).setChid(i);
+        return logger.logDeferred(record.usage);
+    }
+}
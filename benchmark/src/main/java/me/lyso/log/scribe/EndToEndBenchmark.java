@@ -0,0 +1,80 @@
+/**
+ * EndToEndBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:58:26 PM
+ */
+package me.lyso.log.scribe;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Logs per second acked by an in-process {@link FakeScribeServer} over a real socket: an invocation publishes
+ * {@link #LOGS} logs with {@link PublishPolicy#Block} and waits until the server has replied to all of them.
+ * Not packed: the server counts wire messages, see {@link EncodeBenchmark} for the cost of packing.
+ *
+ * @author leo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+    private static final int LOGS = 1000;
+    private static final String MESSAGE = "10.0.0.1,msg_sent,1001@lyso.me/a,1002@lyso.me,42,chat,2026-10-18 16:58:26,1";
+
+    /** reply latency of the server */
+    @Param({"0", "1"})
+    public long latencyMs;
+
+    /** 0 to wait for each reply, else pipelined, see {@link ScribeLoggerConfig#maxInFlightBatches(int)} */
+    @Param({"0", "4"})
+    public int maxInFlight;
+
+    private FakeScribeServer server;
+    private ScribeLogger logger;
+    private long published;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new FakeScribeServer(latencyMs);
+        ScribeLoggerConfig config = new ScribeLoggerConfig().publishPolicy(PublishPolicy.Block)
+                .maxInFlightBatches(maxInFlight);
+        logger = ScribeLogger.builder("bench").server(server.host(), server.port()).config(config).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOGS)
+    public long logAndAck() {
+        for (int i = 0; i < LOGS; i++) {
+            logger.log(MESSAGE);
+        }
+        published += LOGS;
+        while (server.received() < published) {
+            Thread.yield();
+        }
+        return published;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * PackBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 9:34:12 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of packing a batch of the usage corpus of {@link LogPackerTest} by {@link LogPacker}, by level and with or
+ * without the default dictionary; {@link LogPackerTest#testRatio()} checks what each saves.
+ *
+ * @author leo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackBenchmark {
+    private static final int LINES = 20000;
+
+    @Param({"50", "1000"})
+    public int batchSize;
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    @Param({"false", "true"})
+    public boolean dictionary;
+
+    private List<String> corpus;
+    private LogBatch batch;
+    private LogPacker packer;
+    private int from = 0;
+
+    @Setup
+    public void setup() {
+        corpus = LogPackerTest.corpus(LINES);
+        batch = new LogBatch("bench", batchSize);
+        packer = new LogPacker(level, dictionary ? LogPacker.DEFAULT_DICTIONARY : null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        packer.close();
+    }
+
+    @Benchmark
+    public String pack() {
+        batch.reset();
+        for (String line : corpus.subList(from, from + batchSize)) {
+            batch.add(line, 0);
+        }
+        from = (from + batchSize) % LINES;
+        batch.pack(packer);
+        return batch.logs().get(0).getMessage();
+    }
+}
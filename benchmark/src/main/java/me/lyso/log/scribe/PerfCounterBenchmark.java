@@ -0,0 +1,116 @@
+/**
+ * PerfCounterBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 9:18:06 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import me.lyso.log.scribe.ScribePerf.ScribePerfName;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * Cost of a {@link ScribePerf#inc} on striped counters, against the actor path: a message per increment through a
+ * 16k ring into one thread updating plain longs, dropped when the ring is full. {@link ScribeBenchmarks} runs 1, 2,
+ * 4 and 8 threads.
+ *
+ * @author leo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerfCounterBenchmark {
+    private static final ScribePerfName[] NAMES = ScribePerfName.values();
+
+    private static class IncEvent {
+        private int chid;
+        private ScribePerfName name;
+    }
+
+    private final long[][] plain = new long[4][NAMES.length];
+    private ScribeLogger logger;
+    private ScribePerf perf;
+    private ExecutorService executor;
+    private Disruptor<IncEvent> disruptor;
+    private RingBuffer<IncEvent> ring;
+
+    /** sequence of the increments of each thread */
+    @State(Scope.Thread)
+    public static class Seq {
+        private int i = 0;
+    }
+
+    @Setup
+    public void setup() {
+        logger = new ScribeLogger(new LogSender("bench", new CountingScribeClient()));
+        perf = new ScribePerf(logger, null, "host", "instance");
+        executor = Executors.newSingleThreadExecutor();
+        disruptor = new Disruptor<IncEvent>(new EventFactory<IncEvent>() {
+            @Override
+            public IncEvent newInstance() {
+                return new IncEvent();
+            }
+        }, 1 << 14, executor, ProducerType.MULTI, WaitStrategyType.Sleeping.create());
+        disruptor.handleEventsWith(new EventHandler<IncEvent>() {
+            @Override
+            public void onEvent(IncEvent e, long sequence, boolean endOfBatch) {
+                plain[e.chid][e.name.ordinal()]++;
+            }
+        });
+        ring = disruptor.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        perf.stop();
+        logger.close();
+        disruptor.shutdown();
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public boolean striped(Seq seq) {
+        int i = ++seq.i;
+        return perf.inc(i & 3, NAMES[i & 3]);
+    }
+
+    @Benchmark
+    public boolean ring(Seq seq) {
+        int i = ++seq.i;
+        try {
+            long n = ring.tryNext();
+            IncEvent e = ring.get(n);
+            e.chid = i & 3;
+            e.name = NAMES[i & 3];
+            ring.publish(n);
+            return true;
+        } catch (InsufficientCapacityException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * ProducerBatchBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 3:05:12 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of producer threads each logging the 3 usage lines of a request then ending it by
+ * {@link ScribeLogger#flushBatched()}: producerBatch 0 puts each line into the ring by itself, 64 puts the 3 lines
+ * as one range. Scores are logs per microsecond of all threads, divide by -t for per thread;
+ * {@link ScribeBenchmarks} runs 1, 2, 4 and 8 threads.
+ *
+ * @author leo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProducerBatchBenchmark {
+    private static final String MSG = "10.0.0.1,msg,1001@lyso.me/a,1002@lyso.me,42,chat,2026-10-18 15:05:12,1";
+    private static final String MSG_SENT =
+            "10.0.0.1,msg_sent,1001@lyso.me/a,1002@lyso.me,42,chat,2026-10-18 15:05:12,1";
+    private static final String DLVR = "10.0.0.1,dlvr,1001@lyso.me/a,1002@lyso.me,42,chat,2026-10-18 15:05:12,1";
+
+    @Param({"0", "64"})
+    public int producerBatch;
+
+    private ScribeLogger logger;
+
+    @Setup
+    public void setup() {
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 16);
+        if (producerBatch > 0) {
+            config.producerBatch(producerBatch, ScribeLoggerConfig.DEFAULT_PRODUCER_LINGER_MS);
+        }
+        logger = new ScribeLogger(new LogSender("bench", new CountingScribeClient(), config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("bench-sender"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public boolean request() {
+        logger.logBatched(MSG);
+        logger.logBatched(MSG_SENT);
+        logger.logBatched(DLVR);
+        return logger.flushBatched();
+    }
+}
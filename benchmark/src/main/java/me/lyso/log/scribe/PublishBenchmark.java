@@ -0,0 +1,49 @@
+/**
+ * PublishBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:21:40 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of {@link ScribeLogger#log(CharSequence)} seen by producer threads, with the sender on an in-memory
+ * client so only the ring is measured; sender threads are daemons and end with the fork. Run with -t 1..N,
+ * {@link ScribeBenchmarks} runs 1, 2, 4 and 8.
+ *
+ * @author leo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublishBenchmark {
+    private static final String MESSAGE = "10.0.0.1,msg_sent,1001@lyso.me/a,1002@lyso.me,42,chat,2026-10-18 16:21:40,1";
+
+    private ScribeLogger logger;
+
+    @Setup
+    public void setup() {
+        logger = new ScribeLogger(new LogSender("bench", new CountingScribeClient()));
+    }
+
+    @Benchmark
+    public boolean log() {
+        return logger.log(MESSAGE);
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * PublishPolicyBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 9:41:57 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Caller latency of each {@link PublishPolicy} when the sender can't keep up: a 1k ring drained by a client taking
+ * 2ms a batch of 100. {@link ScribeBenchmarks} runs 1, 2, 4 and 8 threads.
+ *
+ * @author leo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublishPolicyBenchmark {
+    private static final String MESSAGE = "10.0.0.1,msg_sent,1001@lyso.me/a,1002@lyso.me,42,chat,2026-10-18 21:41:57,1";
+
+    @Param({"Drop", "DropOldest", "Block", "BlockWithTimeout"})
+    public PublishPolicy policy;
+
+    private ScribeLogger logger;
+
+    @Setup
+    public void setup() {
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 10).batchSize(100);
+        if (policy == PublishPolicy.BlockWithTimeout) {
+            config.publishTimeoutMicros(500);
+        } else {
+            config.publishPolicy(policy);
+        }
+        logger = new ScribeLogger(new LogSender("bench", new CountingScribeClient(2), config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("bench-sender"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        logger.close();
+    }
+
+    @Benchmark
+    public boolean log() {
+        return logger.log(MESSAGE);
+    }
+}
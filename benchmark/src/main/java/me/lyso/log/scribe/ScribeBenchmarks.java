@@ -0,0 +1,61 @@
+/**
+ * ScribeBenchmarks.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 5:20:47 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main of benchmarks.jar: run all suites, those of producer threads under 1, 2, 4 and 8 threads, and write all
+ * results into one JMH JSON file, "scribe-bench.json" or -Dscribe.bench.result, to be compared across releases.
+ * Any argument runs the plain JMH command line instead, as "-rf json -rff x.json Encode".
+ *
+ * @author leo
+ */
+public class ScribeBenchmarks {
+    private static final int[] PUBLISH_THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        Collection<RunResult> results = new ArrayList<RunResult>();
+        results.addAll(new Runner(options()
+                .include(UsageBenchmark.class.getSimpleName())
+                .include(EncodeBenchmark.class.getSimpleName())
+                .include(PackBenchmark.class.getSimpleName())
+                .include(AdmissionBenchmark.class.getSimpleName())
+                .include(TimestampBenchmark.class.getSimpleName())
+                .include(SlotWriterBenchmark.class.getSimpleName())
+                .include(WaitStrategyBenchmark.class.getSimpleName())
+                .include(EndToEndBenchmark.class.getSimpleName()).build()).run());
+        for (int threads : PUBLISH_THREADS) {
+            results.addAll(new Runner(options()
+                    .include(PublishBenchmark.class.getSimpleName())
+                    .include(PublishPolicyBenchmark.class.getSimpleName())
+                    .include(ProducerBatchBenchmark.class.getSimpleName())
+                    .include(UsageLoggerBenchmark.class.getSimpleName())
+                    .include(EncoderBenchmark.class.getSimpleName())
+                    .include(PerfCounterBenchmark.class.getSimpleName()).threads(threads).build()).run());
+        }
+        String file = System.getProperty("scribe.bench.result", "scribe-bench.json");
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, file).writeOut(results);
+        System.out.println("Results written to " + file);
+    }
+
+    private static ChainedOptionsBuilder options() {
+        return new OptionsBuilder().shouldFailOnError(true);
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * SlotWriterBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 9:10:21 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a usage log built into a String and logged, against written field by field into a ring slot claimed
+ * by {@link ScribeLogger#claimUsage()}. Run with -prof gc for the garbage each makes.
+ *
+ * @author leo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotWriterBenchmark {
+    private ScribeLogger logger;
+    private int i = 0;
+
+    @Setup
+    public void setup() {
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 14).batchSize(500)
+                .publishPolicy(PublishPolicy.Block);
+        logger = new ScribeLogger(new LogSender("bench", new CountingScribeClient(), config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("bench-sender"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        logger.close();
+    }
+
+    @Benchmark
+    public boolean string() {
+        return logger.log(fill(new Log.Usage(), ++i).done());
+    }
+
+    @Benchmark
+    public boolean slot() {
+        return fill(logger.claimUsage(), ++i).done(logger);
+    }
+
+    private static Log.Usage fill(Log.Usage log, int i) {
+        return log.$1_host("host-01").$2_action(UsageAction.msg).$3_from("from@lyso.me").$4_to("to@lyso.me/res")
+                .$5_msgId("msg-0123456789").$6_msgType("chat").$7_fromIp("10.0.0.1").$9_chid(i)
+                .$C_appId("app").$D_packageName("me.lyso.app");
+    }
+}
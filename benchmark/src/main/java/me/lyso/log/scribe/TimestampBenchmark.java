@@ -0,0 +1,67 @@
+/**
+ * TimestampBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 8:46:55 PM
+ */
+package me.lyso.log.scribe;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.time.FastDateFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of formatting the timestamp of a log, 100 logs per millisecond: a SimpleDateFormat per log as UsageLog did,
+ * a shared FastDateFormat, and {@link TimestampCache} returned or appended into a slot buffer. Run with -prof gc
+ * for bytes per op.
+ *
+ * @author leo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampBenchmark {
+    private final FastDateFormat fast = FastDateFormat.getInstance(TimestampCache.PATTERN);
+    private final long base = System.currentTimeMillis();
+    private final Utf8Buffer buf = new Utf8Buffer();
+    private long i = 0;
+
+    /** clock only moves forward */
+    private long now() {
+        return base + ++i / 100;
+    }
+
+    @Benchmark
+    public String simpleDateFormat() {
+        return new SimpleDateFormat(TimestampCache.PATTERN).format(new Date(now()));
+    }
+
+    @Benchmark
+    public String fastDateFormat() {
+        return fast.format(now());
+    }
+
+    @Benchmark
+    public String timestampCache() {
+        return TimestampCache.format(now());
+    }
+
+    @Benchmark
+    public Utf8Buffer timestampCacheAppend() {
+        return TimestampCache.appendTo(now(), buf.clear());
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * UsageBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:05:18 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import me.lyso.log.usage.MessageDirection;
+import me.lyso.log.usage.UsageLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of building a usage line into a String, by {@link Log.Usage} and by {@link UsageLog#build()}.
+ *
+ * @author leo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsageBenchmark {
+    private long msgId = 0;
+
+    @Benchmark
+    public String logUsage() {
+        return new Log.Usage().$1_host("10.0.0.1").$2_action(UsageAction.msg_sent).$3_from("1001@lyso.me/a")
+                .$4_to("1002@lyso.me").$5_msgId(Long.toString(++msgId)).$6_msgType("chat").$8_now().$9_chid(1)
+                .done();
+    }
+
+    @Benchmark
+    public String usageLog() {
+        return new UsageLog().setAction("msg_sent").setDir(MessageDirection.ClientToServer).setUuid("1001")
+                .setResource("a").setMsgId(Long.toString(++msgId)).setModule("chat").setChid(1)
+                .setClientIp("10.0.0.2").build();
+    }
+}
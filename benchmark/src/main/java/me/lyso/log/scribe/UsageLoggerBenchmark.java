@@ -0,0 +1,79 @@
+/**
+ * UsageLoggerBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 8:55:30 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import me.lyso.log.usage.MessageDirection;
+import me.lyso.log.usage.UsageLog;
+import me.lyso.log.usage.UsageLogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Caller latency of {@link UsageLogger#log(UsageLog)} pushing to a few topics: eager formats on the caller's
+ * thread, deferred copies fields into the ring and formats on the sender thread, aggregate sums same lines
+ * into counts per window. {@link ScribeBenchmarks} runs 1, 2, 4 and 8 threads.
+ *
+ * @author leo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsageLoggerBenchmark {
+    private static final int TOPICS = 4;
+
+    @Param({"eager", "deferred", "aggregate"})
+    public String mode;
+
+    private ScribeLogger slogger;
+    private UsageLogger logger;
+
+    /** sequence of the logs of each thread */
+    @State(Scope.Thread)
+    public static class Seq {
+        private int i = 0;
+    }
+
+    @Setup
+    public void setup() {
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 14).publishPolicy(PublishPolicy.Block);
+        slogger = new ScribeLogger(new LogSender("bench", new CountingScribeClient(), config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("bench-sender"));
+        logger = new UsageLogger("bench", slogger).setModule("push").setDeferred("deferred".equals(mode));
+        if ("aggregate".equals(mode)) {
+            logger.setAggregate(50, 1024);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        slogger.close();
+    }
+
+    @Benchmark
+    public void log(Seq seq) {
+        int i = ++seq.i;
+        logger.log(new UsageLog().setModule(logger.module()).setAction("dlvr").setDir(MessageDirection.ServerToClient)
+                .setUuid("uuid-" + (i & 1023)).setMsgId("msg-" + (i >> 10)).setAppId("app")
+                .setPackageName("me.lyso.app").setTopicOrAlias("topic-" + (i % TOPICS)).setModel("model-x"));
+    }
+}
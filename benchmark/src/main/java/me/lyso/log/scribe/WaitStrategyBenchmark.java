@@ -0,0 +1,67 @@
+/**
+ * WaitStrategyBenchmark.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 9:26:40 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Publish-to-send latency of each {@link WaitStrategyType}: an invocation logs one line and waits until the sender
+ * has handed it to an in-memory client, so the sender is idle before each log as under light load.
+ *
+ * @author leo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaitStrategyBenchmark {
+    private static final String MESSAGE = "10.0.0.1,msg_sent,1001@lyso.me/a,1002@lyso.me,42,chat,2026-10-18 21:26:40,1";
+
+    @Param({"Blocking", "Sleeping", "PhasedBackoff", "Yielding", "BusySpin"})
+    public WaitStrategyType waitStrategy;
+
+    private CountingScribeClient client;
+    private ScribeLogger logger;
+    private long published;
+
+    @Setup
+    public void setup() {
+        client = new CountingScribeClient();
+        logger = new ScribeLogger(new LogSender("bench", client), new ScribeLoggerConfig(), waitStrategy,
+                new SenderThreadFactory("bench-sender"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        logger.close();
+    }
+
+    @Benchmark
+    public long logAndSend() {
+        logger.log(MESSAGE);
+        published++;
+        while (client.received() < published) {
+            Thread.yield();
+        }
+        return published;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Admission.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:55:40 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.lyso.perf.PerfCounter;
+
+/**
+ * Admission of logs of one category before they are published into the ring, configured by
+ * {@link ScribeLoggerConfig#sample(double)} and {@link ScribeLoggerConfig#rateLimit(double, int)}.
+ * <ol>
+ * <li>1. sampling: a log with a key (msgId, uuid...) is kept iff hash of the key falls under the sample rate;
+ * the hash is the same in every process, so all logs of a message are kept or dropped together. Logs without
+ * a key are not sampled;
+ * <li>2. rate limit: a sampled-in log takes a token from a {@link TokenBucket}, and is dropped if none left.
+ * </ol>
+ * Both are lock-free and allocate nothing; dropped logs are counted by category.
+ *
+ * @author leo
+ */
+public class Admission {
+    private final String category;
+    /** keys hashed under it are kept, [0, 2^32] */
+    private final long sampleThreshold;
+    private final TokenBucket bucket;
+    private final String sampledKey;
+    private final String limitedKey;
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final ScribeMetrics metrics;
+
+    /**
+     * @param category
+     * @param sampleRate fraction of keys kept, in [0, 1].
+     * @param bucket null for no rate limit.
+     */
+    Admission(String category, double sampleRate, TokenBucket bucket) {
+        this(category, sampleRate, bucket, null);
+    }
+
+    /**
+     * @param category
+     * @param sampleRate fraction of keys kept, in [0, 1].
+     * @param bucket null for no rate limit.
+     * @param metrics told of dropped logs, may be null.
+     */
+    Admission(String category, double sampleRate, TokenBucket bucket, ScribeMetrics metrics) {
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("Invalid sample rate: " + sampleRate);
+        }
+        this.category = category;
+        this.sampleThreshold = (long) (sampleRate * (1L << 32));
+        this.bucket = bucket;
+        this.sampledKey = PerfConstants.ADMISSION_SAMPLED + "~" + category;
+        this.limitedKey = PerfConstants.ADMISSION_LIMITED + "~" + category;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Admission for #category by #config, null if neither sampling nor rate limit is set.
+     *
+     * @param category
+     * @param config
+     * @param metrics
+     * @return
+     */
+    static Admission of(String category, ScribeLoggerConfig config, ScribeMetrics metrics) {
+        if (config.sampleRate() >= 1 && config.rateLimit() <= 0) {
+            return null;
+        }
+        return new Admission(category, config.sampleRate(), config.rateLimit() > 0
+                ? new TokenBucket(config.rateLimit(), config.rateLimitBurst()) : null, metrics);
+    }
+
+    /**
+     * @param key sampling key, null to skip sampling.
+     * @return false if the log should be dropped.
+     */
+    public boolean admit(CharSequence key) {
+        if (key != null && sampleThreshold < 1L << 32 && (hash(key) & 0xFFFFFFFFL) >= sampleThreshold) {
+            sampledOut.incrementAndGet();
+            PerfCounter.count(sampledKey, 1);
+            if (metrics != null) {
+                metrics.dropped(ScribeMetrics.Drop.Sampled, 1);
+            }
+            return false;
+        }
+        if (bucket != null && !bucket.tryAcquire(System.nanoTime())) {
+            rateLimited.incrementAndGet();
+            PerfCounter.count(limitedKey, 1);
+            if (metrics != null) {
+                metrics.dropped(ScribeMetrics.Drop.RateLimited, 1);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a of chars, then murmur3's finalizer to spread low bits; stable across processes and JVMs.
+     *
+     * @param key
+     * @return
+     */
+    static int hash(CharSequence key) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ h >>> 16;
+    }
+
+    /**
+     * Number of logs dropped by sampling.
+     *
+     * @return
+     */
+    public long sampledOut() {
+        return sampledOut.get();
+    }
+
+    /**
+     * Number of logs dropped by rate limit.
+     *
+     * @return
+     */
+    public long rateLimited() {
+        return rateLimited.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Admission{" + category + ",sample=" + sampleThreshold / (double) (1L << 32) + "," + bucket + "}";
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * CircuitBreaker.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:14:36 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.Random;
+
+import me.lyso.perf.PerfCounter;
+
+/**
+ * Circuit breaker of connecting to scribe, in wall-clock time.
+ * <ol>
+ * <li>1. Closed: connected, no connect attempt needed;
+ * <li>2. Open: last attempt failed, no attempt until backoff is over; backoff doubles from {@link #minBackoffMs}
+ * to {@link #maxBackoffMs} on each failure, and is jittered to [backoff/2, backoff) so many loggers don't
+ * reconnect at the same moment;
+ * <li>3. HalfOpen: one attempt in progress, no other attempt until it succeeds (Closed) or fails (Open).
+ * </ol>
+ * Thread-safe, attempts are usually made on another thread than the one calling {@link #tryAttempt(long)}.
+ *
+ * @author leo
+ */
+class CircuitBreaker {
+    enum State {
+        Closed, Open, HalfOpen,
+    }
+
+    private final String name;
+    private final long minBackoffMs;
+    private final long maxBackoffMs;
+    private final Random random = new Random();
+    private State state = State.Closed;
+    private int failures = 0;
+    private long retryAt = 0;
+
+    /**
+     * @param name for counters and logging.
+     * @param minBackoffMs
+     * @param maxBackoffMs
+     */
+    CircuitBreaker(String name, long minBackoffMs, long maxBackoffMs) {
+        this.name = name;
+        this.minBackoffMs = minBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /**
+     * Try to start a connect attempt.
+     *
+     * @param now
+     * @return true if caller should attempt now and report by {@link #onSuccess()} or {@link #onFailure(long)}.
+     */
+    synchronized boolean tryAttempt(long now) {
+        if (state == State.HalfOpen || state == State.Open && now < retryAt) {
+            return false;
+        }
+        state = State.HalfOpen;
+        PerfCounter.count(PerfConstants.BREAKER_HALF_OPEN, 1);
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state != State.Closed) {
+            PerfCounter.count(PerfConstants.BREAKER_CLOSE, 1);
+        }
+        state = State.Closed;
+        failures = 0;
+    }
+
+    /**
+     * Open the breaker.
+     *
+     * @param now
+     * @return backoff in ms before next attempt.
+     */
+    synchronized long onFailure(long now) {
+        long backoff = Math.min(minBackoffMs << Math.min(failures, 30), maxBackoffMs);
+        backoff = backoff / 2 + (long) (random.nextDouble() * (backoff - backoff / 2));
+        failures++;
+        state = State.Open;
+        retryAt = now + backoff;
+        PerfCounter.count(PerfConstants.BREAKER_OPEN, 1);
+        return backoff;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized int failures() {
+        return failures;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{" + name + "," + state + ",failures=" + failures + "}";
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * DeferredLog.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 2:17:40 PM
+ */
+package me.lyso.log.scribe;
+
+/**
+ * A log record whose field values are copied into the ring by {@link ScribeLogger#logDeferred(DeferredLog)},
+ * and formatted later on the sender thread, to keep string building off the caller's thread.
+ *
+ * @author leo
+ */
+public interface DeferredLog {
+    /**
+     * A new empty record of the same type, kept in a ring slot and reused.
+     *
+     * @return
+     */
+    DeferredLog newSlot();
+
+    /**
+     * Copy field values of this record into #slot, which is made by {@link #newSlot()} of the same type.
+     * Called on the caller's thread, should copy only primitives and references, and not format.
+     *
+     * @param slot
+     */
+    void copyTo(DeferredLog slot);
+
+    /**
+     * Format the message, called on the sender thread.
+     *
+     * @return message valid until next change of this record.
+     */
+    CharSequence format();
+}
@@ -0,0 +1,23 @@
+/**
+ * LoadBalance.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:02:55 PM
+ */
+package me.lyso.log.scribe;
+
+/**
+ * How {@link ScribeConnectionPool} chooses an endpoint for the next batch.<BR>
+ * {@link #LeastOutstanding} is the default. It and {@link #Latency} spread batches of a category over endpoints, so
+ * they may arrive out of order; opt into {@link #Sticky} to keep logs of a category in order.
+ *
+ * @author leo
+ */
+public enum LoadBalance {
+    /** one endpoint per category by rendezvous hash, chosen again only when it is ejected or removed. */
+    Sticky,
+    /** fewest batches waiting for reply, ties broken by round-trip time. */
+    LeastOutstanding,
+    /** lowest moving-average round-trip time, weighted by batches waiting for reply. */
+    Latency,
+}
@@ -18,6 +18,16 @@ import org.apache.commons.lang3.StringUtils;
  * new Log().$1_host(host).$2_action(UsageAction.msg_sent).$3_from(from).$5_msgId(msgId)....done(slogger);
  * </CODE>
  * NOTICE: You can skip field, but can't set field out-of-order or in descending order.
+ * <BR>
+ * To write fields straight into a ring slot without building a String, let the logger claim a writer bound to
+ * the slot and publish it when filled, or abandon it if filling throws:
+ * <CODE>
+ * slogger.logUsage(key, new Log.Fill&lt;Log.Usage&gt;() {
+ *     public void fill(Log.Usage log) { log.$1_host(host).$2_action(UsageAction.msg_sent)...; }
+ * });
+ * </CODE>
+ * A writer from {@link ScribeLogger#claimUsage()} must be finished by {@link #done(ScribeLogger)} or
+ * {@link #abandon()}, or the ring stalls at the claimed slot until the thread claims again.
  *
  * @author leo
  */
@@ -31,10 +41,58 @@ public class Log {
 
     protected final StringBuilder builder = new StringBuilder(512);
     protected int index = 0;
+    /** bytes of the claimed ring slot, fields are encoded here instead of {@link #builder} when bound */
+    private Utf8Buffer slot;
+    private long sequence = -1;
+    /** logger which claimed {@link #sequence}, null if not claimed */
+    private ScribeLogger owner;
+
+    /**
+     * Fills a writer claimed by {@link ScribeLogger#logUsage(CharSequence, Fill)}.
+     *
+     * @param <T>
+     */
+    public interface Fill<T extends Log> {
+        void fill(T log);
+    }
 
     public Log() {
     }
 
+    /**
+     * Start over for #owner, writing to #slot of #sequence if it's not null, else to {@link #builder}.
+     */
+    Log bind(ScribeLogger owner, long sequence, Utf8Buffer slot) {
+        this.owner = owner;
+        this.sequence = sequence;
+        this.slot = slot;
+        this.index = 0;
+        builder.setLength(0);
+        return this;
+    }
+
+    private void unbind() {
+        this.owner = null;
+        this.sequence = -1;
+        this.slot = null;
+    }
+
+    private void put(char c) {
+        if (slot != null) {
+            slot.append(c);
+        } else {
+            builder.append(c);
+        }
+    }
+
+    private void put(CharSequence v, int start, int end) {
+        if (slot != null) {
+            slot.append(v, start, end);
+        } else {
+            builder.append(v, start, end);
+        }
+    }
+
     /**
      * Verify that my index is less than current setting field index.
      * If my index was lagged behind more than one (such as my index is 1 and setting field 4),
@@ -51,7 +109,7 @@ public class Log {
 
     protected Log catchUp(int index) {
         while (++this.index < index) {
-            builder.append(',');
+            put(',');
         }
         return this;
     }
@@ -64,29 +122,96 @@ public class Log {
                 exceeded = true;
                 len = MaxFieldLen - 2;
             }
+            // copy runs between commas.
+            int from = 0;
             for (int i = 0; i < len; ++i) {
-                char c = v.charAt(i);
-                builder.append(c == ',' ? CommaReplace : c);
+                if (v.charAt(i) == ',') {
+                    put(v, from, i);
+                    put(CommaReplace);
+                    from = i + 1;
+                }
             }
+            put(v, from, len);
             if (exceeded) {
-                builder.append("..");
+                put('.');
+                put('.');
             }
         }
-        builder.append(',');
+        put(',');
+        return this;
+    }
+
+    /**
+     * Append #timeMs formatted to second, copied from {@link TimestampCache} without making a String.
+     */
+    protected Log appendTimestamp(long timeMs) {
+        if (slot != null) {
+            TimestampCache.appendTo(timeMs, slot);
+        } else {
+            TimestampCache.appendTo(timeMs, builder);
+        }
+        put(',');
         return this;
     }
 
     protected Log append(int v) {
-        builder.append(v).append(',');
+        if (slot != null) {
+            slot.append(v);
+        } else {
+            builder.append(v);
+        }
+        put(',');
         return this;
     }
 
+    /**
+     * @return the message; empty if bound to a ring slot, whose message is published by
+     * {@link #done(ScribeLogger)}.
+     */
     public String done() {
         return catchUp(LastIndex).builder.toString();
     }
 
+    /**
+     * Log to #logger: publish the claimed slot if bound, else encode {@link #builder} into the ring without
+     * making a String. A writer claimed from a logger is always logged to that logger, whatever #logger is.
+     *
+     * @param logger
+     * @return
+     */
     public boolean done(ScribeLogger logger) {
-        return logger.log(done());
+        catchUp(LastIndex);
+        ScribeLogger to = owner != null ? owner : logger;
+        long seq = sequence;
+        boolean bound = slot != null;
+        unbind();
+        if (bound) {
+            to.publish(seq);
+            return true;
+        }
+        if (seq == ScribeLogger.NOT_ADMITTED) {
+            // dropped by admission.
+            return false;
+        }
+        if (seq == ScribeLogger.NOT_CLAIMED) {
+            // ring was full when claimed.
+            return to.overflow(builder);
+        }
+        return to.log(builder);
+    }
+
+    /**
+     * Give up this writer unfinished: the claimed slot is published as a ping so the ring goes on, and the
+     * message is dropped. Nothing to do if already done.
+     */
+    public void abandon() {
+        ScribeLogger o = owner;
+        long seq = sequence;
+        boolean bound = slot != null;
+        unbind();
+        if (bound) {
+            o.abandon(seq);
+        }
     }
 
     public static class Usage extends Log {
@@ -123,7 +248,7 @@ public class Log {
         }
 
         public Usage $8_timestamp(long now) {
-            return (Usage) index(8).append(TimeFormat.format(now));
+            return (Usage) index(8).appendTimestamp(now);
         }
 
         public Usage $8_now() {
@@ -0,0 +1,262 @@
+/**
+ * LogBatch.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:05:44 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import scribe.thrift.LogEntry;
+
+/**
+ * A reusable batch of UTF-8 messages in {@link Utf8Buffer}s, with the publish timestamp of each log.
+ * Batches are recycled after sent, so nothing is allocated per log in steady state; {@link LogEntry}s with
+ * String messages are only made by {@link #logs()} for the sync client and the spill journal.<BR>
+ * Each log has its own category, so a shared sender can mix categories in one batch; UTF-8 bytes of each
+ * category are encoded once and kept by the batch.<BR>
+ * After {@link #pack(LogPacker)}, the packed messages (one per category) go to the wire instead, and the
+ * original messages are kept for spilling.
+ *
+ * @author leo
+ */
+class LogBatch {
+    private static final int PENDING = 0;
+    private static final int ACKED = 1;
+    private static final int FAILED = 2;
+
+    private final String category;
+    private final byte[] categoryBytes;
+    private final String[] categories;
+    private final byte[][] categoriesBytes;
+    /** UTF-8 bytes of categories seen by this batch */
+    private final Map<String, byte[]> encodedCategories = new HashMap<String, byte[]>();
+    private final Utf8Buffer[] messages;
+    private final List<LogEntry> entries;
+    private final long[] publishTs;
+    private int count = 0;
+    /** messages packed by {@link #pack(LogPacker)}, and their categories */
+    private Utf8Buffer[] packed;
+    private int[] packedFirst;
+    private int packedCount = 0;
+    private boolean[] packing;
+    /** time to fill this batch, in nanos */
+    long fillNanos;
+    /** System.nanoTime() when written to connection */
+    long sentNanos;
+    /** a batch replayed from {@link SpillJournal}, shouldn't be spilled again on failure */
+    boolean replay;
+    /** times resent after TRY_LATER */
+    int retries;
+    private volatile int state = PENDING;
+
+    LogBatch(String category, int capacity) {
+        this.category = category;
+        this.categoryBytes = category.getBytes(Utf8Buffer.UTF8);
+        this.categories = new String[capacity];
+        this.categoriesBytes = new byte[capacity][];
+        this.messages = new Utf8Buffer[capacity];
+        this.entries = new ArrayList<LogEntry>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            messages[i] = new Utf8Buffer();
+            entries.add(new LogEntry(category, ""));
+        }
+        this.publishTs = new long[capacity];
+    }
+
+    void add(CharSequence message, long ts) {
+        add(message, ts, null);
+    }
+
+    /**
+     * Add #message of #category, null for this batch's category.
+     */
+    void add(CharSequence message, long ts, String category) {
+        tag(category);
+        publishTs[count] = ts;
+        messages[count++].clear().append(message);
+    }
+
+    /**
+     * Add a copy of #message encoded in a ring slot.
+     */
+    void add(Utf8Buffer message, long ts) {
+        add(message, ts, null);
+    }
+
+    /**
+     * Add a copy of #message of #category encoded in a ring slot, null for this batch's category.
+     */
+    void add(Utf8Buffer message, long ts, String category) {
+        tag(category);
+        publishTs[count] = ts;
+        messages[count++].copyFrom(message);
+    }
+
+    private void tag(String c) {
+        if (c == null || c.equals(category)) {
+            categories[count] = category;
+            categoriesBytes[count] = categoryBytes;
+            return;
+        }
+        byte[] bytes = encodedCategories.get(c);
+        if (bytes == null) {
+            bytes = c.getBytes(Utf8Buffer.UTF8);
+            encodedCategories.put(c, bytes);
+        }
+        categories[count] = c;
+        categoriesBytes[count] = bytes;
+    }
+
+    int size() {
+        return count;
+    }
+
+    int capacity() {
+        return entries.size();
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Messages to write as {@link LogEntry}s, decoding each message to a String.
+     *
+     * @return
+     */
+    List<LogEntry> logs() {
+        int n = wireSize();
+        for (int i = 0; i < n; i++) {
+            entries.get(i).setCategory(wireCategory(i));
+            entries.get(i).setMessage(wireMessage(i).toString());
+        }
+        return entries.subList(0, n);
+    }
+
+    Utf8Buffer message(int i) {
+        return messages[i];
+    }
+
+    /**
+     * Pack messages of each category into one message by #packer.
+     *
+     * @param packer
+     */
+    void pack(LogPacker packer) {
+        if (packed == null) {
+            packed = new Utf8Buffer[0];
+            packedFirst = new int[capacity()];
+            packing = new boolean[capacity()];
+        }
+        packedCount = 0;
+        Arrays.fill(packing, 0, count, false);
+        for (int i = 0; i < count; i++) {
+            if (packing[i]) {
+                continue;
+            }
+            packer.begin();
+            for (int j = i; j < count; j++) {
+                if (!packing[j] && categories[j].equals(categories[i])) {
+                    packer.add(messages[j]);
+                    packing[j] = true;
+                }
+            }
+            if (packedCount == packed.length) {
+                packed = Arrays.copyOf(packed, packedCount + 1);
+                packed[packedCount] = new Utf8Buffer();
+            }
+            packer.finish(packed[packedCount]);
+            packedFirst[packedCount++] = i;
+        }
+    }
+
+    /**
+     * Number of messages to write, packed ones if packed.
+     *
+     * @return
+     */
+    int wireSize() {
+        return packedCount > 0 ? packedCount : count;
+    }
+
+    Utf8Buffer wireMessage(int i) {
+        return packedCount > 0 ? packed[i] : messages[i];
+    }
+
+    byte[] wireCategoryBytes(int i) {
+        return categoriesBytes[packedCount > 0 ? packedFirst[i] : i];
+    }
+
+    private String wireCategory(int i) {
+        return categories[packedCount > 0 ? packedFirst[i] : i];
+    }
+
+    String category() {
+        return category;
+    }
+
+    String category(int i) {
+        return categories[i];
+    }
+
+    byte[] categoryBytes(int i) {
+        return categoriesBytes[i];
+    }
+
+    /**
+     * Record publish-to-#now latency of each log.
+     *
+     * @param metrics
+     * @param now
+     */
+    void recordLatency(ScribeMetrics metrics, long now) {
+        for (int i = 0; i < count; i++) {
+            metrics.acked(now - publishTs[i]);
+        }
+    }
+
+    /**
+     * Bytes of messages on wire.
+     *
+     * @return
+     */
+    int wireBytes() {
+        int n = 0;
+        for (int i = 0; i < wireSize(); i++) {
+            n += wireMessage(i).length();
+        }
+        return n;
+    }
+
+    void reset() {
+        count = 0;
+        packedCount = 0;
+        replay = false;
+        retries = 0;
+        state = PENDING;
+    }
+
+    synchronized void complete(boolean acked) {
+        state = acked ? ACKED : FAILED;
+        notifyAll();
+    }
+
+    /**
+     * Wait until {@link #complete(boolean)}.
+     *
+     * @return true if acked.
+     * @throws InterruptedException
+     */
+    synchronized boolean await() throws InterruptedException {
+        while (state == PENDING) {
+            wait();
+        }
+        return state == ACKED;
+    }
+}
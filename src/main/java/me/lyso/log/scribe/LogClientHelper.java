@@ -6,8 +6,12 @@
  */
 package me.lyso.log.scribe;
 
+import java.net.InetSocketAddress;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +32,43 @@ import me.lyso.zookeeper.ZKFacade;
 public class LogClientHelper {
     private static final Logger LOGGER = LoggerFactory.getLogger(LogClientHelper.class);
     private static final Random rand = new SecureRandom();
+    static final int CONNECT_TIMEOUT_MS = 5000;
+    /** runs blocking connects off the sender threads */
+    private static final ExecutorService connector = Executors.newCachedThreadPool(new SenderThreadFactory(
+            "scribe-connector"));
+
+    /**
+     * Where "servers" of a zookeeper path are read from.
+     */
+    interface ServersSource {
+        /**
+         * @param zkPath
+         * @return "host1:port1,host2:port2...", null if not set.
+         * @throws Exception
+         */
+        String servers(String zkPath) throws Exception;
+    }
+
+    static final ServersSource ZOOKEEPER = new ServersSource() {
+        @Override
+        public String servers(String zkPath) throws Exception {
+            ZKClient zkClient = ZKFacade.getClient();
+            Properties prop = zkClient.getData(Properties.class, zkPath);
+            return prop.getProperty("servers");
+        }
+    };
+
+    /** replaced by a local one in tests */
+    private static volatile ServersSource serversSource = ZOOKEEPER;
+
+    /**
+     * Read servers of zookeeper paths from #source instead, {@link #ZOOKEEPER} to restore.
+     *
+     * @param source
+     */
+    static void serversSource(ServersSource source) {
+        serversSource = source;
+    }
 
     /**
      * get a scribe client connect to server described in zkPath, which is "servers=host1:port1,host2:port2..."
@@ -37,10 +78,63 @@ public class LogClientHelper {
      * @throws Exception
      */
     public static scribe.thrift.scribe.Iface getScribeClientFromZookeeper(String zkPath) throws Exception {
-        ZKClient zkClient = ZKFacade.getClient();
-        Properties prop = zkClient.getData(Properties.class, zkPath);
-        String[] addrs = prop.getProperty("servers", "localhost:1463").split(",");
-        final List<Endpoint> servers = new ArrayList<Endpoint>(addrs.length);
+        List<InetSocketAddress> addrs = getServersFromZookeeper(zkPath);
+        final List<Endpoint> servers = new ArrayList<Endpoint>(addrs.size());
+        for (InetSocketAddress addr : addrs) {
+            servers.add(new Endpoint(addr.getHostName(), addr.getPort()));
+        }
+        return getScribeClient(servers);
+    }
+
+    /**
+     * get scribe servers described in zkPath, which is "servers=host1:port1,host2:port2..."
+     *
+     * @param zkPath
+     * @return
+     * @throws Exception
+     */
+    public static List<InetSocketAddress> getServersFromZookeeper(String zkPath) throws Exception {
+        String servers = serversSource.servers(zkPath);
+        return parseServers(servers != null ? servers : "localhost:1463");
+    }
+
+    /**
+     * Run a connect attempt on a connector thread.
+     *
+     * @param task
+     */
+    static void connectAsync(Runnable task) {
+        connector.execute(task);
+    }
+
+    /**
+     * Watch scribe servers in #zkPath, the watcher is not started.
+     *
+     * @param zkPath
+     * @param servers current servers.
+     * @param periodMs
+     * @param listener
+     * @return
+     */
+    static ScribeServerWatcher watchServersInZookeeper(final String zkPath, List<InetSocketAddress> servers,
+            long periodMs, ScribeServerWatcher.Listener listener) {
+        return new ScribeServerWatcher(zkPath, new Callable<List<InetSocketAddress>>() {
+            @Override
+            public List<InetSocketAddress> call() throws Exception {
+                return getServersFromZookeeper(zkPath);
+            }
+        }, servers, periodMs, listener);
+    }
+
+    /**
+     * Parse "host1:port1,host2:port2...", invalid pairs are skipped.
+     *
+     * @param servers
+     * @return unresolved addresses.
+     */
+    public static List<InetSocketAddress> parseServers(String servers) {
+        String[] addrs = servers.split(",");
+        List<InetSocketAddress> result = new ArrayList<InetSocketAddress>(addrs.length);
         for (String addr : addrs) {
             String[] hp = addr.split(":");
             if (hp.length != 2) {
@@ -54,9 +148,9 @@ public class LogClientHelper {
                 LOGGER.info("^#Red.parse-logserver: invalid port : {}", hp[1]);
                 continue;
             }
-            servers.add(new Endpoint(hp[0], port));
+            result.add(InetSocketAddress.createUnresolved(hp[0], port));
         }
-        return getScribeClient(servers);
+        return result;
     }
 
     /**
@@ -79,7 +173,7 @@ public class LogClientHelper {
      */
     public static scribe.thrift.scribe.Iface getScribeClient(final List<Endpoint> servers) {
         EndpointClientConfigs<Class<?>, Endpoint> emptyConfigs = EndpointClientConfigs.getEmptyConfigs();
-        return ClientFactory.createClient(scribe.thrift.scribe.Iface.class, 5000,
+        return ClientFactory.createClient(scribe.thrift.scribe.Iface.class, CONNECT_TIMEOUT_MS,
                 new EndpointChooser<Endpoint>() {
                     @Override
                     public Endpoint choose(EndpointPool<Endpoint> pool, Collection<Endpoint> invalidEndpoints) {
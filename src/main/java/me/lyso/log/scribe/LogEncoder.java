@@ -0,0 +1,53 @@
+/**
+ * LogEncoder.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 2:05:37 PM
+ */
+package me.lyso.log.scribe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.lmax.disruptor.EventHandler;
+
+/**
+ * Encoding stage before {@link LogSender}, one of {@link ScribeLoggerConfig#encoders()} handlers running in
+ * parallel.<BR>
+ * Encoder #ordinal of #count takes sequences where sequence % count == ordinal, and formats their values or
+ * deferred records into the slot's UTF-8 bytes, so the sender only copies bytes into batches. The sender is
+ * gated on all encoders, and still sees slots in ring order, so logs keep their order.
+ *
+ * @author leo
+ */
+class LogEncoder implements EventHandler<LogEvent<String>> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogEncoder.class);
+    private final int ordinal;
+    private final int count;
+
+    LogEncoder(int ordinal, int count) {
+        if (ordinal < 0 || ordinal >= count) {
+            throw new IllegalArgumentException("Invalid encoder " + ordinal + " of " + count);
+        }
+        this.ordinal = ordinal;
+        this.count = count;
+    }
+
+    @Override
+    public void onEvent(LogEvent<String> e, long sequence, boolean endOfBatch) {
+        if (sequence % count != ordinal) {
+            return;
+        }
+        try {
+            e.encodeValue();
+        } catch (RuntimeException ex) {
+            // left as is, the sender will try formatting it again.
+            LOGGER.error("^#Red.encode-log: {}", ex.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LogEncoder{" + ordinal + "/" + count + "}";
+    }
+}
@@ -10,25 +10,188 @@ package me.lyso.log.scribe;
 import com.lmax.disruptor.EventFactory;
 
 /**
- * event wrapper for disrupter
+ * event wrapper for disrupter.<BR>
+ * A message is either set as a value by {@link #set(Object)}, or encoded into the slot's reused {@link #bytes()}
+ * by {@link #encode(CharSequence)} or written there field by field after {@link #claim()}, without creating a
+ * String, or swapped in already encoded by {@link #swap(Utf8Buffer, long)}; or copied as field values into the
+ * slot's reused {@link #record()} by {@link #defer(DeferredLog)}, to be formatted by the consumer. None of them
+ * means a ping.<BR>
+ * A log may be tagged with its category by {@link #tag(String)}, for a sender shared by many categories.
  * 
  * @param <T>
  * @author leo
  */
 public class LogEvent<T> {
     private T v;
+    /** System.nanoTime() when published, or buffered by a {@link ProducerBatch}, for publish-to-send latency. */
+    private long ts;
+    /** UTF-8 message encoded in place, reused by the slot */
+    private Utf8Buffer bytes = new Utf8Buffer();
+    private boolean encoded;
+    /** fields of a deferred log, reused by the slot while records are of the same type */
+    private DeferredLog record;
+    private boolean deferred;
+    /** category of this log, null for the sender's */
+    private String category;
 
     public LogEvent<T> set(T v) {
         this.v = v;
+        this.encoded = false;
+        this.deferred = false;
+        this.category = null;
+        this.ts = System.nanoTime();
         return this;
     }
 
+    /**
+     * Encode #message into {@link #bytes()}, null for a ping.
+     *
+     * @param message
+     * @return
+     */
+    public LogEvent<T> encode(CharSequence message) {
+        this.v = null;
+        this.encoded = message != null;
+        this.deferred = false;
+        this.category = null;
+        bytes.clear();
+        if (encoded) {
+            bytes.append(message);
+        }
+        this.ts = System.nanoTime();
+        return this;
+    }
+
+    /**
+     * Clear {@link #bytes()} for the message to be written in place.
+     *
+     * @return
+     */
+    Utf8Buffer claim() {
+        this.v = null;
+        this.encoded = true;
+        this.deferred = false;
+        this.category = null;
+        this.ts = System.nanoTime();
+        return bytes.clear();
+    }
+
+    /**
+     * Take #message encoded elsewhere at #ts as {@link #bytes()}, giving back the slot's buffer for reuse, so a
+     * message is put into the slot without copying.
+     *
+     * @param message
+     * @param ts System.nanoTime() when #message was made.
+     * @return the slot's previous buffer.
+     */
+    Utf8Buffer swap(Utf8Buffer message, long ts) {
+        Utf8Buffer old = bytes;
+        this.bytes = message;
+        this.v = null;
+        this.encoded = true;
+        this.deferred = false;
+        this.category = null;
+        this.ts = ts;
+        return old;
+    }
+
+    /**
+     * Turn a claimed slot into a ping, for a writer given up before its message is done.
+     */
+    void abandon() {
+        this.v = null;
+        this.encoded = false;
+        this.deferred = false;
+        this.category = null;
+    }
+
+    /**
+     * Copy field values of #log into {@link #record()}.
+     *
+     * @param log
+     * @return
+     */
+    public LogEvent<T> defer(DeferredLog log) {
+        if (record == null || record.getClass() != log.getClass()) {
+            record = log.newSlot();
+        }
+        log.copyTo(record);
+        this.v = null;
+        this.encoded = false;
+        this.deferred = true;
+        this.category = null;
+        this.ts = System.nanoTime();
+        return this;
+    }
+
+    /**
+     * Encode the value or deferred record into {@link #bytes()} in place, keeping publish time; nothing to do
+     * for a ping or an encoded message. Called by {@link LogEncoder}.
+     */
+    void encodeValue() {
+        if (encoded || isPing()) {
+            return;
+        }
+        bytes.clear().append(deferred ? record.format() : v.toString());
+        this.v = null;
+        this.encoded = true;
+        this.deferred = false;
+    }
+
+    /**
+     * Tag this log with #category, null for the sender's; call after setting the message.
+     *
+     * @param category
+     * @return
+     */
+    public LogEvent<T> tag(String category) {
+        this.category = category;
+        return this;
+    }
+
+    public String category() {
+        return category;
+    }
+
     public T get() {
         return v;
     }
 
+    public boolean encoded() {
+        return encoded;
+    }
+
+    public Utf8Buffer bytes() {
+        return bytes;
+    }
+
+    public boolean deferred() {
+        return deferred;
+    }
+
+    public DeferredLog record() {
+        return record;
+    }
+
+    /**
+     * @return true if neither a value nor an encoded message.
+     */
+    public boolean isPing() {
+        return !encoded && !deferred && v == null;
+    }
+
+    public long ts() {
+        return ts;
+    }
+
     @Override
     public String toString() {
+        if (encoded) {
+            return bytes.toString();
+        }
+        if (deferred) {
+            return record.format().toString();
+        }
         return v == null ? "null" : v.toString();
     }
 
@@ -0,0 +1,135 @@
+/**
+ * LogPacker.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:14:52 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Packs many log lines into one message: lines are written as [varint length][UTF-8 bytes], deflated with a
+ * preset dictionary, and base64-ed after {@link #PREFIX}, so a packed message is still one text line for
+ * scribe stores. Use {@link LogUnpacker} with the same dictionary to get the lines back.<BR>
+ * Buffers are reused, so packing allocates nothing in steady state; not thread-safe, owned by the sender
+ * thread.
+ *
+ * @author leo
+ */
+public class LogPacker {
+    /** a packed message starts with it, followed by base64 of the deflated lines */
+    public static final String PREFIX = "#pack1#";
+    /**
+     * Words of usage logs, most frequent at the end where deflate finds them cheapest. Frozen: an unpacker picks
+     * the dictionary by its adler32, so new words go into a new version, and old versions stay known by
+     * {@link LogUnpacker}.
+     */
+    static final String DICTIONARY_V1 = "android,ios,web,login,user_login_succ,user_login_fail,user_logout,msg,dlvr,"
+            + "msg_sent,msg_recv,msg_read,msg_del,msg_delthread,msg_read_gc,msg_ack,msg_sync,group_msg,group_recv,"
+            + "@lyso.me,lyso.me,@lyso.me/";
+    /** dictionary of packers by default, {@link #DICTIONARY_V1} */
+    public static final byte[] DEFAULT_DICTIONARY = DICTIONARY_V1.getBytes(Utf8Buffer.UTF8);
+    static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private final Deflater deflater;
+    private final byte[] dictionary;
+    private final Utf8Buffer raw = new Utf8Buffer();
+    private final byte[] varint = new byte[5];
+    private byte[] compressed = new byte[Utf8Buffer.INITIAL];
+    private int lines;
+
+    /**
+     * @param level deflate level, 1 (fastest) to 9 (smallest).
+     * @param dictionary preset dictionary, null for none.
+     */
+    public LogPacker(int level, byte[] dictionary) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid deflate level: " + level);
+        }
+        this.deflater = new Deflater(level);
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Start packing a new message.
+     */
+    public void begin() {
+        raw.clear();
+        lines = 0;
+    }
+
+    public void add(Utf8Buffer line) {
+        int n = 0;
+        int v = line.length();
+        while ((v & ~0x7F) != 0) {
+            varint[n++] = (byte) (v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        varint[n++] = (byte) v;
+        raw.append(varint, 0, n).append(line.array(), 0, line.length());
+        lines++;
+    }
+
+    /**
+     * Number of lines added since {@link #begin()}.
+     *
+     * @return
+     */
+    public int lines() {
+        return lines;
+    }
+
+    /**
+     * Bytes of lines added since {@link #begin()}, before packing.
+     *
+     * @return
+     */
+    public int rawBytes() {
+        return raw.length();
+    }
+
+    /**
+     * Write the packed message of lines added since {@link #begin()} into #to.
+     *
+     * @param to
+     * @return #to
+     */
+    public Utf8Buffer finish(Utf8Buffer to) {
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(raw.array(), 0, raw.length());
+        deflater.finish();
+        int n = 0;
+        while (!deflater.finished()) {
+            if (n == compressed.length) {
+                compressed = Arrays.copyOf(compressed, n << 1);
+            }
+            n += deflater.deflate(compressed, n, compressed.length - n);
+        }
+        to.clear().append(PREFIX);
+        byte[] b = compressed;
+        int i = 0;
+        for (; i + 2 < n; i += 3) {
+            int v = (b[i] & 0xFF) << 16 | (b[i + 1] & 0xFF) << 8 | b[i + 2] & 0xFF;
+            to.append(BASE64[v >>> 18]).append(BASE64[v >>> 12 & 0x3F]).append(BASE64[v >>> 6 & 0x3F])
+                    .append(BASE64[v & 0x3F]);
+        }
+        if (i < n) {
+            int v = (b[i] & 0xFF) << 16 | (i + 1 < n ? (b[i + 1] & 0xFF) << 8 : 0);
+            to.append(BASE64[v >>> 18]).append(BASE64[v >>> 12 & 0x3F]);
+            to.append(i + 1 < n ? BASE64[v >>> 6 & 0x3F] : '=').append('=');
+        }
+        return to;
+    }
+
+    /**
+     * Free native memory of the deflater.
+     */
+    public void close() {
+        deflater.end();
+    }
+}
@@ -14,141 +14,749 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import scribe.thrift.LogEntry;
+import scribe.thrift.ResultCode;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Event handler for reading log jobs from RingBuffer and send to scribe server.<BR>
- * If {@link #client} fails, retry for the first time, and double "retry-round-interval" in the following
- * rounds. Here 1 round in "retry-round-interval" means interval between 2 batch sends.
+ * If {@link #client} fails, reconnecting is guarded by a {@link CircuitBreaker} in wall-clock time, and done on
+ * a connector thread, so the sender thread never blocks on connecting a dead server; batches sent meanwhile
+ * are spilled or dropped.<BR>
+ * Batch size and interval come from {@link ScribeLoggerConfig}; in adaptive mode the batch size limit
+ * doubles while send round-trip takes longer than filling a batch, and halves while round-trip is under
+ * a quarter of fill time, so logs don't wait for a big batch when the network is idle.<BR>
+ * If {@link ScribeLoggerConfig#spillDir()} is set, batches failed to send are appended to a {@link SpillJournal},
+ * and replayed on timer pings once {@link #client} is back.<BR>
+ * If {@link ScribeLoggerConfig#maxInFlightBatches()} is set (the default), batches are written to pipelined
+ * {@link ScribeConnection}s without waiting for replies, at most that many batches are in flight and their
+ * {@link LogBatch}es are recycled when acked or failed. Connections to all scribe servers are kept in a
+ * {@link ScribeConnectionPool}, which picks one for each batch by {@link ScribeLoggerConfig#loadBalance()}; the
+ * default spreads them by outstanding batches, {@link LoadBalance#Sticky} keeps to one server so logs are received
+ * in order.<BR>
+ * If {@link ScribeLoggerConfig#packLevel()} is set, logs of each category in a batch are packed into one
+ * message by a {@link LogPacker} before sent, the original logs are kept for spilling.<BR>
+ * Servers in zookeeper are watched by a {@link ScribeServerWatcher}: on change the pool swaps to the new
+ * servers and drains removed ones, and in non-pipelined mode {@link #client} is refreshed before next send.<BR>
+ * A batch answered TRY_LATER in pipelined mode is kept and resent after a {@link TryLaterBackoff} on a shared
+ * retry thread, at most {@link ScribeLoggerConfig#tryLaterMaxRetries()} times; batches filled meanwhile are held
+ * behind it and sent after it, so the ring backs up instead of logs being reordered. Only batches already in
+ * flight when TRY_LATER comes back can land before the resent one. In non-pipelined mode the sender thread waits
+ * out the backoff itself and resends, so order is kept the same way. A batch over max retries is spilled, or given
+ * up without a journal. {@link #pendingRetries()} tells how many pipelined batches are waiting.
  * 
  * @author leo
  */
-public class LogSender implements EventHandler<LogEvent<String>> {
+public class LogSender implements EventHandler<LogEvent<String>>, ScribeConnection.Listener {
     private static final Logger LOGGER = LoggerFactory.getLogger(LogSender.class);
-    /** batch send max size */
-    protected static final int BATCH_SIZE = 1000;
-    /** batch send max time to wait */
-    protected static final long BATCH_INTERVAL_MS = 100;
-    /** time interval between try reconnect to scribe-server */
-    protected static final int RETRY_INTERVAL_COUNT_MAX = 1 << 8;
-    protected static final int RETRY_INTERVAL_COUNT_MIN = 1;
+    private static final ScheduledExecutorService retrier = Executors
+            .newSingleThreadScheduledExecutor(new SenderThreadFactory("scribe-retrier"));
 
     protected final String LOG_CATEGORY;
 
-    private scribe.thrift.scribe.Iface client;
-    private final List<LogEntry> buf;
-    private int count = 0;
+    private volatile scribe.thrift.scribe.Iface client;
+    /** used instead of {@link #client} in pipelined mode */
+    private volatile ScribeConnectionPool pool;
+    /** watching servers in {@link #zkPath}, null if not watching */
+    private final ScribeServerWatcher watcher;
+    /** servers changed, refresh {@link #client} before next send */
+    private volatile boolean serversChanged = false;
+    private final boolean pipelined;
+    private final ScribeLoggerConfig config;
+    private final SpillJournal journal;
+    private final SpillJournal.Sink replaySink = new SpillJournal.Sink() {
+        @Override
+        public boolean send(List<LogEntry> logs) {
+            return sendSync(logs);
+        }
+    };
+    /** batch being filled */
+    private LogBatch current;
+    /** batches free to fill in pipelined mode, taking from it blocks while all other batches are in flight */
+    private final BlockingQueue<LogBatch> free;
+    /** packs batches on the sender thread, null if not packing */
+    private final LogPacker packer;
+    private final TryLaterBackoff tryLater;
+    private final ScribeMetrics metrics;
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+    /** batches answered TRY_LATER waiting to be resent in order, guarded by {@link #held} */
+    private final ArrayDeque<LogBatch> retrying = new ArrayDeque<LogBatch>();
+    /** batches answered TRY_LATER and not in {@link #retrying} yet, counted on the reader thread */
+    private final AtomicInteger answeredTryLater = new AtomicInteger();
+    /** batches resent and not answered yet, guarded by {@link #held} */
+    private int resending = 0;
+    /** batches filled after those in {@link #retrying}, sent after they are acked; guarded by itself */
+    private final ArrayDeque<LogBatch> held = new ArrayDeque<LogBatch>();
+    /** number of oldest logs in ring to discard, requested by {@link PublishPolicy#DropOldest} publishers */
+    private final AtomicLong shedding = new AtomicLong();
     private long lastSentTs = System.currentTimeMillis();
-    private int retry = 1;
-    private int nexRetry = RETRY_INTERVAL_COUNT_MIN;
+    /** guards reconnecting {@link #client}, or reloading servers into {@link #pool} */
+    private final CircuitBreaker breaker;
+    /** current batch size limit, changes only in adaptive mode */
+    private volatile int batchLimit;
+    /** moving average of time to fill a batch and time to send it, in nanos */
+    private long fillAvg;
+    private long rttAvg;
 
     private final String zkPath;
     private final String scribeHost;
     private final int scribePort;
 
-    private LogSender(String category, String zkPath, String host, int port) {
+    private LogSender(String category, String zkPath, String host, int port, scribe.thrift.scribe.Iface client,
+            ScribeLoggerConfig config) {
         this.LOG_CATEGORY = category;
+        this.client = client;
         this.zkPath = zkPath;
         this.scribeHost = host;
         this.scribePort = port;
-
-        this.buf = new ArrayList<LogEntry>(BATCH_SIZE) {
-            private static final long serialVersionUID = 1L;
-            {
-                for (int i = 0; i < BATCH_SIZE; i++) {
-                    add(new LogEntry(LOG_CATEGORY, ""));
-                }
+        this.config = config;
+        this.batchLimit = config.adaptiveBatch() ? config.minBatchSize() : config.batchSize();
+        this.journal = openJournal(category, config);
+        this.breaker = new CircuitBreaker(category, config.minBackoffMs(), config.maxBackoffMs());
+        this.tryLater = new TryLaterBackoff(config.tryLaterMinBackoffMs(), config.tryLaterMaxBackoffMs());
+        this.metrics = config.metrics() != null ? config.metrics() : new ScribeLoggerMetrics();
+        this.current = new LogBatch(category, config.batchSize());
+        this.packer = config.packLevel() > 0 ? new LogPacker(config.packLevel(), config.packDictionary()) : null;
+        this.pipelined = config.maxInFlightBatches() > 0 && client == null;
+        if (pipelined) {
+            // room for #current too, a batch may be acked before the sender takes the next one.
+            this.free = new ArrayBlockingQueue<LogBatch>(config.maxInFlightBatches() + 1);
+            for (int i = 0; i < config.maxInFlightBatches(); i++) {
+                free.add(new LogBatch(category, config.batchSize()));
             }
-        };
-        refreshClient(null);
+            reconnect(false);
+        } else {
+            this.free = null;
+            reconnect(false);
+        }
+        this.watcher = zkPath != null && client == null && config.serverWatchMs() > 0 ? watchServers() : null;
     }
 
     public LogSender(String category, String zkPath) {
-        this(category, zkPath, null, 0);
+        this(category, zkPath, new ScribeLoggerConfig());
     }
 
     public LogSender(String category, String host, int port) {
-        this(category, null, host, port);
+        this(category, host, port, new ScribeLoggerConfig());
+    }
+
+    public LogSender(String category, String zkPath, ScribeLoggerConfig config) {
+        this(category, zkPath, null, 0, null, config);
+    }
+
+    public LogSender(String category, String host, int port, ScribeLoggerConfig config) {
+        this(category, null, host, port, null, config);
+    }
+
+    /**
+     * Send to a given client, never refresh it. Used for testing.
+     *
+     * @param category
+     * @param client
+     */
+    LogSender(String category, scribe.thrift.scribe.Iface client) {
+        this(category, client, new ScribeLoggerConfig());
+    }
+
+    LogSender(String category, scribe.thrift.scribe.Iface client, ScribeLoggerConfig config) {
+        this(category, null, null, 0, client, config);
+    }
+
+    private static SpillJournal openJournal(String category, ScribeLoggerConfig config) {
+        if (config.spillDir() == null) {
+            return null;
+        }
+        try {
+            return new SpillJournal(new File(config.spillDir(), category), config.spillSegmentSize(),
+                    config.spillMaxSegments());
+        } catch (Exception ex) {
+            LOGGER.error("^#Red.init-logsender: can't open spill journal in {}", config.spillDir(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Reconnect if {@link #breaker} allows.
+     *
+     * @param async connect on a connector thread.
+     */
+    private void reconnect(boolean async) {
+        if (!breaker.tryAttempt(System.currentTimeMillis())) {
+            return;
+        }
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                if (pipelined ? connect() : refreshClient()) {
+                    breaker.onSuccess();
+                } else {
+                    long backoff = breaker.onFailure(System.currentTimeMillis());
+                    LOGGER.info("^#Red.reconnect-logsender: {} failed, retry in {}ms.", breaker, backoff);
+                }
+            }
+        };
+        if (async) {
+            LogClientHelper.connectAsync(task);
+        } else {
+            task.run();
+        }
     }
 
-    private boolean refreshClient(List<LogEntry> logs) {
+    /**
+     * Get a new {@link #client}, the current one is kept if failed.
+     *
+     * @return false if failed.
+     */
+    private boolean refreshClient() {
         PerfCounter.count(PerfConstants.REFRESH_CLIENT, 1);
-        LOGGER.info("^#Red.try-refresh-logsender: retry={}({})th.", retry, nexRetry);
+        LOGGER.info("^#Red.try-refresh-logsender: {}.", breaker);
         try {
             if (zkPath != null) {
                 this.client = LogClientHelper.getScribeClientFromZookeeper(zkPath);
             } else if (scribeHost != null && scribePort > 0) {
                 this.client = LogClientHelper.getScribeClient(scribeHost, scribePort);
             }
-            if (logs != null) {
-                client.Log(logs);
-            }
             PerfCounter.count(PerfConstants.REFRESH_CLIENT_SUCCESS, 1);
             return true;
         } catch (Exception ex) {
             LOGGER.error("^#Red.init-logsender: can't get scribe client: {}", ex); // don't print stacktrace
-            client = null;
             PerfCounter.count(PerfConstants.REFRESH_CLIENT_FAIL, 1);
             return false;
         }
     }
 
+    /**
+     * Reload scribe servers into {@link #pool}, connecting new ones.
+     *
+     * @return false if no server is connected.
+     */
+    private boolean connect() {
+        PerfCounter.count(PerfConstants.REFRESH_CLIENT, 1);
+        LOGGER.info("^#Red.try-connect-logsender: {}.", breaker);
+        try {
+            List<InetSocketAddress> servers = zkPath != null ? LogClientHelper.getServersFromZookeeper(zkPath)
+                    : Arrays.asList(InetSocketAddress.createUnresolved(scribeHost, scribePort));
+            if (pool == null) {
+                pool = new ScribeConnectionPool(servers, LOG_CATEGORY, config.loadBalance(),
+                        config.minBackoffMs(), config.maxBackoffMs(), this);
+            } else {
+                pool.update(servers);
+            }
+        } catch (Exception ex) {
+            LOGGER.error("^#Red.init-logsender: can't load scribe servers: {}", ex.toString());
+        }
+        if (pool != null && pool.isAvailable()) {
+            PerfCounter.count(PerfConstants.REFRESH_CLIENT_SUCCESS, 1);
+            return true;
+        }
+        PerfCounter.count(PerfConstants.REFRESH_CLIENT_FAIL, 1);
+        return false;
+    }
+
+    private ScribeServerWatcher watchServers() {
+        List<InetSocketAddress> servers = null;
+        try {
+            servers = LogClientHelper.getServersFromZookeeper(zkPath);
+        } catch (Exception ex) {
+            LOGGER.error("^#Red.init-logsender: can't read scribe servers: {}", ex.toString());
+        }
+        ScribeServerWatcher.Listener listener = new ScribeServerWatcher.Listener() {
+            @Override
+            public void onServersChanged(List<InetSocketAddress> servers) {
+                ScribeConnectionPool p = pool;
+                if (p != null) {
+                    p.update(servers);
+                } else if (!pipelined) {
+                    serversChanged = true;
+                }
+            }
+        };
+        return LogClientHelper.watchServersInZookeeper(zkPath, servers == null
+                ? Collections.<InetSocketAddress> emptyList() : servers, config.serverWatchMs(), listener).start();
+    }
+
     @Override
     public void onEvent(final LogEvent<String> e, final long sequence, final boolean endOfBatch) throws Exception {
-        String log = e.get();
-        boolean nullLog = log == null;
-        // count and ts would be reset in #send
-        if (!nullLog) {
-            buf.get(count++).setMessage(log);
+        boolean nullLog = e.isPing();
+        String category = e.category();
+        // current batch and ts would be reset in #send
+        if (!nullLog && shedOne()) {
+            String c = category != null ? category : LOG_CATEGORY;
+            if (journal == null || !(e.encoded() ? journal.append(c, e.bytes()) : journal.append(c, e.toString()))) {
+                LOGGER.debug("^#Red.log-scribe: dropped oldest log for new one.");
+                metrics.dropped(ScribeMetrics.Drop.DropOldest, 1);
+            }
+        } else if (e.encoded()) {
+            current.add(e.bytes(), e.ts(), category);
+        } else if (e.deferred()) {
+            current.add(e.record().format(), e.ts(), category);
+        } else if (!nullLog) {
+            current.add(e.get(), e.ts(), category);
         }
 
-        if (count >= BATCH_SIZE) {
+        int count = current.size();
+        if (count >= batchLimit) {
             PerfCounter.count(PerfConstants.SEND_FULL_BATCH, 1);
-            send(buf);
+            send();
         } else if (count > 0) {
             long ts = System.currentTimeMillis();
-            if (nullLog || endOfBatch || ts - lastSentTs > BATCH_INTERVAL_MS) {
+            if (nullLog || endOfBatch || ts - lastSentTs > config.batchIntervalMs()) {
                 PerfCounter.count(PerfConstants.SEND_DELAY_BATCH, 1);
-                send(buf.subList(0, count));
+                send();
             }
         }
+        if (nullLog) {
+            replaySpilled();
+        }
+    }
+
+    /**
+     * Ask to discard (or spill) the oldest log in ring to free a slot.
+     */
+    public void shed() {
+        shedding.incrementAndGet();
     }
 
     /**
-     * Batch send LogEntry list to scribe server.
+     * Withdraw a {@link #shed()} request not taken yet, by a publisher which doesn't need the slot any more.
+     */
+    public void unshed() {
+        shedOne();
+    }
+
+    private boolean shedOne() {
+        long n;
+        while ((n = shedding.get()) > 0) {
+            if (shedding.compareAndSet(n, n - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Spill a log which can't be put into ring.
+     *
+     * @param message
+     * @return false if spill is disabled or failed.
+     */
+    public boolean spill(CharSequence message) {
+        return spill(null, message);
+    }
+
+    /**
+     * Spill a log of #category which can't be put into ring, handed over to the journal's writer so the producer
+     * never waits for disk.
+     *
+     * @param category null for {@link #LOG_CATEGORY}.
+     * @param message
+     * @return false if spill is disabled or failed.
+     */
+    public boolean spill(String category, CharSequence message) {
+        return journal != null && journal.offer(category != null ? category : LOG_CATEGORY, message.toString());
+    }
+
+    /**
+     * Replay spilled logs for at most a batch interval, to keep the ring moving; stop when nothing is left to
+     * replay, logs offered and not appended yet are replayed on a later ping.
+     */
+    private void replaySpilled() {
+        if (journal == null || !isValid()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + config.batchIntervalMs();
+        while (journal.hasPending() && System.currentTimeMillis() < deadline) {
+            if (journal.replay(config.batchSize(), replaySink) <= 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Send {@link #current} batch, and start filling a new one.
+     *
+     * @throws InterruptedException
+     */
+    private void send() throws InterruptedException {
+        LogBatch batch = current;
+        batch.fillNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - lastSentTs);
+        LOGGER.debug("^#Blue.log-scribe: sending {} logs.", batch.size());
+        if (packer != null) {
+            pack(batch);
+        }
+        metrics.batchSent(batch.size(), batch.wireBytes());
+        if (pipelined) {
+            dispatch(batch);
+            current = free.take();
+        } else {
+            send(batch);
+            batch.reset();
+        }
+        lastSentTs = System.currentTimeMillis();
+    }
+
+    private void pack(LogBatch batch) {
+        long raw = 0;
+        long packed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            raw += batch.message(i).length();
+        }
+        batch.pack(packer);
+        for (int i = 0; i < batch.wireSize(); i++) {
+            packed += batch.wireMessage(i).length();
+        }
+        PerfCounter.count(PerfConstants.PACK_LINES, batch.size());
+        PerfCounter.count(PerfConstants.PACK_RAW_BYTES, raw);
+        PerfCounter.count(PerfConstants.PACK_BYTES, packed);
+    }
+
+    /**
+     * Batch send LogEntry list to scribe server and wait for the reply; a batch answered TRY_LATER is resent
+     * after backoff on this thread, in order, and given up after max retries.
      * 
-     * @param toSend
+     * @param batch
+     * @throws InterruptedException
      */
-    private void send(List<LogEntry> toSend) {
-        LOGGER.debug("^#Blue.log-scribe: sending {} / {} logs.", count, toSend.size());
-        if (client != null) {
+    private void send(LogBatch batch) throws InterruptedException {
+        List<LogEntry> toSend = batch.logs();
+        if (serversChanged) {
+            serversChanged = false;
+            reconnect(true);
+        }
+        long begin = System.nanoTime();
+        boolean sent = false;
+        ScribeMetrics.Drop reason = ScribeMetrics.Drop.SendFailed;
+        scribe.thrift.scribe.Iface c = client;
+        if (c != null) {
             try {
-                client.Log(toSend);
-                retry = 0;
-                nexRetry = RETRY_INTERVAL_COUNT_MIN;
-                PerfCounter.count(PerfConstants.SEND_SUCCESS, 1);
+                int retries = 0;
+                while (c.Log(toSend) == ResultCode.TRY_LATER) {
+                    PerfCounter.count(PerfConstants.SEND_TRY_LATER, 1);
+                    if (++retries > config.tryLaterMaxRetries()) {
+                        LOGGER.warn("^#Red.log-scribe: gave up a batch of {} logs after {} TRY_LATER.", batch.size(),
+                                retries);
+                        reason = ScribeMetrics.Drop.GivenUp;
+                        break;
+                    }
+                    Thread.sleep(tryLater.onTryLater());
+                    PerfCounter.count(PerfConstants.SEND_RETRY, 1);
+                    begin = System.nanoTime();
+                }
+                if (reason != ScribeMetrics.Drop.GivenUp) {
+                    sent = true;
+                    tryLater.onOk();
+                    acked(batch, System.nanoTime() - begin);
+                }
+            } catch (InterruptedException ex) {
+                spill(batch, reason);
+                throw ex;
             } catch (Exception ex) {
                 LOGGER.error("^#Red.log-scribe-exception: {}", ex);
                 client = null;
+                breaker.onFailure(System.currentTimeMillis());
                 PerfCounter.count(PerfConstants.SEND_FAIL, 1);
             }
+        } else {
+            reconnect(true);
         }
-        if (client == null) {
-            if ((++retry) >= nexRetry) {
-                if (refreshClient(toSend)) {
-                    nexRetry = RETRY_INTERVAL_COUNT_MIN;
-                } else {
-                    if (nexRetry < RETRY_INTERVAL_COUNT_MAX) {
-                        nexRetry <<= 1;
-                    }
+        if (!sent) {
+            spill(batch, reason);
+        }
+    }
+
+    /**
+     * Spill #batch not sent, logs not spilled are dropped for #reason. A replayed batch is still in journal.
+     */
+    private void spill(LogBatch batch, ScribeMetrics.Drop reason) {
+        int spilled = batch.replay ? batch.size() : journal != null ? journal.append(batch) : 0;
+        if (spilled < batch.size()) {
+            if (reason == ScribeMetrics.Drop.GivenUp) {
+                PerfCounter.count(PerfConstants.SEND_GIVE_UP, 1);
+            }
+            metrics.dropped(reason, batch.size() - spilled);
+        }
+    }
+
+    /**
+     * Write #batch, or hold it behind batches waiting to be resent. The batch goes back to {@link #free} when
+     * acked or failed.
+     *
+     * @param batch
+     */
+    private void dispatch(LogBatch batch) {
+        synchronized (held) {
+            if (retrying.isEmpty() && resending == 0 && answeredTryLater.get() == 0) {
+                write(batch);
+            } else {
+                held.add(batch);
+            }
+        }
+    }
+
+    /**
+     * Write #batch to a connection chosen by {@link #pool} without waiting for the reply, reload servers on a
+     * connector thread if all are down.
+     *
+     * @param batch
+     */
+    private void write(LogBatch batch) {
+        ScribeConnection conn = choose();
+        if (conn != null) {
+            conn.send(batch);
+        } else {
+            reconnect(true);
+            onFail(batch, null);
+        }
+    }
+
+    private ScribeConnection choose() {
+        ScribeConnectionPool p = pool;
+        return p == null ? null : p.choose();
+    }
+
+    /**
+     * Send #logs through {@link #pool} in a free batch, and wait for the reply.
+     *
+     * @param logs
+     * @return true if acked.
+     */
+    private boolean sendPipelined(List<LogEntry> logs) {
+        ScribeConnection conn = choose();
+        LogBatch batch = conn == null ? null : free.poll();
+        if (batch == null) {
+            return false;
+        }
+        try {
+            long now = System.nanoTime();
+            for (LogEntry log : logs) {
+                batch.add(log.getMessage(), now, log.getCategory());
+            }
+            batch.replay = true;
+            conn.send(batch);
+            return batch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            batch.reset();
+            free.add(batch);
+        }
+    }
+
+    @Override
+    public void onAck(final LogBatch batch, ResultCode result, long rttNanos) {
+        if (result == ResultCode.TRY_LATER) {
+            // hold later batches from now on, but retry off the reader thread, which must keep reading while
+            // #held is locked for writing.
+            answeredTryLater.incrementAndGet();
+            retrier.execute(new Runnable() {
+                @Override
+                public void run() {
+                    retry(batch);
                 }
-                retry = 0;
+            });
+            return;
+        }
+        tryLater.onOk();
+        boolean resent = batch.retries > 0;
+        acked(batch, rttNanos);
+        recycle(batch, true);
+        if (resent) {
+            onResent();
+        }
+    }
+
+    @Override
+    public void onFail(LogBatch batch, Exception ex) {
+        PerfCounter.count(PerfConstants.SEND_FAIL, 1);
+        boolean resent = batch.retries > 0;
+        fail(batch, ScribeMetrics.Drop.SendFailed);
+        if (resent) {
+            onResent();
+        }
+    }
+
+    private void fail(LogBatch batch, ScribeMetrics.Drop reason) {
+        spill(batch, reason);
+        recycle(batch, false);
+    }
+
+    /**
+     * On {@link #retrier}: resend #batch answered TRY_LATER after backoff, holding batches filled meanwhile;
+     * a replayed batch is kept in the journal instead, and a batch over max retries is given up like a failed
+     * one.
+     */
+    private void retry(LogBatch batch) {
+        PerfCounter.count(PerfConstants.SEND_TRY_LATER, 1);
+        synchronized (held) {
+            answeredTryLater.decrementAndGet();
+            if (batch.replay) {
+                recycle(batch, false);
+                release();
+                return;
+            }
+            if (batch.retries > 0) {
+                resending--;
+            }
+            if (++batch.retries > config.tryLaterMaxRetries()) {
+                LOGGER.warn("^#Red.log-scribe: gave up a batch of {} logs after {} TRY_LATER.", batch.size(),
+                        batch.retries);
+                fail(batch, ScribeMetrics.Drop.GivenUp);
+                release();
+                return;
+            }
+            pendingRetries.incrementAndGet();
+            retrying.add(batch);
+            if (retrying.size() > 1) {
+                // resend of the first one is scheduled already.
+                return;
+            }
+        }
+        retrier.schedule(new Runnable() {
+            @Override
+            public void run() {
+                resend();
+            }
+        }, tryLater.onTryLater(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write batches waiting to be resent in order; batches held behind them wait until all are answered.
+     */
+    private void resend() {
+        synchronized (held) {
+            LogBatch batch;
+            while ((batch = retrying.poll()) != null) {
+                pendingRetries.decrementAndGet();
+                PerfCounter.count(PerfConstants.SEND_RETRY, 1);
+                resending++;
+                write(batch);
             }
         }
-        count = 0;
-        lastSentTs = System.currentTimeMillis();
+    }
+
+    /**
+     * A resent batch is acked or failed, release held batches on {@link #retrier} if it's the last one.
+     */
+    private void onResent() {
+        retrier.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (held) {
+                    resending--;
+                    release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Write held batches in order if no batch is waiting to be resent or answered, under lock of {@link #held}.
+     */
+    private void release() {
+        if (!retrying.isEmpty() || resending > 0 || answeredTryLater.get() > 0) {
+            return;
+        }
+        LogBatch batch;
+        while ((batch = held.poll()) != null) {
+            write(batch);
+        }
+    }
+
+    private void recycle(LogBatch batch, boolean acked) {
+        if (batch.replay) {
+            // the thread in #sendPipelined is waiting for it, and will put it back.
+            batch.complete(acked);
+        } else {
+            batch.reset();
+            free.add(batch);
+        }
+    }
+
+    private void acked(LogBatch batch, long rttNanos) {
+        PerfCounter.count(PerfConstants.SEND_SUCCESS, 1);
+        batch.recordLatency(metrics, System.nanoTime());
+        adapt(batch.fillNanos, rttNanos);
+    }
+
+    /**
+     * Adapt {@link #batchLimit} by moving average of batch fill time and send round-trip time.
+     *
+     * @param fill
+     * @param rtt
+     */
+    void adapt(long fill, long rtt) {
+        if (!config.adaptiveBatch()) {
+            return;
+        }
+        fillAvg += (fill - fillAvg) >> 3;
+        rttAvg += (rtt - rttAvg) >> 3;
+        if (rttAvg > fillAvg && batchLimit < config.batchSize()) {
+            batchLimit = Math.min(batchLimit << 1, config.batchSize());
+            LOGGER.debug("^#Blue.adapt-batch: grow to {}, rtt={}ns, fill={}ns.", batchLimit, rttAvg, fillAvg);
+        } else if (rttAvg << 2 < fillAvg && batchLimit > config.minBatchSize()) {
+            batchLimit = Math.max(batchLimit >> 1, config.minBatchSize());
+            LOGGER.debug("^#Blue.adapt-batch: shrink to {}, rtt={}ns, fill={}ns.", batchLimit, rttAvg, fillAvg);
+        }
+    }
+
+    /**
+     * Current batch size limit.
+     *
+     * @return
+     */
+    public int batchLimit() {
+        return batchLimit;
+    }
+
+    /**
+     * Wait at most #timeoutMs until all batches in flight are acked or failed, for shutdown.
+     *
+     * @param timeoutMs
+     * @return true if nothing in flight.
+     * @throws InterruptedException
+     */
+    public boolean flush(long timeoutMs) throws InterruptedException {
+        if (!pipelined) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (free.size() < config.maxInFlightBatches() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        return free.size() >= config.maxInFlightBatches();
+    }
+
+    /**
+     * Stop watching servers, close connections, the journal and the packer, after {@link #flush(long)} on
+     * shutdown and once the sender thread has stopped.
+     */
+    void close() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+        ScribeConnectionPool p = pool;
+        if (p != null) {
+            p.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (packer != null) {
+            packer.close();
+        }
     }
 
     /**
@@ -158,20 +766,45 @@ public class LogSender implements EventHandler<LogEvent<String>> {
      * @return
      */
     public boolean sendSync(List<LogEntry> toSend) {
+        if (pipelined) {
+            return sendPipelined(toSend);
+        }
         try {
             if (client != null) {
-                client.Log(toSend);
+                if (client.Log(toSend) == ResultCode.TRY_LATER) {
+                    // left for the next replay.
+                    PerfCounter.count(PerfConstants.SEND_TRY_LATER, 1);
+                    return false;
+                }
                 return true;
             }
         } catch (TException ex) {
             LOGGER.error("^#Red.log-scribe-exception: {}", toSend, ex);
             client = null;
+            breaker.onFailure(System.currentTimeMillis());
         }
 
         return false;
     }
 
+    ScribeMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Gauge of batches answered TRY_LATER and waiting to be resent.
+     *
+     * @return
+     */
+    public int pendingRetries() {
+        return pendingRetries.get();
+    }
+
     public boolean isValid() {
+        if (pipelined) {
+            ScribeConnectionPool p = pool;
+            return p != null && p.isAvailable();
+        }
         return client != null;
     }
 }
@@ -0,0 +1,213 @@
+/**
+ * LogUnpacker.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:02:37 AM
+ */
+package me.lyso.log.scribe;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Consumer side of {@link LogPacker}: gets log lines back from packed messages, and passes other messages
+ * through. Knows a set of dictionaries, and picks the one a message was packed with by its adler32.<BR>
+ * As a tool, reads messages from files or stdin and prints the lines:
+ * <CODE>
+ * java me.lyso.log.scribe.LogUnpacker [-d dictionary-file] [file...]
+ * </CODE>
+ *
+ * @author leo
+ */
+public class LogUnpacker {
+    private static final int[] BASE64_INDEX = new int[128];
+
+    static {
+        Arrays.fill(BASE64_INDEX, -1);
+        for (int i = 0; i < LogPacker.BASE64.length; i++) {
+            BASE64_INDEX[LogPacker.BASE64[i]] = i;
+        }
+    }
+
+    private final byte[][] dictionaries;
+    private final int[] checksums;
+
+    /**
+     * @param dictionaries used by packers, {@link LogPacker#DEFAULT_DICTIONARY} is always known.
+     */
+    public LogUnpacker(byte[]... dictionaries) {
+        this.dictionaries = Arrays.copyOf(dictionaries, dictionaries.length + 1);
+        this.dictionaries[dictionaries.length] = LogPacker.DEFAULT_DICTIONARY;
+        this.checksums = new int[this.dictionaries.length];
+        for (int i = 0; i < checksums.length; i++) {
+            Adler32 adler = new Adler32();
+            adler.update(this.dictionaries[i]);
+            checksums[i] = (int) adler.getValue();
+        }
+    }
+
+    public static boolean isPacked(String message) {
+        return message.startsWith(LogPacker.PREFIX);
+    }
+
+    /**
+     * Lines in #message, or #message itself if not packed.
+     *
+     * @param message
+     * @return
+     * @throws IOException if #message is corrupted or packed with an unknown dictionary.
+     */
+    public List<String> unpack(String message) throws IOException {
+        if (!isPacked(message)) {
+            return Collections.singletonList(message);
+        }
+        byte[] raw = inflate(decodeBase64(message, LogPacker.PREFIX.length()));
+        List<String> lines = new ArrayList<String>();
+        int pos = 0;
+        while (pos < raw.length) {
+            int len = 0;
+            for (int shift = 0;; shift += 7) {
+                if (pos >= raw.length || shift > 28) {
+                    throw new IOException("Bad line length at " + pos);
+                }
+                byte b = raw[pos++];
+                len |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (len < 0 || pos + len > raw.length) {
+                throw new IOException("Bad line length " + len + " at " + pos);
+            }
+            lines.add(new String(raw, pos, len, Utf8Buffer.UTF8));
+            pos += len;
+        }
+        return lines;
+    }
+
+    private byte[] inflate(byte[] packed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(packed);
+            byte[] out = new byte[Math.max(packed.length * 4, Utf8Buffer.INITIAL)];
+            int n = 0;
+            while (!inflater.finished()) {
+                if (n == out.length) {
+                    out = Arrays.copyOf(out, n << 1);
+                }
+                int got = inflater.inflate(out, n, out.length - n);
+                n += got;
+                if (got == 0 && inflater.needsDictionary()) {
+                    inflater.setDictionary(dictionary(inflater.getAdler()));
+                } else if (got == 0 && inflater.needsInput()) {
+                    throw new IOException("Truncated packed message.");
+                }
+            }
+            return Arrays.copyOf(out, n);
+        } catch (DataFormatException ex) {
+            throw new IOException("Bad packed message: " + ex.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private byte[] dictionary(int adler) throws IOException {
+        for (int i = 0; i < checksums.length; i++) {
+            if (checksums[i] == adler) {
+                return dictionaries[i];
+            }
+        }
+        throw new IOException("Unknown dictionary: " + Integer.toHexString(adler));
+    }
+
+    private static byte[] decodeBase64(String s, int start) throws IOException {
+        int end = s.length();
+        while (end > start && s.charAt(end - 1) == '=') {
+            end--;
+        }
+        byte[] out = new byte[(end - start) * 3 / 4];
+        int n = 0;
+        int v = 0;
+        int bits = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            int d = c < 128 ? BASE64_INDEX[c] : -1;
+            if (d < 0) {
+                throw new IOException("Bad base64 char at " + i);
+            }
+            v = v << 6 | d;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[n++] = (byte) (v >> bits);
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<byte[]> dictionaries = new ArrayList<byte[]>();
+        List<String> files = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-d".equals(args[i]) && i + 1 < args.length) {
+                dictionaries.add(read(new File(args[++i])));
+            } else {
+                files.add(args[i]);
+            }
+        }
+        LogUnpacker unpacker = new LogUnpacker(dictionaries.toArray(new byte[dictionaries.size()][]));
+        PrintStream out = System.out;
+        if (files.isEmpty()) {
+            unpack(unpacker, System.in, out);
+        }
+        for (String file : files) {
+            InputStream in = new FileInputStream(file);
+            try {
+                unpack(unpacker, in, out);
+            } finally {
+                in.close();
+            }
+        }
+        out.flush();
+    }
+
+    private static void unpack(LogUnpacker unpacker, InputStream in, PrintStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, Utf8Buffer.UTF8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            for (String l : unpacker.unpack(line)) {
+                out.println(l);
+            }
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] b = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int n = 0;
+            while (n < b.length) {
+                int got = in.read(b, n, b.length - n);
+                if (got < 0) {
+                    throw new IOException("Truncated dictionary: " + file);
+                }
+                n += got;
+            }
+            return b;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -19,5 +19,38 @@ public interface PerfConstants {
     String SEND_DELAY_BATCH = "counter~scribelog~send~delaybatch";
     String SEND_SUCCESS = "counter~scribelog~send~success";
     String SEND_FAIL = "counter~scribelog~send~fail";
+    /** batches answered TRY_LATER, resent after backoff, and given up after max retries */
+    String SEND_TRY_LATER = "counter~scribelog~send~trylater";
+    String SEND_RETRY = "counter~scribelog~send~retry";
+    String SEND_GIVE_UP = "counter~scribelog~send~giveup";
     String RING_FAIL = "counter~scribelog~getring~fail";
+    String RING_BLOCK = "counter~scribelog~getring~block";
+    String RING_TIMEOUT = "counter~scribelog~getring~timeout";
+    String RING_DROP_OLDEST = "counter~scribelog~getring~dropoldest";
+    /** ranges put into ring by {@link ProducerBatch}, counted with their logs; and ranges found no room for */
+    String RING_RANGE = "counter~scribelog~getring~range";
+    String RING_RANGE_FULL = "counter~scribelog~getring~rangefull";
+    /** slots claimed by a {@link Log} writer but given up unfinished, published as pings */
+    String RING_ABANDONED = "counter~scribelog~getring~abandoned";
+    String BREAKER_OPEN = "counter~scribelog~breaker~open";
+    String BREAKER_HALF_OPEN = "counter~scribelog~breaker~halfopen";
+    String BREAKER_CLOSE = "counter~scribelog~breaker~close";
+    String SERVERS_CHANGED = "counter~scribelog~servers~changed";
+    /** per-endpoint counters, suffixed by "~host:port" */
+    String ENDPOINT_SEND = "counter~scribelog~endpoint~send";
+    String ENDPOINT_FAIL = "counter~scribelog~endpoint~fail";
+    String ENDPOINT_EJECT = "counter~scribelog~endpoint~eject";
+    String ENDPOINT_DRAIN = "counter~scribelog~endpoint~drain";
+    String SPILL_WRITE = "counter~scribelog~spill~write";
+    String SPILL_FAIL = "counter~scribelog~spill~fail";
+    String SPILL_EVICT = "counter~scribelog~spill~evict";
+    String SPILL_CORRUPT = "counter~scribelog~spill~corrupt";
+    String SPILL_REPLAY = "counter~scribelog~spill~replay";
+    /** logs dropped by {@link Admission}, suffixed by "~category" */
+    String ADMISSION_SAMPLED = "counter~scribelog~admission~sampled";
+    String ADMISSION_LIMITED = "counter~scribelog~admission~ratelimited";
+    /** lines packed, and bytes before and after packing */
+    String PACK_LINES = "counter~scribelog~pack~lines";
+    String PACK_RAW_BYTES = "counter~scribelog~pack~rawbytes";
+    String PACK_BYTES = "counter~scribelog~pack~bytes";
 }
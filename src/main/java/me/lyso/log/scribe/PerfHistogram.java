@@ -0,0 +1,165 @@
+/**
+ * PerfHistogram.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:46:13 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear buckets like HdrHistogram, for {@link ScribePerf} and {@link ScribeLoggerMetrics}.<BR>
+ * Values below {@link #SUB} have a bucket each, every power of 2 above is split into {@link #HALF} buckets,
+ * so a value is kept within 1/{@link #HALF} (1.6%) of itself up to {@link #MAX}.
+ * Live counts are cells of an {@link AtomicLongArray} recorded without lock or allocation; a snapshot of them is
+ * an instance of this class, keeping only the non-empty buckets.
+ *
+ * @author leo
+ */
+public final class PerfHistogram {
+    private static final int SUB_BITS = 7;
+    static final int SUB = 1 << SUB_BITS;
+    static final int HALF = SUB >> 1;
+    private static final int MAX_BITS = 36;
+    /** larger values are counted as this */
+    static final long MAX = (1L << MAX_BITS) - 1;
+    static final int BUCKETS = SUB + (MAX_BITS - SUB_BITS) * HALF;
+    static final PerfHistogram EMPTY = new PerfHistogram(null, null, 0, 0);
+
+    private final int[] buckets;
+    private final long[] counts;
+    private final int size;
+    private final long total;
+
+    private PerfHistogram(int[] buckets, long[] counts, int size, long total) {
+        this.buckets = buckets;
+        this.size = size;
+        this.counts = counts;
+        this.total = total;
+    }
+
+    static int bucket(long value) {
+        if (value < SUB) {
+            return value < 0 ? 0 : (int) value;
+        }
+        if (value > MAX) {
+            value = MAX;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return SUB + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    /**
+     * Largest value counted in #bucket.
+     */
+    static long highest(int bucket) {
+        if (bucket < SUB) {
+            return bucket;
+        }
+        int shift = (bucket - SUB) / HALF + 1;
+        long mantissa = (bucket - SUB) % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Count #value into live #cells from #offset.
+     */
+    static void record(AtomicLongArray cells, int offset, long value) {
+        cells.getAndIncrement(offset + bucket(value));
+    }
+
+    /**
+     * Take and reset live #cells from #offset.
+     */
+    static PerfHistogram snapshot(AtomicLongArray cells, int offset) {
+        return read(cells, offset, true);
+    }
+
+    /**
+     * Read live #cells from #offset, leaving them counting.
+     */
+    static PerfHistogram copy(AtomicLongArray cells, int offset) {
+        return read(cells, offset, false);
+    }
+
+    private static PerfHistogram read(AtomicLongArray cells, int offset, boolean reset) {
+        int n = 0;
+        int[] buckets = null;
+        long[] counts = null;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (cells.get(offset + i) == 0) {
+                continue;
+            }
+            long c = reset ? cells.getAndSet(offset + i, 0) : cells.get(offset + i);
+            if (buckets == null) {
+                buckets = new int[8];
+                counts = new long[8];
+            } else if (n == buckets.length) {
+                buckets = Arrays.copyOf(buckets, n << 1);
+                counts = Arrays.copyOf(counts, n << 1);
+            }
+            buckets[n] = i;
+            counts[n++] = c;
+            total += c;
+        }
+        return n == 0 ? EMPTY : new PerfHistogram(buckets, counts, n, total);
+    }
+
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Add counts to #dense, an array of {@link #BUCKETS}.
+     */
+    void addTo(long[] dense) {
+        for (int i = 0; i < size; i++) {
+            dense[buckets[i]] += counts[i];
+        }
+    }
+
+    /**
+     * Largest value of the bucket holding the #percentile (0~100) value, 0 if empty.
+     */
+    public long percentile(double percentile) {
+        long[] dense = new long[BUCKETS];
+        addTo(dense);
+        return percentile(dense, total, percentile);
+    }
+
+    /**
+     * Largest value of the bucket holding the #percentile (0~100) value of #dense, 0 if empty.
+     *
+     * @param dense counts of {@link #BUCKETS}.
+     * @param total sum of #dense.
+     * @param percentile
+     * @return
+     */
+    static long percentile(long[] dense, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long c = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            c += dense[i];
+            if (c >= rank) {
+                return highest(i);
+            }
+        }
+        return MAX;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("count=").append(total)
+                .append(",p50=").append(percentile(50))
+                .append(",p90=").append(percentile(90))
+                .append(",p99=").append(percentile(99))
+                .append(",p999=").append(percentile(99.9))
+                .append(",max=").append(percentile(100)).toString();
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * ProducerBatch.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:14:37 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Logs buffered by one producer thread of {@link ScribeLogger#logBatched(CharSequence)}, put into the ring as one
+ * range when full, flushed, or lingering too long.<BR>
+ * Messages are encoded into {@link Utf8Buffer}s which are swapped with those of the ring slots on publish, so
+ * buffering neither allocates nor copies. The owner thread and the timer both take {@link #lock}; the owner's lock
+ * is an uncontended CAS on its own batch, much cheaper than a claim on the shared ring cursor, and the timer only
+ * tries it. The timer only tries the ring too, logs with no room are kept for the owner, which may block by
+ * {@link PublishPolicy}. Each log carries the time it was buffered into its slot.
+ *
+ * @author leo
+ */
+final class ProducerBatch {
+    final ScribeLogger logger;
+    final Thread owner = Thread.currentThread();
+    final ReentrantLock lock = new ReentrantLock();
+    private final Utf8Buffer[] logs;
+    /** System.nanoTime() when each log is buffered */
+    private final long[] nanos;
+    private int size = 0;
+    /** System.nanoTime() of the first log buffered, 0 if empty; read by the timer without lock */
+    private volatile long firstNanos = 0;
+
+    ProducerBatch(ScribeLogger logger, int capacity) {
+        this.logger = logger;
+        this.logs = new Utf8Buffer[capacity];
+        this.nanos = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            logs[i] = new Utf8Buffer();
+        }
+    }
+
+    /**
+     * Encode #message into the next buffer, under {@link #lock}.
+     *
+     * @param message
+     * @return true if full.
+     */
+    boolean add(CharSequence message) {
+        long now = System.nanoTime();
+        if (size == 0) {
+            firstNanos = now;
+        }
+        nanos[size] = now;
+        logs[size++].clear().append(message);
+        return size == logs.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Utf8Buffer get(int i) {
+        return logs[i];
+    }
+
+    /**
+     * Put #i into #slot with the time it was buffered, taking the slot's buffer in place of it.
+     */
+    void moveTo(int i, LogEvent<String> slot) {
+        logs[i] = slot.swap(logs[i], nanos[i]);
+    }
+
+    /**
+     * Drop logs before #from, which are put into ring, and keep the rest for a later publish.
+     *
+     * @param from
+     */
+    void keepFrom(int from) {
+        for (int i = from; i < size; i++) {
+            Utf8Buffer kept = logs[i];
+            logs[i] = logs[i - from];
+            logs[i - from] = kept;
+            nanos[i - from] = nanos[i];
+        }
+        size -= from;
+        firstNanos = size > 0 ? nanos[0] : 0;
+    }
+
+    /**
+     * @param nowNanos
+     * @param lingerNanos
+     * @return true if not empty and the first log is older than #lingerNanos.
+     */
+    boolean due(long nowNanos, long lingerNanos) {
+        long first = firstNanos;
+        return first != 0 && nowNanos - first >= lingerNanos;
+    }
+
+    void clear() {
+        size = 0;
+        firstNanos = 0;
+    }
+}
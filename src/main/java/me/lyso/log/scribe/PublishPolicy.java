@@ -0,0 +1,26 @@
+/**
+ * PublishPolicy.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 5:03:31 PM
+ */
+package me.lyso.log.scribe;
+
+/**
+ * What {@link ScribeLogger#log(String)} does when the ring is full.
+ *
+ * @author leo
+ */
+public enum PublishPolicy {
+    /** drop the new log (or spill it if configured) and return at once, the default. */
+    Drop,
+    /** wait until a slot is free, for audit-grade logs which must not be lost. */
+    Block,
+    /** wait at most {@link ScribeLoggerConfig#publishTimeoutMicros()}, then act as {@link #Drop}. */
+    BlockWithTimeout,
+    /**
+     * let the sender discard (or spill) the oldest log in ring, and wait at most
+     * {@link ScribeLogger#DROP_OLDEST_WAIT_MICROS} for the freed slot, then act as {@link #Drop}.
+     */
+    DropOldest,
+}
@@ -0,0 +1,261 @@
+/**
+ * ScribeConnection.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:32:16 AM
+ */
+package me.lyso.log.scribe;
+
+import java.net.SocketTimeoutException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolUtil;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import scribe.thrift.ResultCode;
+
+/**
+ * Pipelined connection to one scribe server, over framed binary thrift as scribe serves.<BR>
+ * Messages are written from the UTF-8 bytes of {@link LogBatch} straight into the frame buffer.<BR>
+ * {@link #send(LogBatch)} writes a "Log" call without waiting for its reply, so many batches can be in flight;
+ * a reader thread reads the replies, which come in the same order as calls on one connection, and completes
+ * the batches in order. Once a batch is passed to {@link #send(LogBatch)}, exactly one of
+ * {@link Listener#onAck} and {@link Listener#onFail} will be called for it.
+ *
+ * @author leo
+ */
+class ScribeConnection {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScribeConnection.class);
+    private static final TStruct ARGS_STRUCT = new TStruct("Log_args");
+    private static final TField MESSAGES_FIELD = new TField("messages", TType.LIST, (short) 1);
+    private static final TStruct ENTRY_STRUCT = new TStruct("LogEntry");
+    private static final TField CATEGORY_FIELD = new TField("category", TType.STRING, (short) 1);
+    private static final TField MESSAGE_FIELD = new TField("message", TType.STRING, (short) 2);
+
+    /**
+     * Callbacks of sent batches, called on the reader thread or the sending thread.
+     */
+    interface Listener {
+        void onAck(LogBatch batch, ResultCode result, long rttNanos);
+
+        void onFail(LogBatch batch, Exception ex);
+    }
+
+    private final String host;
+    private final int port;
+    private final Listener listener;
+    private final TSocket socket;
+    private final TProtocol out;
+    private final TProtocol in;
+    private final Queue<LogBatch> outstanding = new ConcurrentLinkedQueue<LogBatch>();
+    private final AtomicInteger outstandingCount = new AtomicInteger();
+    private final AtomicBoolean closing = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+    private int seqid = 0;
+
+    /**
+     * Connect to #host:#port and start reader thread.
+     *
+     * @param host
+     * @param port
+     * @param timeoutMs connect and read timeout.
+     * @param listener
+     * @throws TException
+     */
+    ScribeConnection(String host, int port, int timeoutMs, Listener listener) throws TException {
+        this.host = host;
+        this.port = port;
+        this.listener = listener;
+        this.socket = new TSocket(host, port, timeoutMs);
+        socket.open();
+        // separate frame buffers for the writing thread and the reader thread.
+        this.out = new TBinaryProtocol(new TFramedTransport(socket));
+        this.in = new TBinaryProtocol(new TFramedTransport(socket));
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read();
+            }
+        }, "scribe-reader-" + host + ":" + port);
+        reader.setDaemon(true);
+        reader.start();
+        LOGGER.info("^#Blue.scribe-connect: connected to {}:{}.", host, port);
+    }
+
+    /**
+     * Write #batch as a "Log" call.
+     *
+     * @param batch
+     * @return false if connection is broken, #batch is failed.
+     */
+    synchronized boolean send(LogBatch batch) {
+        // enqueue before writing, the reply may come before write returns.
+        outstandingCount.incrementAndGet();
+        outstanding.add(batch);
+        if (!closed) {
+            try {
+                batch.sentNanos = System.nanoTime();
+                writeCall(out, ++seqid, batch);
+                return true;
+            } catch (Exception ex) {
+                LOGGER.error("^#Red.scribe-write: {}:{} {}", host, port, ex);
+                close();
+            }
+        }
+        failOutstanding(null);
+        return false;
+    }
+
+    /**
+     * Encode #batch as a "Log" call to #out and flush.
+     */
+    static void writeCall(TProtocol out, int seqid, LogBatch batch) throws TException {
+        out.writeMessageBegin(new TMessage("Log", TMessageType.CALL, seqid));
+        out.writeStructBegin(ARGS_STRUCT);
+        out.writeFieldBegin(MESSAGES_FIELD);
+        int n = batch.wireSize();
+        out.writeListBegin(new TList(TType.STRUCT, n));
+        for (int i = 0; i < n; i++) {
+            Utf8Buffer message = batch.wireMessage(i);
+            byte[] category = batch.wireCategoryBytes(i);
+            out.writeStructBegin(ENTRY_STRUCT);
+            out.writeFieldBegin(CATEGORY_FIELD);
+            writeBytes(out, category, category.length);
+            out.writeFieldEnd();
+            out.writeFieldBegin(MESSAGE_FIELD);
+            writeBytes(out, message.array(), message.length());
+            out.writeFieldEnd();
+            out.writeFieldStop();
+            out.writeStructEnd();
+        }
+        out.writeListEnd();
+        out.writeFieldEnd();
+        out.writeFieldStop();
+        out.writeStructEnd();
+        out.writeMessageEnd();
+        out.getTransport().flush();
+    }
+
+    /**
+     * Same on wire as writeString of binary protocol: [i32 length][UTF-8 bytes], without encoding a String.
+     */
+    private static void writeBytes(TProtocol out, byte[] bytes, int length) throws TException {
+        out.writeI32(length);
+        out.getTransport().write(bytes, 0, length);
+    }
+
+    /**
+     * Reader thread: read replies and complete outstanding batches in order until connection broken.
+     */
+    private void read() {
+        Exception cause = null;
+        while (!closed) {
+            try {
+                ResultCode result = readReply();
+                LogBatch batch = poll();
+                if (batch == null) {
+                    throw new TException("Reply without call.");
+                }
+                listener.onAck(batch, result, System.nanoTime() - batch.sentNanos);
+            } catch (Exception ex) {
+                if (!closed && outstanding.isEmpty() && ex.getCause() instanceof SocketTimeoutException) {
+                    // idle, nothing to read.
+                    continue;
+                }
+                if (!closed) {
+                    LOGGER.error("^#Red.scribe-read: {}:{} {}", host, port, ex);
+                    cause = ex;
+                }
+                break;
+            }
+        }
+        close();
+        failOutstanding(cause);
+    }
+
+    private ResultCode readReply() throws TException {
+        TMessage msg = in.readMessageBegin();
+        if (msg.type == TMessageType.EXCEPTION) {
+            TApplicationException ex = TApplicationException.read(in);
+            in.readMessageEnd();
+            throw ex;
+        }
+        ResultCode result = null;
+        in.readStructBegin();
+        while (true) {
+            TField field = in.readFieldBegin();
+            if (field.type == TType.STOP) {
+                break;
+            }
+            if (field.id == 0 && field.type == TType.I32) {
+                result = ResultCode.findByValue(in.readI32());
+            } else {
+                TProtocolUtil.skip(in, field.type);
+            }
+            in.readFieldEnd();
+        }
+        in.readStructEnd();
+        in.readMessageEnd();
+        if (result == null) {
+            throw new TApplicationException(TApplicationException.MISSING_RESULT, "Log failed: unknown result");
+        }
+        return result;
+    }
+
+    private void failOutstanding(Exception cause) {
+        LogBatch batch;
+        while ((batch = poll()) != null) {
+            listener.onFail(batch, cause);
+        }
+    }
+
+    private LogBatch poll() {
+        LogBatch batch = outstanding.poll();
+        if (batch != null) {
+            outstandingCount.decrementAndGet();
+        }
+        return batch;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Number of batches sent but not acked.
+     *
+     * @return
+     */
+    int outstanding() {
+        return outstandingCount.get();
+    }
+
+    void close() {
+        if (closing.compareAndSet(false, true)) {
+            closed = true;
+            socket.close();
+            LOGGER.info("^#Blue.scribe-close: closed {}:{}.", host, port);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
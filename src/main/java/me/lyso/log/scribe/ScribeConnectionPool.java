@@ -0,0 +1,398 @@
+/**
+ * ScribeConnectionPool.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:10:21 PM
+ */
+package me.lyso.log.scribe;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import me.lyso.perf.PerfCounter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import scribe.thrift.ResultCode;
+
+/**
+ * Pipelined {@link ScribeConnection}s to all scribe endpoints, batches are spread by {@link LoadBalance}.
+ * <ol>
+ * <li>1. an endpoint is ejected when its connection breaks, and re-probed (reconnected) on a connector thread
+ * when its {@link CircuitBreaker} allows, so choosing never blocks on a dead server;
+ * <li>2. each endpoint counts sends, failures and ejections as perf-counters suffixed by "~host:port", the
+ * send counter carries the round-trip time in ms.
+ * </ol>
+ * {@link #update(List)} swaps the endpoint set atomically: a removed endpoint is never chosen again, but its
+ * connection is kept until batches in flight on it are acked, or {@link #DRAIN_TIMEOUT_MS} passed.<BR>
+ * Logs keep their order within a connection. With {@link LoadBalance#Sticky} all batches of the pool's category go
+ * to one endpoint, picked by rendezvous hash of the category so categories of a process spread over endpoints,
+ * and picked again only when it is ejected or removed; other balances spread batches, which may arrive out of
+ * order.
+ *
+ * @author leo
+ */
+class ScribeConnectionPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScribeConnectionPool.class);
+    static final long DRAIN_TIMEOUT_MS = 10000;
+
+    /**
+     * One scribe endpoint, records its stats then passes callbacks to pool's listener.
+     */
+    class PooledEndpoint implements ScribeConnection.Listener {
+        private final InetSocketAddress addr;
+        private final String key;
+        private volatile ScribeConnection conn;
+        /** moving average of round-trip time in nanos */
+        private volatile long rttAvg;
+        private final CircuitBreaker breaker;
+        /** closed for good, connection made by a probe in progress should be closed too */
+        private volatile boolean closed = false;
+        /** when to close connection anyway after removed */
+        private long drainDeadline = 0;
+
+        private PooledEndpoint(InetSocketAddress addr) {
+            this.addr = addr;
+            this.key = "~" + name(addr);
+            this.breaker = new CircuitBreaker(name(addr), minBackoffMs, maxBackoffMs);
+        }
+
+        @Override
+        public void onAck(LogBatch batch, ResultCode result, long rttNanos) {
+            rttAvg += (rttNanos - rttAvg) >> 3;
+            PerfCounter.count(PerfConstants.ENDPOINT_SEND + key, 1, TimeUnit.NANOSECONDS.toMillis(rttNanos));
+            listener.onAck(batch, result, rttNanos);
+        }
+
+        @Override
+        public void onFail(LogBatch batch, Exception ex) {
+            PerfCounter.count(PerfConstants.ENDPOINT_FAIL + key, 1);
+            listener.onFail(batch, ex);
+        }
+
+        /**
+         * @return open connection, null if down.
+         */
+        private ScribeConnection connection(long now) {
+            ScribeConnection c = conn;
+            if (c != null && c.isClosed()) {
+                eject(now);
+                return null;
+            }
+            return c;
+        }
+
+        /**
+         * Re-probe on a connector thread if breaker allows.
+         */
+        private void probeAsync(long now) {
+            if (!breaker.tryAttempt(now)) {
+                return;
+            }
+            LogClientHelper.connectAsync(new Runnable() {
+                @Override
+                public void run() {
+                    probe();
+                }
+            });
+        }
+
+        /**
+         * Connect now if breaker allows, blocking.
+         */
+        private void probeNow(long now) {
+            if (breaker.tryAttempt(now)) {
+                probe();
+            }
+        }
+
+        private void probe() {
+            try {
+                ScribeConnection c = new ScribeConnection(addr.getHostName(), addr.getPort(),
+                        LogClientHelper.CONNECT_TIMEOUT_MS, this);
+                conn = c;
+                breaker.onSuccess();
+                if (closed) {
+                    close();
+                }
+            } catch (Exception ex) {
+                LOGGER.error("^#Red.pool-probe: can't connect {}: {}", this, ex.toString());
+                eject(System.currentTimeMillis());
+            }
+        }
+
+        private void eject(long now) {
+            conn = null;
+            long backoff = breaker.onFailure(now);
+            PerfCounter.count(PerfConstants.ENDPOINT_EJECT + key, 1);
+            LOGGER.warn("^#Red.pool-eject: {} ejected for {}ms.", this, backoff);
+        }
+
+        private long score(ScribeConnection c) {
+            long outstanding = c.outstanding();
+            return balance == LoadBalance.Latency ? (rttAvg + 1) * (outstanding + 1) : outstanding;
+        }
+
+        /**
+         * @return true if drained, or drain timed out and closed.
+         */
+        private boolean drained(long now) {
+            ScribeConnection c = conn;
+            if (c == null || c.isClosed() || c.outstanding() == 0 || now >= drainDeadline) {
+                close();
+                return true;
+            }
+            return false;
+        }
+
+        private void close() {
+            closed = true;
+            ScribeConnection c = conn;
+            conn = null;
+            if (c != null) {
+                c.close();
+            }
+        }
+
+        @Override
+        public String toString() {
+            ScribeConnection c = conn;
+            return name(addr) + (c == null || c.isClosed() ? "(down)" : "")
+                    + "[outstanding=" + (c == null ? 0 : c.outstanding())
+                    + ",rtt=" + TimeUnit.NANOSECONDS.toMicros(rttAvg) + "us]";
+        }
+    }
+
+    private final String category;
+    private final LoadBalance balance;
+    private final long minBackoffMs;
+    private final long maxBackoffMs;
+    private final ScribeConnection.Listener listener;
+    private volatile List<PooledEndpoint> endpoints = new ArrayList<PooledEndpoint>();
+    /** removed endpoints waiting for batches in flight */
+    private final List<PooledEndpoint> draining = new ArrayList<PooledEndpoint>();
+    /** endpoint of all batches with {@link LoadBalance#Sticky}, guarded by this */
+    private PooledEndpoint sticky;
+
+    /**
+     * @param servers
+     * @param category of batches sent through this pool, the key of {@link LoadBalance#Sticky}.
+     * @param balance
+     * @param minBackoffMs backoff of re-probing an ejected endpoint.
+     * @param maxBackoffMs
+     * @param listener receives callbacks of all batches sent through this pool.
+     */
+    ScribeConnectionPool(List<InetSocketAddress> servers, String category, LoadBalance balance, long minBackoffMs,
+            long maxBackoffMs, ScribeConnection.Listener listener) {
+        this.category = category;
+        this.balance = balance;
+        this.minBackoffMs = minBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.listener = listener;
+        update(servers);
+    }
+
+    /**
+     * Choose a connection for next batch, never blocks on connecting.
+     *
+     * @return null if all endpoints are down.
+     */
+    synchronized ScribeConnection choose() {
+        long now = System.currentTimeMillis();
+        if (!draining.isEmpty()) {
+            reap(now);
+        }
+        if (balance == LoadBalance.Sticky) {
+            return chooseSticky(now);
+        }
+        ScribeConnection best = null;
+        long bestScore = Long.MAX_VALUE;
+        long bestRtt = Long.MAX_VALUE;
+        for (PooledEndpoint ep : endpoints) {
+            ScribeConnection c = ep.connection(now);
+            if (c == null) {
+                ep.probeAsync(now);
+                continue;
+            }
+            long score = ep.score(c);
+            if (score < bestScore || score == bestScore && ep.rttAvg < bestRtt) {
+                best = c;
+                bestScore = score;
+                bestRtt = ep.rttAvg;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Keep {@link #sticky} while it is up and listed, or pick the up endpoint of highest hash with category.
+     */
+    private ScribeConnection chooseSticky(long now) {
+        PooledEndpoint ep = sticky;
+        ScribeConnection c = ep == null || !endpoints.contains(ep) ? null : ep.connection(now);
+        if (c != null) {
+            return c;
+        }
+        PooledEndpoint best = null;
+        ScribeConnection bestConn = null;
+        int bestHash = 0;
+        for (PooledEndpoint e : endpoints) {
+            ScribeConnection conn = e.connection(now);
+            if (conn == null) {
+                e.probeAsync(now);
+                continue;
+            }
+            int hash = mix((category + '@' + e.key).hashCode());
+            if (best == null || hash > bestHash) {
+                best = e;
+                bestConn = conn;
+                bestHash = hash;
+            }
+        }
+        if (best != ep) {
+            LOGGER.info("^#Blue.pool-sticky: {} sticks to {}, was {}.", category, best, ep);
+        }
+        sticky = best;
+        return bestConn;
+    }
+
+    /**
+     * Spread bits of a String hash, close names like "host1:port" and "host2:port" hash close.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ h >>> 16;
+    }
+
+    /**
+     * @return true if any endpoint is connected.
+     */
+    boolean isAvailable() {
+        for (PooledEndpoint ep : endpoints) {
+            ScribeConnection c = ep.conn;
+            if (c != null && !c.isClosed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replace endpoint set with #servers: keep existing ones, connect new ones, drain removed ones.
+     * New ones are connected before taking the pool lock, so {@link #choose()} is not blocked by connecting;
+     * don't call it on the sender thread.
+     *
+     * @param servers
+     */
+    void update(List<InetSocketAddress> servers) {
+        List<PooledEndpoint> created = new ArrayList<PooledEndpoint>();
+        for (InetSocketAddress addr : servers) {
+            if (find(endpoints, name(addr)) == null) {
+                PooledEndpoint ep = new PooledEndpoint(addr);
+                ep.probeNow(System.currentTimeMillis());
+                created.add(ep);
+            }
+        }
+        swap(servers, created);
+    }
+
+    private synchronized void swap(List<InetSocketAddress> servers, List<PooledEndpoint> created) {
+        long now = System.currentTimeMillis();
+        Set<String> wanted = new HashSet<String>();
+        List<PooledEndpoint> next = new ArrayList<PooledEndpoint>(servers.size());
+        for (InetSocketAddress addr : servers) {
+            String name = name(addr);
+            if (!wanted.add(name)) {
+                continue;
+            }
+            PooledEndpoint ep = find(endpoints, name);
+            if (ep == null && (ep = find(draining, name)) != null) {
+                draining.remove(ep);
+            }
+            if (ep == null && (ep = find(created, name)) != null) {
+                created.remove(ep);
+            }
+            if (ep == null) {
+                // removed by a concurrent update after checked.
+                ep = new PooledEndpoint(addr);
+                ep.probeAsync(now);
+            }
+            next.add(ep);
+        }
+        // created by a concurrent update.
+        for (PooledEndpoint ep : created) {
+            ep.close();
+        }
+        for (PooledEndpoint ep : endpoints) {
+            if (!wanted.contains(name(ep.addr))) {
+                ep.drainDeadline = now + DRAIN_TIMEOUT_MS;
+                draining.add(ep);
+                PerfCounter.count(PerfConstants.ENDPOINT_DRAIN + ep.key, 1);
+            }
+        }
+        endpoints = next;
+        reap(now);
+        LOGGER.info("^#Blue.pool-update: endpoints: {}, draining: {}.", next, draining);
+    }
+
+    /**
+     * Close drained endpoints.
+     */
+    private void reap(long now) {
+        for (Iterator<PooledEndpoint> it = draining.iterator(); it.hasNext();) {
+            PooledEndpoint ep = it.next();
+            if (ep.drained(now)) {
+                it.remove();
+                LOGGER.info("^#Blue.pool-drain: {} drained.", ep);
+            }
+        }
+    }
+
+    private static PooledEndpoint find(List<PooledEndpoint> eps, String name) {
+        for (PooledEndpoint ep : eps) {
+            if (name.equals(name(ep.addr))) {
+                return ep;
+            }
+        }
+        return null;
+    }
+
+    private static String name(InetSocketAddress addr) {
+        return addr.getHostName() + ":" + addr.getPort();
+    }
+
+    int size() {
+        return endpoints.size();
+    }
+
+    synchronized void close() {
+        for (PooledEndpoint ep : endpoints) {
+            ep.close();
+        }
+        for (PooledEndpoint ep : draining) {
+            ep.close();
+        }
+        draining.clear();
+    }
+
+    /**
+     * @return number of removed endpoints still draining.
+     */
+    synchronized int draining() {
+        return draining.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ScribeConnectionPool" + endpoints;
+    }
+}
@@ -6,22 +6,38 @@
  */
 package me.lyso.log.scribe;
 
+import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import scribe.thrift.LogEntry;
 
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventProcessor;
 import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
-import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import me.lyso.perf.PerfCounter;
@@ -29,7 +45,8 @@ import me.lyso.perf.PerfCounter;
 /**
  * async scribe logger.
  * <ol>
- * <li>1. use a disrupter(ringbuffer) of {@link #RING_SIZE} as queue for buffering incomming log request;
+ * <li>1. use a disrupter(ringbuffer) of {@link ScribeLoggerConfig#ringSize()} as queue for buffering incomming log
+ * request;
  * <li>2. use a thread {@link #logSender} with buffer for batch send logs to scribe server;
  * <li>3. use a timer(scheduled excecutor) {@link #logSendTimer} to ping {@link #logSender}, to resolve
  * problem of sending un-full buffer rapidly.
@@ -37,23 +54,47 @@ import me.lyso.perf.PerfCounter;
  * <ol>
  * work flow:
  * <li>1. use {@link LogEvent} to append a log request;
- * <li>2. this log function will tryPublish to disruptor's ringbuffer, will use log4j if ringbuffer is full;
+ * <li>2. this log function will tryPublish to disruptor's ringbuffer, will spill to a {@link SpillJournal} if
+ * ringbuffer is full and {@link ScribeLoggerConfig#spillDir()} is set, or block by {@link PublishPolicy};
  * <li>3. {@link #logSender} consume ringbuffer, and batch send logs when:
  * <ol>
  * <li>3.1. {@link #logSender} 's little buffer is full;
- * <li>3.2. time elapse more than {@link LogSender#BATCH_INTERVAL_MS};
+ * <li>3.2. time elapse more than {@link ScribeLoggerConfig#batchIntervalMs()};
  * <li>3.3. {@link #logSendTimer} pinged.
  * </ol>
- * <li>4. will send all left in buffer on shutdown.
+ * <li>4. will send all left in buffer on {@link #close()} or shutdown.
  * </ol>
+ * If {@link ScribeLoggerConfig#encoders()} is set, {@link LogEncoder}s on {@link #encodeExecutor} format logs
+ * into UTF-8 in parallel, and {@link #logSender} runs after all of them, only batching and sending bytes.<BR>
+ * Loggers built with {@link Builder#shared()} to the same servers are views of one transport logger: they
+ * share its ring, threads and connections, and tag each log with their category, so one batch may carry logs
+ * of many categories.<BR>
+ * If sampling or rate limit is set in {@link ScribeLoggerConfig}, each log passes {@link #admission} before
+ * claiming a slot; logs dropped there cost a hash or a CAS, and never touch the ring.<BR>
+ * If {@link ScribeLoggerConfig#producerBatch(int, long)} is set, {@link #logBatched(CharSequence)} buffers logs in
+ * a {@link ProducerBatch} of the calling thread, and puts them into the ring as one range: one claim and one
+ * publish for many logs of a request.
+ * Use {@link #builder(String)} to choose the {@link WaitStrategyType} and thread of {@link #logSender},
+ * and {@link #latency()} to see how each choice performs.
  *
  * @author leo
  */
 public class ScribeLogger {
     public static final String LOCAL_HOST;
     private static final Logger LOGGER = LoggerFactory.getLogger(ScribeLogger.class);
+    private static final long SHUTDOWN_FLUSH_MS = 3000;
+    /** how long {@link PublishPolicy#DropOldest} waits for the sender to shed a log */
+    static final long DROP_OLDEST_WAIT_MICROS = 1000;
+    /** sequence of a {@link Log} writer whose claim failed on a full ring */
+    static final long NOT_CLAIMED = -2;
+    /** sequence of a {@link Log} writer whose log was dropped by {@link #admission} */
+    static final long NOT_ADMITTED = -3;
+    /** category of the sender shared by {@link Builder#shared()} loggers, names its threads and spill dir */
+    static final String SHARED_CATEGORY = "shared";
     private static final ConcurrentHashMap<String, ScribeLogger> loggers = new ConcurrentHashMap<String, ScribeLogger>();
-    private static final int RING_SIZE = 1 << 12;
+    /** shared transport loggers by servers */
+    private static final ConcurrentHashMap<String, ScribeLogger> transports =
+            new ConcurrentHashMap<String, ScribeLogger>();
 
     static {
         String host = "";
@@ -67,11 +108,37 @@ public class ScribeLogger {
         LOGGER.info("^#Blue.init-step1: init local host: {}.", LOCAL_HOST);
     }
 
-    private final ExecutorService logSendExecutor = Executors.newSingleThreadExecutor();
-    private final ScheduledExecutorService logSendTimer = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService logSendExecutor;
+    /** threads of {@link LogEncoder}s, null if not encoding in parallel */
+    private final ExecutorService encodeExecutor;
+    private final ScheduledExecutorService logSendTimer;
     private final LogSender logSender;
+    private final ScribeLoggerConfig config;
+    /** category tagged on each log, null to use {@link #logSender}'s */
+    private final String category;
+    /** null if all logs are admitted */
+    private final Admission admission;
     private Disruptor<LogEvent<String>> disruptor;
     private RingBuffer<LogEvent<String>> ringBuffer;
+    /** null for a view of a shared transport */
+    private Thread shutdownHook;
+    /** builder of a shared transport, whose settings are used by all its views */
+    private Builder origin;
+    /** builder of this logger if cached by {@link Builder#build()}, to compare later builds with */
+    private Builder builder;
+    /** name of registered metrics, null if not registered or a view */
+    private final ObjectName mbeanName;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    /** batches of {@link #logBatched(CharSequence)} by thread, null if producer batch is not set */
+    private final ThreadLocal<ProducerBatch> producerBatches;
+    /** all producer batches of the transport, for the timer and shutdown */
+    private final Queue<ProducerBatch> allProducerBatches;
+    private final ThreadLocal<Log.Usage> usageWriters = new ThreadLocal<Log.Usage>() {
+        @Override
+        protected Log.Usage initialValue() {
+            return new Log.Usage();
+        }
+    };
 
     /**
      * get a ScribeLogger with #category and connect to servers described by #logServersZkPath
@@ -81,16 +148,19 @@ public class ScribeLogger {
      * @return
      */
     public static ScribeLogger get(String category, String logServersZkPath) {
-        String k = category + "@" + logServersZkPath;
-        ScribeLogger logger = loggers.get(k);
-        if (logger == null) {
-            logger = new ScribeLogger(new LogSender(category, logServersZkPath));
-            ScribeLogger existed = loggers.putIfAbsent(k, logger);
-            if (existed != null) {
-                return existed;
-            }
-        }
-        return logger;
+        return builder(category).zkPath(logServersZkPath).build();
+    }
+
+    /**
+     * get a ScribeLogger with #category and #config, and connect to servers described by #logServersZkPath
+     *
+     * @param category
+     * @param logServersZkPath
+     * @param config
+     * @return
+     */
+    public static ScribeLogger get(String category, String logServersZkPath, ScribeLoggerConfig config) {
+        return builder(category).zkPath(logServersZkPath).config(config).build();
     }
 
     /**
@@ -102,28 +172,338 @@ public class ScribeLogger {
      * @return
      */
     public static ScribeLogger get(String category, String host, int port) {
-        String k = category + "@" + host + ":" + port;
-        ScribeLogger logger = loggers.get(k);
-        if (logger == null) {
-            logger = new ScribeLogger(new LogSender(category, host, port));
-            ScribeLogger existed = loggers.putIfAbsent(k, logger);
-            if (existed != null) {
-                return existed;
+        return builder(category).server(host, port).build();
+    }
+
+    /**
+     * get a ScribeLogger with #category and #config, and connect to host:port
+     *
+     * @param category
+     * @param host
+     * @param port
+     * @param config
+     * @return
+     */
+    public static ScribeLogger get(String category, String host, int port, ScribeLoggerConfig config) {
+        return builder(category).server(host, port).config(config).build();
+    }
+
+    /**
+     * Build a ScribeLogger with customized wait strategy and sender thread.
+     * <CODE>
+     * ScribeLogger.builder("usage").zkPath(path).waitStrategy(WaitStrategyType.Yielding).senderCpu(3).build();
+     * </CODE>
+     *
+     * @param category
+     * @return
+     */
+    public static Builder builder(String category) {
+        return new Builder(category);
+    }
+
+    public static class Builder {
+        private final String category;
+        private String zkPath;
+        private String host;
+        private int port;
+        private ScribeLoggerConfig config = new ScribeLoggerConfig();
+        private WaitStrategyType waitStrategy = WaitStrategyType.Sleeping;
+        private ThreadFactory threadFactory;
+        private int senderCpu = -1;
+        private boolean shared = false;
+
+        private Builder(String category) {
+            this.category = category;
+        }
+
+        public Builder zkPath(String zkPath) {
+            this.zkPath = zkPath;
+            return this;
+        }
+
+        public Builder server(String host, int port) {
+            this.host = host;
+            this.port = port;
+            return this;
+        }
+
+        public Builder config(ScribeLoggerConfig config) {
+            this.config = config;
+            return this;
+        }
+
+        public Builder waitStrategy(WaitStrategyType waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * Thread factory for the {@link LogSender} thread, default is a daemon {@link SenderThreadFactory}.
+         *
+         * @param threadFactory
+         * @return
+         */
+        public Builder threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        /**
+         * Pin the {@link LogSender} thread to #cpu, ignored if {@link #threadFactory(ThreadFactory)} is set.
+         *
+         * @param cpu
+         * @return
+         */
+        public Builder senderCpu(int cpu) {
+            this.senderCpu = cpu;
+            return this;
+        }
+
+        /**
+         * Share one ring, sender thread and connections with other shared loggers to the same servers, instead
+         * of having its own. The transport is built by the first shared logger, with its config and thread
+         * options; later ones only bring their sampling and rate limit, and a warning names their other
+         * settings which are ignored.
+         *
+         * @return
+         */
+        public Builder shared() {
+            this.shared = true;
+            return this;
+        }
+
+        /**
+         * Build the logger, or return the existing one for same category, servers and sharing; a warning names
+         * the settings of this builder which differ from the existing one's and are ignored.
+         *
+         * @return
+         */
+        public ScribeLogger build() {
+            String servers = zkPath != null ? zkPath : host + ":" + port;
+            String k = (shared ? "shared:" : "") + category + "@" + servers;
+            ScribeLogger logger = loggers.get(k);
+            if (logger == null) {
+                logger = shared ? new ScribeLogger(transport(servers), category, config) : create(category);
+                logger.builder = this;
+                ScribeLogger existed = loggers.putIfAbsent(k, logger);
+                if (existed == null) {
+                    return logger;
+                }
+                logger = existed;
+            }
+            List<String> ignored = differsFrom(logger.builder);
+            if (!ignored.isEmpty()) {
+                LOGGER.warn("^#Red.init-logger: {} to {} already built, ignoring its {}.", category, servers, ignored);
+            }
+            return logger;
+        }
+
+        private ScribeLogger create(String category) {
+            LogSender sender = zkPath != null ? new LogSender(category, zkPath, config)
+                    : new LogSender(category, host, port, config);
+            return new ScribeLogger(sender, config, waitStrategy, threadFactory != null ? threadFactory
+                    : new SenderThreadFactory("scribe-sender-" + category, senderCpu));
+        }
+
+        /**
+         * The shared transport logger to #servers, created once.
+         */
+        private ScribeLogger transport(String servers) {
+            synchronized (transports) {
+                ScribeLogger transport = transports.get(servers);
+                if (transport == null) {
+                    transport = create(SHARED_CATEGORY);
+                    transport.origin = this;
+                    transports.put(servers, transport);
+                } else {
+                    List<String> ignored = ignoredBy(transport.origin);
+                    if (!ignored.isEmpty()) {
+                        LOGGER.warn("^#Red.init-shared: {} shares transport to {} built by {}, ignoring its {}.",
+                                category, servers, transport.origin.category, ignored);
+                    }
+                }
+                return transport;
+            }
+        }
+
+        /**
+         * Settings of this builder which differ from #origin's, the builder of a shared transport.
+         *
+         * @param origin
+         * @return
+         */
+        List<String> ignoredBy(Builder origin) {
+            List<String> ignored = config.transportDiff(origin.config);
+            if (waitStrategy != origin.waitStrategy) {
+                ignored.add("waitStrategy");
+            }
+            if (threadFactory != origin.threadFactory) {
+                ignored.add("threadFactory");
+            }
+            if (senderCpu != origin.senderCpu) {
+                ignored.add("senderCpu");
             }
+            return ignored;
         }
-        return logger;
+
+        /**
+         * Settings of this builder which differ from #built's, the builder of a cached logger.
+         *
+         * @param built
+         * @return
+         */
+        List<String> differsFrom(Builder built) {
+            List<String> diff = ignoredBy(built);
+            if (config.sampleRate() != built.config.sampleRate()) {
+                diff.add("sample");
+            }
+            if (config.rateLimit() != built.config.rateLimit()
+                    || config.rateLimitBurst() != built.config.rateLimitBurst()) {
+                diff.add("rateLimit");
+            }
+            return diff;
+        }
+    }
+
+    ScribeLogger(LogSender logSender) {
+        this(logSender, new ScribeLoggerConfig(), WaitStrategyType.Sleeping, new SenderThreadFactory("scribe-sender"));
     }
 
-    private ScribeLogger(LogSender logSender) {
-        LOGGER.info("^#Blue.init-step0: begin initialize...");
+    ScribeLogger(LogSender logSender, ScribeLoggerConfig config, WaitStrategyType waitStrategy,
+            ThreadFactory senderThreadFactory) {
+        LOGGER.info("^#Blue.init-step0: begin initialize with {}...", config);
         this.logSender = logSender;
-        initDisruptor();
+        this.config = config;
+        this.category = null;
+        this.admission = Admission.of(logSender.LOG_CATEGORY, config, logSender.metrics());
+        this.logSendTimer = Executors.newSingleThreadScheduledExecutor(new SenderThreadFactory("scribe-timer"));
+        this.logSendExecutor = Executors.newSingleThreadExecutor(senderThreadFactory);
+        this.encodeExecutor = config.encoders() > 0 ? Executors.newFixedThreadPool(config.encoders(),
+                new SenderThreadFactory("scribe-encoder-" + logSender.LOG_CATEGORY)) : null;
+        this.allProducerBatches = new ConcurrentLinkedQueue<ProducerBatch>();
+        this.producerBatches = producerBatches();
+        initDisruptor(config.ringSize(), waitStrategy);
+        logSender.metrics().bind(this);
+        this.mbeanName = registerMBean(logSender.metrics(), logSender.LOG_CATEGORY);
         logSendTimer.scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
-                log(null);
+                log(null, PublishPolicy.Drop);
+            }
+        }, config.timerPeriodMs(), config.timerPeriodMs(), TimeUnit.MILLISECONDS);
+        if (producerBatches != null) {
+            final long lingerNanos = TimeUnit.MILLISECONDS.toNanos(config.producerLingerMs());
+            logSendTimer.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    flushProducerBatches(lingerNanos);
+                }
+            }, config.producerLingerMs(), config.producerLingerMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * A view of #transport tagging logs with #category, sharing all of its ring, threads and connections.
+     *
+     * @param transport
+     * @param category
+     * @param config only for admission of this category.
+     */
+    private ScribeLogger(ScribeLogger transport, String category, ScribeLoggerConfig config) {
+        LOGGER.info("^#Blue.init-step0: {} shares {}.", category, transport.logSender.LOG_CATEGORY);
+        this.logSender = transport.logSender;
+        this.config = transport.config;
+        this.category = category;
+        this.admission = Admission.of(category, config, logSender.metrics());
+        this.logSendTimer = transport.logSendTimer;
+        this.logSendExecutor = transport.logSendExecutor;
+        this.encodeExecutor = transport.encodeExecutor;
+        this.disruptor = transport.disruptor;
+        this.ringBuffer = transport.ringBuffer;
+        this.allProducerBatches = transport.allProducerBatches;
+        this.producerBatches = producerBatches();
+        this.mbeanName = null;
+    }
+
+    private ThreadLocal<ProducerBatch> producerBatches() {
+        final int capacity = config.producerBatchSize();
+        if (capacity <= 0) {
+            return null;
+        }
+        return new ThreadLocal<ProducerBatch>() {
+            @Override
+            protected ProducerBatch initialValue() {
+                ProducerBatch batch = new ProducerBatch(ScribeLogger.this, capacity);
+                allProducerBatches.add(batch);
+                return batch;
             }
-        }, LogSender.BATCH_INTERVAL_MS * 5, LogSender.BATCH_INTERVAL_MS * 5, TimeUnit.MILLISECONDS);
+        };
+    }
+
+    /**
+     * Register #metrics as "me.lyso.log.scribe:type=ScribeLogger,category=#category", with an id if the name is
+     * taken; skipped if it's not an MBean.
+     *
+     * @return registered name, null if not registered.
+     */
+    private static ObjectName registerMBean(ScribeMetrics metrics, String category) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (int id = 0; ; id++) {
+            try {
+                ObjectName name = new ObjectName("me.lyso.log.scribe:type=ScribeLogger,category="
+                        + ObjectName.quote(category) + (id == 0 ? "" : ",id=" + id));
+                server.registerMBean(metrics, name);
+                LOGGER.info("^#Blue.init-metrics: registered {}.", name);
+                return name;
+            } catch (InstanceAlreadyExistsException ex) {
+                // another logger of the category
+            } catch (NotCompliantMBeanException ex) {
+                return null;
+            } catch (Exception ex) {
+                LOGGER.warn("^#Red.init-metrics: can't register metrics of {}: {}", category, ex.toString());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Metrics of this logger, shared by all categories of a shared transport.
+     *
+     * @return
+     */
+    public ScribeMetrics metrics() {
+        return logSender.metrics();
+    }
+
+    public int ringSize() {
+        return ringBuffer.getBufferSize();
+    }
+
+    /**
+     * Free slots in ring, shared by all categories of a shared transport.
+     *
+     * @return
+     */
+    public long ringRemaining() {
+        return ringBuffer.remainingCapacity();
+    }
+
+    /**
+     * Admission of this logger's logs, null if all are admitted.
+     *
+     * @return
+     */
+    public Admission admission() {
+        return admission;
+    }
+
+    /**
+     * Category of logs sent by this logger.
+     *
+     * @return
+     */
+    public String category() {
+        return category != null ? category : logSender.LOG_CATEGORY;
     }
 
     /**
@@ -132,63 +512,562 @@ public class ScribeLogger {
     public void onShutdown(String message) {
         LOGGER.info("^#Green.shutdown: scribe logger exited gracefully");
         try {
-            logSender.onEvent(new LogEvent<String>().set(message), -1, true);
+            logSender.onEvent(new LogEvent<String>().set(message).tag(category), -1, true);
         } catch (Exception ex) {
             LOGGER.error("^#Red.shutdown: scribe logger exception during exit", ex);
         }
     }
 
+    /**
+     * Stop this logger: logs in producer batches and ring are sent (or spilled), then the threads and connections
+     * are stopped and metrics unregistered. Logs after close are lost.<BR>
+     * A view of a shared transport is only forgotten by {@link Builder#build()}, the transport is still used by
+     * other categories and stopped on shutdown.
+     */
+    public void close() {
+        loggers.values().remove(this);
+        if (category != null) {
+            return;
+        }
+        transports.values().remove(this);
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ex) {
+            // shutting down, the hook is running.
+        }
+        shutdown();
+        if (mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+            } catch (Exception ex) {
+                LOGGER.warn("^#Red.shutdown: can't unregister {}: {}", mbeanName, ex.toString());
+            }
+        }
+    }
+
+    /**
+     * Send all left and stop threads, once, by {@link #close()} or the shutdown hook.
+     */
+    private void shutdown() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            logSendTimer.shutdown();
+            flushProducerBatches(-1);
+            disruptor.shutdown();
+            logSender.flush(SHUTDOWN_FLUSH_MS);
+            logSendExecutor.shutdown();
+            if (encodeExecutor != null) {
+                encodeExecutor.shutdown();
+            }
+            // the sender thread must be gone before its packer and connections are closed.
+            if (!logSendExecutor.awaitTermination(SHUTDOWN_FLUSH_MS, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("^#Red.shutdown: sender of {} still running, closed anyway.", category);
+            }
+            logSender.close();
+        } catch (Throwable t) {
+            LOGGER.error("^#Red.shutdown: scribe logger exception during exit", t);
+        }
+    }
+
     /**
      * init disruptor for buffering log sending jobs.
+     * {@link #log(String)} is called from many request threads and from {@link #logSendTimer}, so the ring
+     * must use the multi-producer sequencer: claims are CAS-ed and no two producers can get the same slot.
+     * With encoders, the topology is encoders[0..n) then {@link #logSender}: each encoder takes its share of
+     * sequences, and the sender waits for all of them.
      */
     @SuppressWarnings("unchecked")
-    private void initDisruptor() {
-        disruptor = new Disruptor<LogEvent<String>>(LogEvent.STRING_EVENT_FACTORY, RING_SIZE,
-                logSendExecutor, ProducerType.SINGLE, new SleepingWaitStrategy());
-        disruptor.handleEventsWith(logSender);
+    private void initDisruptor(int ringSize, WaitStrategyType waitStrategy) {
+        final EventProcessor[] encoders = new EventProcessor[config.encoders()];
+        // encoders run on #encodeExecutor, the sender on #logSendExecutor.
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                for (EventProcessor encoder : encoders) {
+                    if (task == encoder) {
+                        encodeExecutor.execute(task);
+                        return;
+                    }
+                }
+                logSendExecutor.execute(task);
+            }
+        };
+        disruptor = new Disruptor<LogEvent<String>>(LogEvent.STRING_EVENT_FACTORY, ringSize,
+                executor, ProducerType.MULTI, waitStrategy.create());
+        if (encoders.length > 0) {
+            RingBuffer<LogEvent<String>> ring = disruptor.getRingBuffer();
+            SequenceBarrier barrier = ring.newBarrier();
+            for (int i = 0; i < encoders.length; i++) {
+                encoders[i] = new BatchEventProcessor<LogEvent<String>>(ring, barrier,
+                        new LogEncoder(i, encoders.length));
+            }
+            disruptor.handleEventsWith(encoders).then(logSender);
+        } else {
+            disruptor.handleEventsWith(logSender);
+        }
         ringBuffer = disruptor.start();
 
-        Runtime.getRuntime().addShutdownHook(new Thread() {
+        shutdownHook = new Thread() {
             @Override
             public void run() {
-                try {
-                    disruptor.shutdown();
-                    logSendExecutor.shutdown();
-                } catch (Throwable t) {
-                    LOGGER.error("^#Red.shutdown: scribe logger exception during exit", t);
-                }
+                shutdown();
             }
-        });
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
         LOGGER.info("^#Blue.init-step4: init disruptor: {}", disruptor);
     }
 
+    /**
+     * Batches answered TRY_LATER by scribe and waiting to be resent, see {@link LogSender#pendingRetries()}.
+     *
+     * @return
+     */
+    public int pendingRetries() {
+        return logSender.pendingRetries();
+    }
+
+    /**
+     * Histogram of publish-to-ack latency in micros in the current window of {@link ScribeLoggerMetrics}, for
+     * choosing a wait strategy; empty if other {@link ScribeMetrics} are configured.
+     *
+     * @return
+     */
+    public PerfHistogram latency() {
+        ScribeMetrics m = logSender.metrics();
+        return m instanceof ScribeLoggerMetrics ? ((ScribeLoggerMetrics) m).liveAckLatency() : PerfHistogram.EMPTY;
+    }
+
     /**
      * send a scribe log synchronously.
      *
      * @param message
      */
     public boolean logSync(String message) {
-        return logSender.sendSync(Arrays.asList(new LogEntry(logSender.LOG_CATEGORY, message)));
+        return logSender.sendSync(Arrays.asList(new LogEntry(category(), message)));
     }
 
     /**
-     * send a scribe log asynchronously.
+     * send a scribe log asynchronously with the configured {@link PublishPolicy}, thread-safe for any number
+     * of producer threads.<BR>
+     * #message is encoded as UTF-8 straight into the ring slot before return, so a reused StringBuilder can be
+     * passed without making a String.
      * 
      * @param message
+     * @return false if ring is full and message is dropped, true if sent or spilled.
+     */
+    public boolean log(CharSequence message) {
+        return log(message, config.publishPolicy());
+    }
+
+    /**
+     * send a scribe log asynchronously with #policy when ring is full.
+     *
+     * @param message
+     * @param policy
+     * @return false if ring is full and message is dropped, true if sent or spilled.
+     */
+    public boolean log(CharSequence message, PublishPolicy policy) {
+        if (message != null && admission != null && !admission.admit(null)) {
+            return false;
+        }
+        return publish(message, policy);
+    }
+
+    /**
+     * send a scribe log asynchronously if #key is sampled in, see {@link ScribeLoggerConfig#sample(double)}.
+     *
+     * @param key sampling key, as msgId or uuid, null to skip sampling.
+     * @param message
+     * @return false if dropped by admission, or ring is full and message is dropped.
+     */
+    public boolean logSampled(CharSequence key, CharSequence message) {
+        if (admission != null && !admission.admit(key)) {
+            return false;
+        }
+        return publish(message, config.publishPolicy());
+    }
+
+    /**
+     * send a scribe log asynchronously, buffered in this thread's {@link ProducerBatch} if
+     * {@link ScribeLoggerConfig#producerBatch(int, long)} is set, or {@link #log(CharSequence)} if not.<BR>
+     * #message is encoded into the buffer before return; the buffer is put into the ring when full, by
+     * {@link #flushBatched()}, or by the timer after {@link ScribeLoggerConfig#producerLingerMs()}.
+     *
+     * @param message
+     * @return false if dropped by admission, or the batch filled by #message found ring full and dropped logs.
+     */
+    public boolean logBatched(CharSequence message) {
+        if (producerBatches == null) {
+            return log(message);
+        }
+        if (message == null || admission != null && !admission.admit(null)) {
+            return false;
+        }
+        ProducerBatch batch = producerBatches.get();
+        batch.lock.lock();
+        try {
+            return !batch.add(message) || publish(batch, true);
+        } finally {
+            batch.lock.unlock();
+        }
+    }
+
+    /**
+     * Put logs buffered by this thread's {@link #logBatched(CharSequence)} into the ring, as at the end of a
+     * request.
+     *
+     * @return false if ring is full and some logs are dropped.
      */
-    public boolean log(String message) {
-        long sequence = -1;
+    public boolean flushBatched() {
+        if (producerBatches == null) {
+            return true;
+        }
+        ProducerBatch batch = producerBatches.get();
+        batch.lock.lock();
         try {
-            sequence = ringBuffer.tryNext();
+            return publish(batch, true);
+        } finally {
+            batch.lock.unlock();
+        }
+    }
+
+    /**
+     * Flush producer batches lingering longer than #lingerNanos, or of dead threads; all if #lingerNanos < 0.
+     * Batches in use by their threads are skipped, and logs with no room in ring are kept, so the timer never
+     * blocks; except on shutdown, which puts all by the configured {@link PublishPolicy}.
+     *
+     * @param lingerNanos
+     */
+    private void flushProducerBatches(long lingerNanos) {
+        long now = System.nanoTime();
+        for (Iterator<ProducerBatch> it = allProducerBatches.iterator(); it.hasNext(); ) {
+            ProducerBatch batch = it.next();
+            boolean dead = !batch.owner.isAlive();
+            if (lingerNanos < 0) {
+                batch.lock.lock();
+            } else if (!(dead || batch.due(now, lingerNanos)) || !batch.lock.tryLock()) {
+                continue;
+            }
+            try {
+                batch.logger.publish(batch, lingerNanos < 0);
+            } catch (Exception ex) {
+                LOGGER.error("^#Red.producer-batch: flush failed", ex);
+            } finally {
+                batch.lock.unlock();
+            }
+            if (dead && batch.size() == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Put logs of #batch into the ring as one range: one claim and one publish; if there is no room for all of
+     * them, each is put by the configured {@link PublishPolicy} if #mayBlock, else as long as there is room and
+     * the rest are kept in #batch. Called under lock of #batch.
+     *
+     * @param batch
+     * @param mayBlock false on the timer, which must not wait for ring.
+     * @return false if some logs are dropped.
+     */
+    private boolean publish(ProducerBatch batch, boolean mayBlock) {
+        int n = batch.size();
+        if (n == 0) {
+            return true;
+        }
+        try {
+            long hi = ringBuffer.tryNext(n);
+            long lo = hi - n + 1;
+            try {
+                for (int i = 0; i < n; i++) {
+                    LogEvent<String> e = ringBuffer.get(lo + i);
+                    batch.moveTo(i, e);
+                    e.tag(category);
+                }
+            } finally {
+                ringBuffer.publish(lo, hi);
+            }
+            PerfCounter.count(PerfConstants.RING_RANGE, n);
+            batch.clear();
+            return true;
         } catch (InsufficientCapacityException e) {
-            PerfCounter.count(PerfConstants.RING_FAIL, 1);
+            PerfCounter.count(PerfConstants.RING_RANGE_FULL, n);
+        }
+        PublishPolicy policy = config.publishPolicy();
+        boolean ok = true;
+        int i = 0;
+        try {
+            for (; i < n; i++) {
+                long sequence = mayBlock ? claim(policy) : tryClaim();
+                if (sequence < 0) {
+                    if (!mayBlock) {
+                        break;
+                    }
+                    ok &= overflow(batch.get(i).toString(), policy);
+                    continue;
+                }
+                try {
+                    LogEvent<String> slot = ringBuffer.get(sequence);
+                    batch.moveTo(i, slot);
+                    slot.tag(category);
+                } finally {
+                    ringBuffer.publish(sequence);
+                }
+            }
+        } finally {
+            batch.keepFrom(i);
+        }
+        return ok;
+    }
+
+    private boolean publish(CharSequence message, PublishPolicy policy) {
+        long sequence = claim(policy);
+        if (sequence < 0) {
+            return overflow(message, policy);
+        }
+        try {
+            ringBuffer.get(sequence).encode(message).tag(category);
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+        return true;
+    }
+
+    /**
+     * send a scribe log asynchronously with the configured {@link PublishPolicy}, copying field values of #log
+     * into the ring slot; the message is formatted on the sender thread.
+     *
+     * @param log
+     * @return false if ring is full and message is dropped, true if sent or spilled.
+     */
+    public boolean logDeferred(DeferredLog log) {
+        return logDeferred(log, null);
+    }
+
+    /**
+     * {@link #logDeferred(DeferredLog)} if #key is sampled in, see {@link ScribeLoggerConfig#sample(double)}.
+     *
+     * @param log
+     * @param key sampling key, null to skip sampling.
+     * @return false if dropped by admission, or ring is full and message is dropped.
+     */
+    public boolean logDeferred(DeferredLog log, CharSequence key) {
+        if (admission != null && !admission.admit(key)) {
             return false;
         }
+        long sequence = claim(config.publishPolicy());
+        if (sequence < 0) {
+            return overflow(log.format(), config.publishPolicy());
+        }
         try {
-            ringBuffer.get(sequence).set(message);
+            ringBuffer.get(sequence).defer(log).tag(category);
         } finally {
             ringBuffer.publish(sequence);
         }
         return true;
     }
+
+    /**
+     * Log a usage message filled by #fill straight into a ring slot, see {@link #claimUsage(CharSequence)}; the
+     * slot is always published, as a ping if #fill throws.
+     *
+     * @param key sampling key, null to skip sampling.
+     * @param fill
+     * @return false if dropped by admission, or ring is full and message is dropped.
+     */
+    public boolean logUsage(CharSequence key, Log.Fill<Log.Usage> fill) {
+        Log.Usage log = claimUsage(key);
+        boolean filled = false;
+        try {
+            fill.fill(log);
+            filled = true;
+        } finally {
+            if (!filled) {
+                log.abandon();
+            }
+        }
+        return log.done(this);
+    }
+
+    /**
+     * Claim a ring slot with the configured {@link PublishPolicy}, and return this thread's usage writer bound
+     * to it; fields are encoded straight into the slot, and {@link Log#done(ScribeLogger)} publishes it.
+     * The writer is reused by the thread, so nothing is allocated; if it's claimed again before done, its slot
+     * is abandoned first. If the ring is full and policy gives up, the writer builds the message as usual and
+     * done() spills or drops it.<BR>
+     * Prefer {@link #logUsage(CharSequence, Log.Fill)}, which can't leave a slot unpublished.
+     *
+     * @return
+     */
+    public Log.Usage claimUsage() {
+        return claimUsage(null);
+    }
+
+    /**
+     * {@link #claimUsage()} if #key is sampled in, see {@link ScribeLoggerConfig#sample(double)}; if dropped by
+     * admission, the writer still takes fields and done() drops them.
+     *
+     * @param key sampling key, null to skip sampling.
+     * @return
+     */
+    public Log.Usage claimUsage(CharSequence key) {
+        Log.Usage log = usageWriters.get();
+        // an unfinished slot would stall the ring, and this claim with it.
+        log.abandon();
+        if (admission != null && !admission.admit(key)) {
+            log.bind(this, NOT_ADMITTED, null);
+            return log;
+        }
+        long sequence = claim(config.publishPolicy());
+        if (sequence < 0) {
+            log.bind(this, NOT_CLAIMED, null);
+        } else {
+            LogEvent<String> e = ringBuffer.get(sequence);
+            log.bind(this, sequence, e.claim());
+            e.tag(category);
+        }
+        return log;
+    }
+
+    /**
+     * Publish a slot filled by a {@link Log} writer.
+     *
+     * @param sequence
+     */
+    void publish(long sequence) {
+        ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Publish a slot of an unfinished {@link Log} writer as a ping.
+     *
+     * @param sequence
+     */
+    void abandon(long sequence) {
+        PerfCounter.count(PerfConstants.RING_ABANDONED, 1);
+        try {
+            ringBuffer.get(sequence).abandon();
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * Handle #message which can't be put into ring.
+     *
+     * @param message
+     * @return true if spilled.
+     */
+    boolean overflow(CharSequence message) {
+        return overflow(message, config.publishPolicy());
+    }
+
+    /**
+     * Handle #message which can't be put into ring by #policy.
+     *
+     * @param message
+     * @param policy
+     * @return true if spilled.
+     */
+    private boolean overflow(CharSequence message, PublishPolicy policy) {
+        if (message == null) {
+            return false;
+        }
+        if (logSender.spill(category, message)) {
+            return true;
+        }
+        logSender.metrics().dropped(policy == PublishPolicy.BlockWithTimeout ? ScribeMetrics.Drop.PublishTimeout
+                : ScribeMetrics.Drop.RingFull, 1);
+        return false;
+    }
+
+    /**
+     * Claim a sequence, by #policy if ring is full.
+     *
+     * @param policy
+     * @return -1 if not claimed.
+     */
+    private long claim(PublishPolicy policy) {
+        try {
+            return ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            long sequence = waitNext(policy);
+            if (sequence < 0) {
+                PerfCounter.count(PerfConstants.RING_FAIL, 1);
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * @return a sequence, -1 if ring is full.
+     */
+    private long tryClaim() {
+        try {
+            return ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Claim a sequence by #policy after the ring was found full.
+     *
+     * @param policy
+     * @return -1 if not claimed.
+     */
+    private long waitNext(PublishPolicy policy) {
+        long begin = System.nanoTime();
+        switch (policy) {
+            case Block: {
+                long sequence = ringBuffer.next();
+                PerfCounter.count(PerfConstants.RING_BLOCK, 1, elapsedMs(begin));
+                return sequence;
+            }
+            case BlockWithTimeout:
+                return waitFree(begin, config.publishTimeoutMicros(), PerfConstants.RING_BLOCK,
+                        PerfConstants.RING_TIMEOUT);
+            case DropOldest: {
+                // the sender may be stuck in a send, so wait for it briefly and never block.
+                logSender.shed();
+                long sequence = waitFree(begin, DROP_OLDEST_WAIT_MICROS, PerfConstants.RING_DROP_OLDEST, null);
+                // a slot freed otherwise, or given up: don't let the request drop a log later.
+                logSender.unshed();
+                return sequence;
+            }
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Try to claim a sequence until #timeoutMicros after #begin, counting #claimed or #timedOut (if not null).
+     *
+     * @return -1 if not claimed.
+     */
+    private long waitFree(long begin, long timeoutMicros, String claimed, String timedOut) {
+        long deadline = begin + TimeUnit.MICROSECONDS.toNanos(timeoutMicros);
+        long park = 1000;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(park);
+            park = Math.min(park << 1, 100000);
+            try {
+                long sequence = ringBuffer.tryNext();
+                PerfCounter.count(claimed, 1, elapsedMs(begin));
+                return sequence;
+            } catch (InsufficientCapacityException e) {
+                // retry until deadline
+            }
+        }
+        if (timedOut != null) {
+            PerfCounter.count(timedOut, 1, elapsedMs(begin));
+        }
+        return -1;
+    }
+
+    private static long elapsedMs(long beginNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - beginNanos);
+    }
 }
@@ -0,0 +1,612 @@
+/**
+ * ScribeLoggerConfig.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 2:05:13 PM
+ */
+package me.lyso.log.scribe;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-logger tuning of {@link ScribeLogger} and {@link LogSender}.
+ * Usage:
+ * <CODE>
+ * ScribeLogger.get("usage", zkPath, new ScribeLoggerConfig().ringSize(1 << 16).batchSize(4000).adaptiveBatch(100));
+ * </CODE>
+ *
+ * @author leo
+ */
+public class ScribeLoggerConfig {
+    public static final int DEFAULT_RING_SIZE = 1 << 12;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final long DEFAULT_BATCH_INTERVAL_MS = 100;
+    public static final int DEFAULT_SPILL_SEGMENT_SIZE = 1 << 26;
+    public static final int DEFAULT_SPILL_MAX_SEGMENTS = 16;
+    public static final long DEFAULT_SERVER_WATCH_MS = 5000;
+    public static final long DEFAULT_MIN_BACKOFF_MS = 1000;
+    public static final long DEFAULT_MAX_BACKOFF_MS = 60000;
+    public static final long DEFAULT_TRY_LATER_MIN_BACKOFF_MS = 50;
+    public static final long DEFAULT_TRY_LATER_MAX_BACKOFF_MS = 5000;
+    public static final int DEFAULT_TRY_LATER_MAX_RETRIES = 8;
+    public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 4;
+    public static final int DEFAULT_PACK_LEVEL = 1;
+    public static final long DEFAULT_PRODUCER_LINGER_MS = 5;
+
+    private int ringSize = DEFAULT_RING_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long batchIntervalMs = DEFAULT_BATCH_INTERVAL_MS;
+    private long timerPeriodMs = DEFAULT_BATCH_INTERVAL_MS * 5;
+    private boolean adaptiveBatch = false;
+    private int minBatchSize = DEFAULT_BATCH_SIZE;
+    private int maxInFlightBatches = DEFAULT_MAX_IN_FLIGHT_BATCHES;
+    private int encoders = 0;
+    private LoadBalance loadBalance = LoadBalance.LeastOutstanding;
+    private long serverWatchMs = DEFAULT_SERVER_WATCH_MS;
+    private long minBackoffMs = DEFAULT_MIN_BACKOFF_MS;
+    private long maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+    private long tryLaterMinBackoffMs = DEFAULT_TRY_LATER_MIN_BACKOFF_MS;
+    private long tryLaterMaxBackoffMs = DEFAULT_TRY_LATER_MAX_BACKOFF_MS;
+    private int tryLaterMaxRetries = DEFAULT_TRY_LATER_MAX_RETRIES;
+    private PublishPolicy publishPolicy = PublishPolicy.Drop;
+    private long publishTimeoutMicros = 0;
+    private int producerBatchSize = 0;
+    private long producerLingerMs = DEFAULT_PRODUCER_LINGER_MS;
+    private File spillDir;
+    private int spillSegmentSize = DEFAULT_SPILL_SEGMENT_SIZE;
+    private int spillMaxSegments = DEFAULT_SPILL_MAX_SEGMENTS;
+    private int packLevel = 0;
+    private double sampleRate = 1;
+    private double rateLimit = 0;
+    private int rateLimitBurst = 0;
+    private byte[] packDictionary;
+    private ScribeMetrics metrics;
+
+    public ScribeLoggerConfig() {
+    }
+
+    /**
+     * Slots of the ring, must be power of 2.
+     *
+     * @param ringSize
+     * @return
+     */
+    public ScribeLoggerConfig ringSize(int ringSize) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size should be power of 2: " + ringSize);
+        }
+        this.ringSize = ringSize;
+        return this;
+    }
+
+    public int ringSize() {
+        return ringSize;
+    }
+
+    /**
+     * Max logs in one send, also the max batch size in adaptive mode.
+     *
+     * @param batchSize
+     * @return
+     */
+    public ScribeLoggerConfig batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size should be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Max time a log waits in a non-full batch.
+     *
+     * @param batchIntervalMs
+     * @return
+     */
+    public ScribeLoggerConfig batchIntervalMs(long batchIntervalMs) {
+        if (batchIntervalMs <= 0) {
+            throw new IllegalArgumentException("Batch interval should be positive: " + batchIntervalMs);
+        }
+        this.batchIntervalMs = batchIntervalMs;
+        return this;
+    }
+
+    public long batchIntervalMs() {
+        return batchIntervalMs;
+    }
+
+    /**
+     * Period of the timer which pings {@link LogSender} to send non-full batch while no logs coming.
+     *
+     * @param timerPeriodMs
+     * @return
+     */
+    public ScribeLoggerConfig timerPeriodMs(long timerPeriodMs) {
+        if (timerPeriodMs <= 0) {
+            throw new IllegalArgumentException("Timer period should be positive: " + timerPeriodMs);
+        }
+        this.timerPeriodMs = timerPeriodMs;
+        return this;
+    }
+
+    public long timerPeriodMs() {
+        return timerPeriodMs;
+    }
+
+    /**
+     * Let {@link LogSender} adapt batch size between #minBatchSize and {@link #batchSize()}:
+     * grow it when send round-trip dominates, shrink it when batches fill slower than they are sent.
+     *
+     * @param minBatchSize
+     * @return
+     */
+    public ScribeLoggerConfig adaptiveBatch(int minBatchSize) {
+        if (minBatchSize <= 0) {
+            throw new IllegalArgumentException("Min batch size should be positive: " + minBatchSize);
+        }
+        this.adaptiveBatch = true;
+        this.minBatchSize = minBatchSize;
+        return this;
+    }
+
+    public boolean adaptiveBatch() {
+        return adaptiveBatch;
+    }
+
+    public int minBatchSize() {
+        return Math.min(minBatchSize, batchSize);
+    }
+
+    /**
+     * Pipeline sends over connections to all scribe servers with at most #maxInFlightBatches batches waiting
+     * for replies, {@link #DEFAULT_MAX_IN_FLIGHT_BATCHES} by default; batches are written from their UTF-8 bytes
+     * without making a String per log. 0 to wait for each reply of the thrift client before sending the next
+     * batch over one connection, each log is decoded to a String for it.
+     *
+     * @param maxInFlightBatches
+     * @return
+     */
+    public ScribeLoggerConfig maxInFlightBatches(int maxInFlightBatches) {
+        if (maxInFlightBatches < 0) {
+            throw new IllegalArgumentException("Max in-flight batches should not be negative: " + maxInFlightBatches);
+        }
+        this.maxInFlightBatches = maxInFlightBatches;
+        return this;
+    }
+
+    public int maxInFlightBatches() {
+        return maxInFlightBatches;
+    }
+
+    /**
+     * Format logs on #encoders threads in parallel before the sender thread batches and sends them, 0 (the
+     * default) to format on the sender thread. Helps when logs are formatted by the consumer, as
+     * {@link ScribeLogger#logDeferred(DeferredLog)} does.
+     *
+     * @param encoders
+     * @return
+     */
+    public ScribeLoggerConfig encoders(int encoders) {
+        if (encoders < 0) {
+            throw new IllegalArgumentException("Encoders should not be negative: " + encoders);
+        }
+        this.encoders = encoders;
+        return this;
+    }
+
+    public int encoders() {
+        return encoders;
+    }
+
+    /**
+     * How to choose a server for each batch in pipelined mode, default is {@link LoadBalance#LeastOutstanding},
+     * which spreads batches for throughput, out of order; {@link LoadBalance#Sticky} keeps logs of a category in
+     * order on one server.
+     *
+     * @param loadBalance
+     * @return
+     */
+    public ScribeLoggerConfig loadBalance(LoadBalance loadBalance) {
+        if (loadBalance == null) {
+            throw new IllegalArgumentException("Load balance should not be null.");
+        }
+        this.loadBalance = loadBalance;
+        return this;
+    }
+
+    public LoadBalance loadBalance() {
+        return loadBalance;
+    }
+
+    /**
+     * Re-read scribe servers from zookeeper every #serverWatchMs and switch to the new ones once changed,
+     * 0 to re-read only after sends failed.
+     *
+     * @param serverWatchMs
+     * @return
+     */
+    public ScribeLoggerConfig serverWatchMs(long serverWatchMs) {
+        if (serverWatchMs < 0) {
+            throw new IllegalArgumentException("Server watch period should not be negative: " + serverWatchMs);
+        }
+        this.serverWatchMs = serverWatchMs;
+        return this;
+    }
+
+    public long serverWatchMs() {
+        return serverWatchMs;
+    }
+
+    /**
+     * Backoff of reconnecting a dead scribe server, doubles from #minBackoffMs to #maxBackoffMs on each failure.
+     *
+     * @param minBackoffMs
+     * @param maxBackoffMs
+     * @return
+     */
+    public ScribeLoggerConfig reconnectBackoffMs(long minBackoffMs, long maxBackoffMs) {
+        if (minBackoffMs <= 0 || maxBackoffMs < minBackoffMs) {
+            throw new IllegalArgumentException("Invalid reconnect backoff: " + minBackoffMs + "~" + maxBackoffMs);
+        }
+        this.minBackoffMs = minBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        return this;
+    }
+
+    public long minBackoffMs() {
+        return minBackoffMs;
+    }
+
+    public long maxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    /**
+     * Resend a batch answered TRY_LATER after a backoff, which doubles from #minBackoffMs to #maxBackoffMs on
+     * each TRY_LATER and halves on each OK; give up a batch after #maxRetries resends,
+     * {@link #DEFAULT_TRY_LATER_MAX_RETRIES} by default, 0 to never resend. A given-up batch is spilled like a
+     * failed one. A non-pipelined sender waits out the backoff on its own thread, see {@link LogSender}.
+     *
+     * @param minBackoffMs
+     * @param maxBackoffMs
+     * @param maxRetries
+     * @return
+     */
+    public ScribeLoggerConfig tryLater(long minBackoffMs, long maxBackoffMs, int maxRetries) {
+        if (minBackoffMs <= 0 || maxBackoffMs < minBackoffMs) {
+            throw new IllegalArgumentException("Invalid TRY_LATER backoff: " + minBackoffMs + "~" + maxBackoffMs);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("TRY_LATER retries should not be negative: " + maxRetries);
+        }
+        this.tryLaterMinBackoffMs = minBackoffMs;
+        this.tryLaterMaxBackoffMs = maxBackoffMs;
+        this.tryLaterMaxRetries = maxRetries;
+        return this;
+    }
+
+    public long tryLaterMinBackoffMs() {
+        return tryLaterMinBackoffMs;
+    }
+
+    public long tryLaterMaxBackoffMs() {
+        return tryLaterMaxBackoffMs;
+    }
+
+    public int tryLaterMaxRetries() {
+        return tryLaterMaxRetries;
+    }
+
+    /**
+     * What to do when ring is full, default is {@link PublishPolicy#Drop}; {@link PublishPolicy#BlockWithTimeout}
+     * is set by {@link #publishTimeoutMicros(long)}.
+     *
+     * @param publishPolicy
+     * @return
+     */
+    public ScribeLoggerConfig publishPolicy(PublishPolicy publishPolicy) {
+        if (publishPolicy == null) {
+            throw new IllegalArgumentException("Publish policy should not be null.");
+        }
+        if (publishPolicy == PublishPolicy.BlockWithTimeout && publishTimeoutMicros <= 0) {
+            throw new IllegalArgumentException("Set BlockWithTimeout by publishTimeoutMicros(timeout).");
+        }
+        this.publishPolicy = publishPolicy;
+        return this;
+    }
+
+    /**
+     * Use {@link PublishPolicy#BlockWithTimeout}, wait at most #timeoutMicros for a free slot.
+     *
+     * @param timeoutMicros
+     * @return
+     */
+    public ScribeLoggerConfig publishTimeoutMicros(long timeoutMicros) {
+        if (timeoutMicros <= 0) {
+            throw new IllegalArgumentException("Publish timeout should be positive: " + timeoutMicros);
+        }
+        this.publishPolicy = PublishPolicy.BlockWithTimeout;
+        this.publishTimeoutMicros = timeoutMicros;
+        return this;
+    }
+
+    public PublishPolicy publishPolicy() {
+        return publishPolicy;
+    }
+
+    public long publishTimeoutMicros() {
+        return publishTimeoutMicros;
+    }
+
+    /**
+     * Buffer logs of {@link ScribeLogger#logBatched(CharSequence)} per thread, and put each #maxLogs of them
+     * into the ring with one claim and one publish; a thread's logs are flushed by
+     * {@link ScribeLogger#flushBatched()}, or by the timer after #lingerMs.
+     *
+     * @param maxLogs 0 (the default) to put each log into the ring at once, capped at {@link #ringSize()}.
+     * @param lingerMs
+     * @return
+     */
+    public ScribeLoggerConfig producerBatch(int maxLogs, long lingerMs) {
+        if (maxLogs < 0) {
+            throw new IllegalArgumentException("Producer batch should not be negative: " + maxLogs);
+        }
+        if (lingerMs <= 0) {
+            throw new IllegalArgumentException("Producer linger should be positive: " + lingerMs);
+        }
+        this.producerBatchSize = maxLogs;
+        this.producerLingerMs = lingerMs;
+        return this;
+    }
+
+    public int producerBatchSize() {
+        return Math.min(producerBatchSize, ringSize);
+    }
+
+    public long producerLingerMs() {
+        return producerLingerMs;
+    }
+
+    /**
+     * Spill logs failed to send or to put into ring to a {@link SpillJournal} under #dir/category,
+     * using at most {@link #DEFAULT_SPILL_MAX_SEGMENTS} segments of {@link #DEFAULT_SPILL_SEGMENT_SIZE} bytes.
+     *
+     * @param dir
+     * @return
+     */
+    public ScribeLoggerConfig spill(File dir) {
+        return spill(dir, DEFAULT_SPILL_SEGMENT_SIZE, DEFAULT_SPILL_MAX_SEGMENTS);
+    }
+
+    /**
+     * Spill logs failed to send or to put into ring to a {@link SpillJournal} under #dir/category,
+     * disk usage is bounded to #segmentSize * #maxSegments.
+     *
+     * @param dir
+     * @param segmentSize
+     * @param maxSegments
+     * @return
+     */
+    public ScribeLoggerConfig spill(File dir, int segmentSize, int maxSegments) {
+        if (segmentSize <= 0 || maxSegments < 2) {
+            throw new IllegalArgumentException("Invalid spill segments: " + segmentSize + " * " + maxSegments);
+        }
+        this.spillDir = dir;
+        this.spillSegmentSize = segmentSize;
+        this.spillMaxSegments = maxSegments;
+        return this;
+    }
+
+    /**
+     * Pack logs of each category in a batch into one message by a {@link LogPacker} with
+     * {@link #DEFAULT_PACK_LEVEL} and {@link LogPacker#DEFAULT_DICTIONARY}, to be unpacked by
+     * {@link LogUnpacker} on the consumer side.
+     *
+     * @return
+     */
+    public ScribeLoggerConfig pack() {
+        return pack(DEFAULT_PACK_LEVEL, LogPacker.DEFAULT_DICTIONARY);
+    }
+
+    /**
+     * Pack logs of each category in a batch into one message, deflated at #level with #dictionary.
+     *
+     * @param level 1 (fastest) to 9 (smallest), 0 to disable packing.
+     * @param dictionary null for none, consumers must know it to unpack.
+     * @return
+     */
+    public ScribeLoggerConfig pack(int level, byte[] dictionary) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Invalid pack level: " + level);
+        }
+        this.packLevel = level;
+        this.packDictionary = dictionary;
+        return this;
+    }
+
+    /**
+     * @return 0 if packing is disabled.
+     */
+    public int packLevel() {
+        return packLevel;
+    }
+
+    public byte[] packDictionary() {
+        return packDictionary;
+    }
+
+    /**
+     * Report to #metrics instead of a {@link ScribeLoggerMetrics}, one instance per logger; it is registered to
+     * JMX too if it's an MBean.
+     *
+     * @param metrics
+     * @return
+     */
+    public ScribeLoggerConfig metrics(ScribeMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics should not be null.");
+        }
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @return null for a new {@link ScribeLoggerMetrics} of each logger.
+     */
+    public ScribeMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Keep only #sampleRate of logs by hash of their keys, see {@link Admission}; logs without a key are kept.
+     *
+     * @param sampleRate in [0, 1], 1 (the default) to keep all.
+     * @return
+     */
+    public ScribeLoggerConfig sample(double sampleRate) {
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("Sample rate should be in [0, 1]: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    public double sampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Admit at most #logsPerSecond logs, with bursts of #burst, see {@link Admission}.
+     *
+     * @param logsPerSecond 0 for no limit.
+     * @param burst
+     * @return
+     */
+    public ScribeLoggerConfig rateLimit(double logsPerSecond, int burst) {
+        if (!(logsPerSecond >= 0) || logsPerSecond > 0 && burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit: " + logsPerSecond + "/s, burst " + burst);
+        }
+        this.rateLimit = logsPerSecond;
+        this.rateLimitBurst = burst;
+        return this;
+    }
+
+    /**
+     * @return 0 if no limit.
+     */
+    public double rateLimit() {
+        return rateLimit;
+    }
+
+    public int rateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    /**
+     * @return null if spill is disabled.
+     */
+    public File spillDir() {
+        return spillDir;
+    }
+
+    public int spillSegmentSize() {
+        return spillSegmentSize;
+    }
+
+    public int spillMaxSegments() {
+        return spillMaxSegments;
+    }
+
+    /**
+     * Names of settings of the ring, sender and connections which differ from #other; sampling and rate limit
+     * are per category and not compared.
+     *
+     * @param other
+     * @return empty if the same transport would be built.
+     */
+    List<String> transportDiff(ScribeLoggerConfig other) {
+        List<String> diff = new ArrayList<String>();
+        if (ringSize != other.ringSize) {
+            diff.add("ringSize");
+        }
+        if (batchSize != other.batchSize) {
+            diff.add("batchSize");
+        }
+        if (batchIntervalMs != other.batchIntervalMs) {
+            diff.add("batchIntervalMs");
+        }
+        if (timerPeriodMs != other.timerPeriodMs) {
+            diff.add("timerPeriodMs");
+        }
+        if (adaptiveBatch != other.adaptiveBatch || minBatchSize != other.minBatchSize) {
+            diff.add("adaptiveBatch");
+        }
+        if (maxInFlightBatches != other.maxInFlightBatches) {
+            diff.add("maxInFlightBatches");
+        }
+        if (encoders != other.encoders) {
+            diff.add("encoders");
+        }
+        if (loadBalance != other.loadBalance) {
+            diff.add("loadBalance");
+        }
+        if (serverWatchMs != other.serverWatchMs) {
+            diff.add("serverWatchMs");
+        }
+        if (minBackoffMs != other.minBackoffMs || maxBackoffMs != other.maxBackoffMs) {
+            diff.add("reconnectBackoffMs");
+        }
+        if (tryLaterMinBackoffMs != other.tryLaterMinBackoffMs || tryLaterMaxBackoffMs != other.tryLaterMaxBackoffMs
+                || tryLaterMaxRetries != other.tryLaterMaxRetries) {
+            diff.add("tryLater");
+        }
+        if (publishPolicy != other.publishPolicy || publishTimeoutMicros != other.publishTimeoutMicros) {
+            diff.add("publishPolicy");
+        }
+        if (producerBatchSize != other.producerBatchSize || producerLingerMs != other.producerLingerMs) {
+            diff.add("producerBatch");
+        }
+        if (spillDir == null ? other.spillDir != null : !spillDir.equals(other.spillDir)
+                || spillSegmentSize != other.spillSegmentSize || spillMaxSegments != other.spillMaxSegments) {
+            diff.add("spill");
+        }
+        if (packLevel != other.packLevel || !Arrays.equals(packDictionary, other.packDictionary)) {
+            diff.add("pack");
+        }
+        if (metrics != other.metrics) {
+            diff.add("metrics");
+        }
+        return diff;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("ScribeLoggerConfig{ringSize=").append(ringSize)
+                .append(",batchSize=").append(batchSize)
+                .append(",batchIntervalMs=").append(batchIntervalMs)
+                .append(",timerPeriodMs=").append(timerPeriodMs)
+                .append(",adaptiveBatch=").append(adaptiveBatch)
+                .append(",minBatchSize=").append(minBatchSize)
+                .append(",maxInFlightBatches=").append(maxInFlightBatches)
+                .append(",encoders=").append(encoders)
+                .append(",loadBalance=").append(loadBalance)
+                .append(",serverWatchMs=").append(serverWatchMs)
+                .append(",reconnectBackoffMs=").append(minBackoffMs).append('~').append(maxBackoffMs)
+                .append(",tryLater=").append(tryLaterMinBackoffMs).append('~').append(tryLaterMaxBackoffMs)
+                .append('/').append(tryLaterMaxRetries)
+                .append(",publishPolicy=").append(publishPolicy)
+                .append(",publishTimeoutMicros=").append(publishTimeoutMicros)
+                .append(",producerBatch=").append(producerBatchSize).append('/').append(producerLingerMs)
+                .append(",spillDir=").append(spillDir)
+                .append(",packLevel=").append(packLevel)
+                .append(",sampleRate=").append(sampleRate)
+                .append(",rateLimit=").append(rateLimit).append('/').append(rateLimitBurst).append('}').toString();
+    }
+}
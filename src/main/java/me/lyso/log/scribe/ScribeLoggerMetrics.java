@@ -0,0 +1,274 @@
+/**
+ * ScribeLoggerMetrics.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:05:52 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Default {@link ScribeMetrics}: counters and {@link PerfHistogram} cells updated by atomic adds, nothing
+ * allocated on the way; read over JMX as {@link ScribeLoggerMetricsMBean}, registered by {@link ScribeLogger}.<BR>
+ * Counters are since start. Histograms are windowed: on the first read after a window of {@link #windowMs()} ends,
+ * the live cells are taken and reset into a snapshot, and percentiles are read from the snapshot until the next
+ * window ends; a window not read is merged into the next one.
+ *
+ * @author leo
+ */
+public class ScribeLoggerMetrics implements ScribeMetrics, ScribeLoggerMetricsMBean {
+    public static final long DEFAULT_WINDOW_MS = 60000;
+    private static final Drop[] DROPS = Drop.values();
+
+    private volatile ScribeLogger logger;
+    private final AtomicLongArray drops = new AtomicLongArray(DROPS.length);
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong logs = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong acks = new AtomicLong();
+    private final AtomicLongArray ackLatency = new AtomicLongArray(PerfHistogram.BUCKETS);
+    private final AtomicLongArray batchSizes = new AtomicLongArray(PerfHistogram.BUCKETS);
+    private long rateBytes = 0;
+    private long rateNanos = System.nanoTime();
+    private double bytesPerSecond = 0;
+    private final long windowMs;
+    private long windowStart = System.nanoTime();
+    /** histograms of the last full window */
+    private PerfHistogram lastAckLatency = PerfHistogram.EMPTY;
+    private PerfHistogram lastBatchSizes = PerfHistogram.EMPTY;
+
+    public ScribeLoggerMetrics() {
+        this(DEFAULT_WINDOW_MS);
+    }
+
+    /**
+     * @param windowMs length of histogram windows.
+     */
+    public ScribeLoggerMetrics(long windowMs) {
+        if (windowMs <= 0) {
+            throw new IllegalArgumentException("Histogram window should be positive: " + windowMs);
+        }
+        this.windowMs = windowMs;
+    }
+
+    public long windowMs() {
+        return windowMs;
+    }
+
+    @Override
+    public void bind(ScribeLogger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void dropped(Drop reason, int n) {
+        drops.getAndAdd(reason.ordinal(), n);
+    }
+
+    @Override
+    public void batchSent(int n, int size) {
+        batches.incrementAndGet();
+        logs.getAndAdd(n);
+        bytes.getAndAdd(size);
+        PerfHistogram.record(batchSizes, 0, n);
+    }
+
+    @Override
+    public void acked(long enqueueToAckNanos) {
+        acks.incrementAndGet();
+        PerfHistogram.record(ackLatency, 0, TimeUnit.NANOSECONDS.toMicros(enqueueToAckNanos));
+    }
+
+    public long dropped(Drop reason) {
+        return drops.get(reason.ordinal());
+    }
+
+    @Override
+    public int getRingSize() {
+        ScribeLogger l = logger;
+        return l == null ? 0 : l.ringSize();
+    }
+
+    @Override
+    public long getRingRemaining() {
+        ScribeLogger l = logger;
+        return l == null ? 0 : l.ringRemaining();
+    }
+
+    @Override
+    public double getRingOccupancy() {
+        ScribeLogger l = logger;
+        return l == null ? 0 : 1 - (double) l.ringRemaining() / l.ringSize();
+    }
+
+    @Override
+    public int getPendingRetries() {
+        ScribeLogger l = logger;
+        return l == null ? 0 : l.pendingRetries();
+    }
+
+    @Override
+    public long getBatchesSent() {
+        return batches.get();
+    }
+
+    @Override
+    public long getLogsSent() {
+        return logs.get();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytes.get();
+    }
+
+    @Override
+    public synchronized double getBytesPerSecond() {
+        long now = System.nanoTime();
+        if (now - rateNanos >= TimeUnit.SECONDS.toNanos(1)) {
+            long b = bytes.get();
+            bytesPerSecond = (b - rateBytes) * 1e9 / (now - rateNanos);
+            rateBytes = b;
+            rateNanos = now;
+        }
+        return bytesPerSecond;
+    }
+
+    @Override
+    public long getLogsAcked() {
+        return acks.get();
+    }
+
+    @Override
+    public long getAckLatencyP50Micros() {
+        return ackLatency().percentile(50);
+    }
+
+    @Override
+    public long getAckLatencyP99Micros() {
+        return ackLatency().percentile(99);
+    }
+
+    @Override
+    public long getAckLatencyP999Micros() {
+        return ackLatency().percentile(99.9);
+    }
+
+    @Override
+    public long getAckLatencyMaxMicros() {
+        return ackLatency().percentile(100);
+    }
+
+    @Override
+    public long getBatchSizeP50() {
+        return batchSizes().percentile(50);
+    }
+
+    @Override
+    public long getBatchSizeP99() {
+        return batchSizes().percentile(99);
+    }
+
+    @Override
+    public long getBatchSizeMax() {
+        return batchSizes().percentile(100);
+    }
+
+    /**
+     * Publish-to-ack latency in micros of logs acked in the current window, read without taking the window.
+     *
+     * @return
+     */
+    PerfHistogram liveAckLatency() {
+        return PerfHistogram.copy(ackLatency, 0);
+    }
+
+    private synchronized PerfHistogram ackLatency() {
+        rotate();
+        return lastAckLatency;
+    }
+
+    private synchronized PerfHistogram batchSizes() {
+        rotate();
+        return lastBatchSizes;
+    }
+
+    /**
+     * Take live histograms as the last window if a window ended since the last rotation.
+     */
+    private void rotate() {
+        long now = System.nanoTime();
+        if (now - windowStart < TimeUnit.MILLISECONDS.toNanos(windowMs)) {
+            return;
+        }
+        lastAckLatency = PerfHistogram.snapshot(ackLatency, 0);
+        lastBatchSizes = PerfHistogram.snapshot(batchSizes, 0);
+        windowStart = now;
+    }
+
+    @Override
+    public long getDroppedRingFull() {
+        return dropped(Drop.RingFull);
+    }
+
+    @Override
+    public long getDroppedPublishTimeout() {
+        return dropped(Drop.PublishTimeout);
+    }
+
+    @Override
+    public long getDroppedDropOldest() {
+        return dropped(Drop.DropOldest);
+    }
+
+    @Override
+    public long getDroppedSampled() {
+        return dropped(Drop.Sampled);
+    }
+
+    @Override
+    public long getDroppedRateLimited() {
+        return dropped(Drop.RateLimited);
+    }
+
+    @Override
+    public long getDroppedSendFailed() {
+        return dropped(Drop.SendFailed);
+    }
+
+    @Override
+    public long getDroppedGivenUp() {
+        return dropped(Drop.GivenUp);
+    }
+
+    @Override
+    public synchronized void resetHistograms() {
+        for (int i = 0; i < PerfHistogram.BUCKETS; i++) {
+            ackLatency.set(i, 0);
+            batchSizes.set(i, 0);
+        }
+        lastAckLatency = PerfHistogram.EMPTY;
+        lastBatchSizes = PerfHistogram.EMPTY;
+        windowStart = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ScribeLoggerMetrics{ring=").append(getRingSize() - getRingRemaining())
+                .append('/').append(getRingSize())
+                .append(",batches=").append(getBatchesSent())
+                .append(",logs=").append(getLogsSent())
+                .append(",bytes=").append(getBytesSent())
+                .append(",acked=").append(getLogsAcked())
+                .append(",ackP50=").append(getAckLatencyP50Micros())
+                .append("us,ackP99=").append(getAckLatencyP99Micros())
+                .append("us,batchP50=").append(getBatchSizeP50());
+        for (Drop d : DROPS) {
+            sb.append(",drop").append(d).append('=').append(dropped(d));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * ScribeLoggerMetricsMBean.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:48:09 AM
+ */
+package me.lyso.log.scribe;
+
+/**
+ * JMX view of {@link ScribeLoggerMetrics}. Percentiles are over logs and batches of the last full window of
+ * {@link ScribeLoggerMetrics#windowMs()}, so they follow current load; latencies are in micros.
+ *
+ * @author leo
+ */
+public interface ScribeLoggerMetricsMBean {
+    int getRingSize();
+
+    long getRingRemaining();
+
+    /**
+     * Used fraction of ring, 0~1.
+     */
+    double getRingOccupancy();
+
+    int getPendingRetries();
+
+    long getBatchesSent();
+
+    long getLogsSent();
+
+    long getBytesSent();
+
+    /**
+     * Bytes sent per second since the previous read, read at most once a second.
+     */
+    double getBytesPerSecond();
+
+    long getLogsAcked();
+
+    long getAckLatencyP50Micros();
+
+    long getAckLatencyP99Micros();
+
+    long getAckLatencyP999Micros();
+
+    long getAckLatencyMaxMicros();
+
+    long getBatchSizeP50();
+
+    long getBatchSizeP99();
+
+    long getBatchSizeMax();
+
+    long getDroppedRingFull();
+
+    long getDroppedPublishTimeout();
+
+    long getDroppedDropOldest();
+
+    long getDroppedSampled();
+
+    long getDroppedRateLimited();
+
+    long getDroppedSendFailed();
+
+    long getDroppedGivenUp();
+
+    void resetHistograms();
+}
@@ -0,0 +1,63 @@
+/**
+ * ScribeMetrics.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:20:36 AM
+ */
+package me.lyso.log.scribe;
+
+/**
+ * Sink of what happens to logs of a {@link ScribeLogger}, beyond the counters of PerfCounter.<BR>
+ * The default is {@link ScribeLoggerMetrics}, readable over JMX; replace it by
+ * {@link ScribeLoggerConfig#metrics(ScribeMetrics)}, one instance per logger. Methods are called on publishing,
+ * sender and reply-reader threads for every log or batch, so they must be thread-safe, cheap and allocate
+ * nothing.
+ *
+ * @author leo
+ */
+public interface ScribeMetrics {
+    /**
+     * Why logs are lost.
+     */
+    enum Drop {
+        /** ring full with {@link PublishPolicy#Drop}, and not spilled */
+        RingFull,
+        /** ring still full after {@link PublishPolicy#BlockWithTimeout}, and not spilled */
+        PublishTimeout,
+        /** oldest log in ring discarded by {@link PublishPolicy#DropOldest}, and not spilled */
+        DropOldest,
+        /** sampled out by {@link Admission} */
+        Sampled,
+        /** over rate limit of {@link Admission} */
+        RateLimited,
+        /** batch failed to send, and not spilled */
+        SendFailed,
+        /** batch answered TRY_LATER over max retries, and not spilled */
+        GivenUp,
+    }
+
+    /**
+     * Called once the logger owning the ring is built, to read gauges like
+     * {@link ScribeLogger#ringRemaining()} and {@link ScribeLogger#pendingRetries()} from.
+     *
+     * @param logger
+     */
+    void bind(ScribeLogger logger);
+
+    void dropped(Drop reason, int logs);
+
+    /**
+     * A batch is sent for the first time.
+     *
+     * @param logs
+     * @param bytes of messages on wire, after packing.
+     */
+    void batchSent(int logs, int bytes);
+
+    /**
+     * A log is acked by scribe.
+     *
+     * @param enqueueToAckNanos from publishing into ring to reply read.
+     */
+    void acked(long enqueueToAckNanos);
+}
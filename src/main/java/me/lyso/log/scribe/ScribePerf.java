@@ -8,198 +8,367 @@
 
 package me.lyso.log.scribe;
 
-import me.lyso.mampa.actor.*;
-import me.lyso.mampa.actor.router.OneActorRouter;
-import me.lyso.mampa.actor.router.OneFsmRouter;
-import me.lyso.mampa.event.IAction;
-import me.lyso.mampa.event.IEventType;
-import me.lyso.mampa.fsm.AbstractRuleSet;
-import me.lyso.mampa.fsm.IFsmType;
-import me.lyso.mampa.fsm.IFsmType.DefaultFsmType;
-import me.lyso.mampa.fsm.IStateType;
-import me.lyso.mampa.fsm.State;
+import me.lyso.mampa.actor.IActorGroup;
 import org.apache.commons.lang.time.FastDateFormat;
-import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * Mampa actor for scribe-perfcounter.
+ * Scribe-perfcounter of each chid, dumped to {@link #perfLogger} at the end of each window, 15 minutes by default.
  * Hold only 1 instance in a process.
+ * <ol>
+ * <li>1. counters of a chid are striped like LongAdder: a thread adds to the cells of its stripe, each stripe
+ * on its own cache line, so {@link #inc(int, ScribePerfName)} is one uncontended atomic add, allocates
+ * nothing and never loses a count;
+ * <li>2. {@link #record(int, ScribePerfHisto, long)} counts a value in log-linear buckets of {@link PerfHistogram};
+ * <li>3. chids are in a copy-on-write array, looked up without lock, a new chid is added under lock;
+ * <li>4. every tick (gcd of the windows) a scheduler takes and resets the live cells into a ring of tick buckets
+ * long enough for the longest window; a window ending at that tick is summed from its buckets and logged as
+ * "NAME_PER_{window},host,start,end,count,chid,instance", histograms with ",p50,p90,p99,p999,max" appended, only
+ * if they have values in the window;
+ * <li>5. a late tick also closes the ticks it missed, so no window is skipped; counts of the missed ticks go into
+ * the first of them.
+ * </ol>
  *
  * @author leo
  */
 public class ScribePerf {
     private static final FastDateFormat TimeFormat = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss");
     private static final Logger logger = LoggerFactory.getLogger(ScribePerf.class);
-    private static final long DumpDelayInMins = 15;
-    private static final long MillisPerMin = 1000 * 60L;
-    private static final long MillisPerHour = MillisPerMin * 60L;
+    /** windows in seconds if not given */
+    static final int[] DefaultWindows = {15 * 60};
+    private static final int MaxTicks = 24 * 3600;
+    private static final double[] Percentiles = {50, 90, 99, 99.9};
+    /** lines of a chid are dumped in this order, as before windows */
+    private static final ScribePerfName[] DumpOrder = {ScribePerfName.Connect, ScribePerfName.LoginSucc,
+            ScribePerfName.LoginFail, ScribePerfName.Send};
+    private static final int NAMES = ScribePerfName.values().length;
+    private static final int HISTOS = ScribePerfHisto.values().length;
+    /** longs per stripe, a cache line */
+    private static final int PAD = 8;
+    private static final int STRIPES = Math.min(64,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1);
 
     private final ScribeLogger perfLogger;
-    private final ActorGroup<String, Integer> actor;
     private final IActorGroup xmqActor;
     private final String host;
     private final String instanceName;
+    private final int[] windows;
+    private final String[] suffixes;
+    private final long tickMs;
+    private final int ticks;
+    private final ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(
+            new SenderThreadFactory("scribe-perf"));
+    private volatile Counters[] counters = new Counters[0];
+    private final long[] onlines;
+    /** end of the last tick closed, 0 before the first */
+    private long lastTick = 0;
 
+    /**
+     * @param perfLogger
+     * @param xmqActor for online count, null to skip it.
+     * @param host
+     * @param instanceName
+     */
     public ScribePerf(ScribeLogger perfLogger, IActorGroup xmqActor, String host, String instanceName) {
+        this(perfLogger, xmqActor, host, instanceName, DefaultWindows);
+    }
+
+    /**
+     * @param perfLogger
+     * @param xmqActor for online count, null to skip it.
+     * @param host
+     * @param instanceName
+     * @param windowSecs length of each window in seconds, like 10, 60, 900; windows are aligned to the epoch.
+     */
+    public ScribePerf(ScribeLogger perfLogger, IActorGroup xmqActor, String host, String instanceName,
+            int... windowSecs) {
+        this(perfLogger, xmqActor, host, instanceName, true, windowSecs);
+    }
+
+    ScribePerf(ScribeLogger perfLogger, IActorGroup xmqActor, String host, String instanceName, boolean schedule,
+            int... windowSecs) {
+        if (windowSecs == null || windowSecs.length == 0) {
+            throw new IllegalArgumentException("No window.");
+        }
+        int[] windows = windowSecs.clone();
+        Arrays.sort(windows);
+        if (windows[0] <= 0) {
+            throw new IllegalArgumentException("Window should be positive: " + windows[0]);
+        }
+        int tick = windows[0];
+        for (int w : windows) {
+            tick = gcd(tick, w);
+        }
+        if (windows[windows.length - 1] / tick > MaxTicks) {
+            throw new IllegalArgumentException("Too many ticks for windows: " + Arrays.toString(windows));
+        }
         this.perfLogger = perfLogger;
         this.xmqActor = xmqActor;
         this.host = host;
         this.instanceName = instanceName;
-        this.actor = new ActorGroup<String, Integer>(ActorConfig.builder(
-                "Scribe-Perf", OneActorRouter.instance(), new OneFsmRouter<Integer>(), new RuleSet())
-                .ringSizesPerActor(new int[]{1 << 14}).priorityConfigs(new int[]{1024})
-                .actorNumber(1).initialFsmCount(1).maxFsmCount(1).build()).start();
+        this.windows = windows;
+        this.suffixes = new String[windows.length];
+        for (int i = 0; i < windows.length; i++) {
+            int w = windows[i];
+            suffixes[i] = w % 3600 == 0 ? "_PER_" + w / 3600 + "_HOUR"
+                    : w % 60 == 0 ? "_PER_" + w / 60 + "_MIN" : "_PER_" + w + "_SEC";
+        }
+        this.tickMs = tick * 1000L;
+        this.ticks = windows[windows.length - 1] / tick;
+        this.onlines = new long[ticks];
+        logger.info("Scribe Perf windows {}s, tick {}s.", Arrays.toString(windows), tick);
+        if (schedule) {
+            scheduleNextTick();
+        }
     }
 
-    public static enum ScribePerfName {
-        LoginSucc, LoginFail, Send, Connect,
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
     }
 
-    private class Value {
-        private int chid;
-        private int loginSucc;
-        private int loginFail;
-        private int send;
-        private int connectRetry;
-        private String start;
-        private String end;
+    public static enum ScribePerfName {
+        LoginSucc("LOGIN_SUCC"), LoginFail("LOGIN_FAIL"), Send("MSG"), Connect("CONNECT_TRY");
 
-        public Value(int chid) {
-            this.chid = chid;
-        }
+        private final String line;
 
-        @Override
-        public String toString() {
-            return ToStringBuilder.reflectionToString(this);
+        private ScribePerfName(String line) {
+            this.line = line;
         }
+    }
 
-        public void inc(ScribePerfName name) {
-            int v = -1;
-            switch(name) {
-                case LoginSucc: v = loginSucc ++;   break;
-                case LoginFail: v = loginFail ++;   break;
-                case Send:      v = send++;         break;
-                case Connect:   v = connectRetry++; break;
-                default: break;
-            }
-            logger.debug("Inc {} to {}", name, v);
-        }
+    /**
+     * Values counted by {@link ScribePerf#record(int, ScribePerfHisto, long)}.
+     */
+    public static enum ScribePerfHisto {
+        LoginTime("LOGIN_TIME_US"), SendTime("SEND_TIME_US");
 
-        public Value dump() {
-            StringBuilder sb = new StringBuilder();
-            String interval = sb.append(host).append(',').append(start).append(',').append(end).append(',').toString();
-            sb.setLength(0);
-            sb.append("CONNECT_TRY_PER_15_MIN,").append(interval).append(connectRetry).append(",0");
-            perfLogger.log(sb.toString());
-            
-            sb.setLength(0);
-            String tail = sb.append(',').append(chid).append(',').append(instanceName).toString();
-            
-            sb.setLength(0);
-            String loginSuccLog = sb.append("LOGIN_SUCC_PER_15_MIN,").append(interval).append(loginSucc).append(tail).toString();
-            perfLogger.log(loginSuccLog);
+        private final String line;
 
-            sb.setLength(0);
-            String loginFailLog = sb.append("LOGIN_FAIL_PER_15_MIN,").append(interval).append(loginFail).append(tail).toString();
-            perfLogger.log(loginFailLog);
+        private ScribePerfHisto(String line) {
+            this.line = line;
+        }
+    }
 
-            sb.setLength(0);
-            String msgLog = sb.append("MSG_PER_15_MIN,").append(interval).append(send).append(tail).toString();
-            perfLogger.log(msgLog);
+    /**
+     * Striped live counters and histograms of one chid, and their tick buckets.
+     */
+    private static class Counters {
+        private final int chid;
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+        private final AtomicLongArray histos = new AtomicLongArray(HISTOS * PerfHistogram.BUCKETS);
+        /** end of the tick in each bucket, a bucket of another tick is stale */
+        private final long[] tickEnds;
+        private final long[][] tickCounts;
+        private final PerfHistogram[][] tickHistos;
 
-            sb.setLength(0);
-            String onlineLog = sb.append("ONLINE_PER_15_MIN,").append(interval).append(xmqActor.fsmSize()).append(tail).toString();
-            perfLogger.log(onlineLog);
-            
-            logger.info("Dumped {}", loginSuccLog);
-            logger.info("Dumped {}", loginFailLog);
-            logger.info("Dumped {}", msgLog);
-            logger.info("Dumped {}", onlineLog);
-            return this;
+        private Counters(int chid, int ticks) {
+            this.chid = chid;
+            this.tickEnds = new long[ticks];
+            this.tickCounts = new long[ticks][NAMES];
+            this.tickHistos = new PerfHistogram[ticks][HISTOS];
         }
 
-        public Value start(String start) {
-            this.start = start;
-            return this;
+        private void inc(ScribePerfName name) {
+            int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            cells.getAndIncrement(stripe * PAD + name.ordinal());
         }
 
-        public Value next(String next) {
-            this.end = next;
-            return this;
+        /**
+         * Take and reset live counts into bucket #slot of the tick ending at #end.
+         */
+        private void tick(int slot, long end) {
+            long[] sums = tickCounts[slot];
+            Arrays.fill(sums, 0);
+            for (int s = 0; s < STRIPES; s++) {
+                for (int n = 0; n < NAMES; n++) {
+                    sums[n] += cells.getAndSet(s * PAD + n, 0);
+                }
+            }
+            for (int h = 0; h < HISTOS; h++) {
+                tickHistos[slot][h] = PerfHistogram.snapshot(histos, h * PerfHistogram.BUCKETS);
+            }
+            tickEnds[slot] = end;
         }
     }
 
-    private static enum StateType implements IStateType {
-        Running, Stop,
+    /**
+     * Count #name of #chid.
+     *
+     * @param chid
+     * @param name
+     * @return always true, kept for callers of the actor version.
+     */
+    public boolean inc(int chid, ScribePerfName name) {
+        counters(chid).inc(name);
+        return true;
     }
 
-    private static enum EventType implements IEventType {
-        Inc, Dump, Timeout
+    /**
+     * Count #value of #name of #chid into its histogram, like a login duration or send latency.
+     *
+     * @param chid
+     * @param name
+     * @param micros
+     */
+    public void record(int chid, ScribePerfHisto name, long micros) {
+        PerfHistogram.record(counters(chid).histos, name.ordinal() * PerfHistogram.BUCKETS, micros);
     }
 
-    public boolean inc(int chid, ScribePerfName name) {
-        return actor.tell(null, DefaultFsmType.One, chid, EventType.Inc, name);
+    private Counters counters(int chid) {
+        for (Counters c : counters) {
+            if (c.chid == chid) {
+                return c;
+            }
+        }
+        synchronized (this) {
+            Counters[] cs = counters;
+            for (Counters c : cs) {
+                if (c.chid == chid) {
+                    return c;
+                }
+            }
+            Counters c = new Counters(chid, ticks);
+            cs = Arrays.copyOf(cs, cs.length + 1);
+            cs[cs.length - 1] = c;
+            counters = cs;
+            logger.info("Init Scribe Perf counters of chid {}", chid);
+            return c;
+        }
     }
 
-    private class RuleSet extends AbstractRuleSet<Integer, Value> {
-        public RuleSet() {
-            super(StateType.values().length, EventType.values().length, EventType.Timeout, StateType.Stop);
-        }
-
-        @Override
-        public boolean init(State<Value> state, Integer chid, IEventType _etype, Object _data, IActor<Integer> master) {
-            logger.info("Init Scribe Perf FSM: by {} {}", _etype, _data);
-            state.type(StateType.Running).value(new Value(chid));
-            scheduleNextDump(state.value(), chid, master);
-            return true;
-        }
-
-        private void scheduleNextDump(Value value, int chid, IActor<Integer> master) {
-            long    now = System.currentTimeMillis(), mins = now / MillisPerMin, hours = now / MillisPerHour,
-                    start = (mins % 60 / DumpDelayInMins * DumpDelayInMins + hours * 60L) * MillisPerMin,
-                    next = start + DumpDelayInMins * MillisPerMin,
-                    delay = next - now;
-            value.start(TimeFormat.format(start)).next(TimeFormat.format(next));
-            logger.info("Schedule next dump: now: {}, start: {}, next: {}, delay: {}:{}",
-                    now, value.start, value.end, delay / 1000 / 60, delay / 1000 % 60);
-            master.dealAfter(DefaultFsmType.One, chid, EventType.Dump, null, delay, TimeUnit.MILLISECONDS);
-        }
-
-        @Override
-        protected void buildRules() {
-            addRule(EventType.Inc, new IAction<Integer, Value>() {
-                @Override
-                public NextState exec(State<Value> state, IFsmType fsmType, Integer chid, IEventType etype, Object data,
-                        IActor<Integer> master) throws Exception {
-                    state.value().inc((ScribePerfName) data);
-                    return nextState(master, state.type());
+    /**
+     * Schedule tick on the next tick boundary.
+     */
+    private void scheduleNextTick() {
+        long now = System.currentTimeMillis();
+        final long next = (now / tickMs + 1) * tickMs;
+        logger.debug("Schedule next tick: now: {}, next: {}", now, next);
+        dumper.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    catchUp(System.currentTimeMillis());
+                } catch (Throwable t) {
+                    logger.error("^#Red.scribe-perf: dump failed", t);
                 }
-            });
-
-            addRule(EventType.Dump, new IAction<Integer, Value>() {
-                @Override
-                public NextState exec(State<Value> state, IFsmType fsmType, Integer chid, IEventType etype, Object data,
-                        IActor<Integer> master) throws Exception {
-                    scheduleNextDump(state.value().dump(), chid, master);
-                    return nextState(master, state.type());
-                }
-            });
+                scheduleNextTick();
+            }
+        }, next - now, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Close all ticks ended by #now since the last one closed, at most the ticks of the longest window.
+     *
+     * @param now
+     */
+    synchronized void catchUp(long now) {
+        long end = now / tickMs * tickMs;
+        long from = lastTick == 0 ? end : Math.max(lastTick + tickMs, end - (ticks - 1) * tickMs);
+        if (from < end) {
+            logger.warn("^#Red.scribe-perf: late tick, closing {} missed ticks.", (end - from) / tickMs);
         }
+        for (long t = from; t <= end; t += tickMs) {
+            tick(t);
+        }
+    }
 
-        @Override
-        protected IAction<Integer, Value> buildDefaultRule() {
-            return new IAction<Integer, Value>() {
-                @Override
-                public NextState exec(State<Value> state, IFsmType fsmType, Integer chid, IEventType etype, Object data,
-                        IActor<Integer> master) throws Exception {
-                    logger.warn("Invalid Scribe Perf Event on state: {} : {}/{}", state.type(), etype, data);
-                    return nextState(master, state.type());
+    /**
+     * Close the tick ending at #end, and dump windows ending at it.
+     *
+     * @param end millis on a tick boundary.
+     */
+    synchronized void tick(long end) {
+        int slot = (int) (end / tickMs % ticks);
+        for (Counters c : counters) {
+            c.tick(slot, end);
+        }
+        if (xmqActor != null) {
+            onlines[slot] = xmqActor.fsmSize();
+        }
+        lastTick = end;
+        for (int i = 0; i < windows.length; i++) {
+            if (end % (windows[i] * 1000L) == 0) {
+                dump(end - windows[i] * 1000L, end, suffixes[i]);
+            }
+        }
+    }
+
+    /**
+     * Sum tick buckets in (#start, #end] of all chids, and log them.
+     */
+    private void dump(long start, long end, String suffix) {
+        StringBuilder sb = new StringBuilder();
+        String interval = sb.append(',').append(host).append(',').append(TimeFormat.format(start)).append(',')
+                .append(TimeFormat.format(end)).append(',').toString();
+        long[] sums = new long[NAMES];
+        long[] dense = new long[PerfHistogram.BUCKETS];
+        for (Counters c : counters) {
+            Arrays.fill(sums, 0);
+            for (int s = 0; s < ticks; s++) {
+                if (c.tickEnds[s] > start && c.tickEnds[s] <= end) {
+                    for (int n = 0; n < NAMES; n++) {
+                        sums[n] += c.tickCounts[s][n];
+                    }
+                }
+            }
+            sb.setLength(0);
+            String tail = sb.append(',').append(c.chid).append(',').append(instanceName).toString();
+            for (ScribePerfName name : DumpOrder) {
+                sb.setLength(0);
+                sb.append(name.line).append(suffix).append(interval).append(sums[name.ordinal()]);
+                // connect lines were never per chid, nor logged here.
+                if (name == ScribePerfName.Connect) {
+                    perfLogger.log(sb.append(",0").toString());
+                    continue;
+                }
+                String line = sb.append(tail).toString();
+                perfLogger.log(line);
+                logger.info("Dumped {}", line);
+            }
+            for (ScribePerfHisto name : ScribePerfHisto.values()) {
+                Arrays.fill(dense, 0);
+                long total = 0;
+                for (int s = 0; s < ticks; s++) {
+                    if (c.tickEnds[s] > start && c.tickEnds[s] <= end) {
+                        PerfHistogram h = c.tickHistos[s][name.ordinal()];
+                        h.addTo(dense);
+                        total += h.total();
+                    }
+                }
+                if (total == 0) {
+                    continue;
                 }
-            };
+                sb.setLength(0);
+                sb.append(name.line).append(suffix).append(interval).append(total).append(tail);
+                for (double p : Percentiles) {
+                    sb.append(',').append(PerfHistogram.percentile(dense, total, p));
+                }
+                String line = sb.append(',').append(PerfHistogram.percentile(dense, total, 100)).toString();
+                perfLogger.log(line);
+                logger.info("Dumped {}", line);
+            }
+            if (xmqActor != null) {
+                // a gauge: the last one in the window.
+                sb.setLength(0);
+                String line = sb.append("ONLINE").append(suffix).append(interval).append(onlines[(int) (end / tickMs
+                        % ticks)]).append(tail).toString();
+                perfLogger.log(line);
+                logger.info("Dumped {}", line);
+            }
         }
     }
+
+    /**
+     * Stop dumping.
+     */
+    public void stop() {
+        dumper.shutdown();
+    }
 }
@@ -0,0 +1,130 @@
+/**
+ * ScribeServerWatcher.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 6:20:48 PM
+ */
+package me.lyso.log.scribe;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import me.lyso.perf.PerfCounter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watch the scribe server list, and tell {@link Listener} the whole new list once it changes.<BR>
+ * Servers are re-read every {@link #periodMs} on a shared daemon thread, so senders never block on
+ * zookeeper and pick up scaling of scribe tier without waiting for a send to fail.
+ *
+ * @author leo
+ */
+class ScribeServerWatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScribeServerWatcher.class);
+    private static final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(new SenderThreadFactory("scribe-server-watcher"));
+
+    /**
+     * Called on the watcher thread with the new server list.
+     */
+    interface Listener {
+        void onServersChanged(List<InetSocketAddress> servers);
+    }
+
+    private final String name;
+    private final Callable<List<InetSocketAddress>> source;
+    private final long periodMs;
+    private final Listener listener;
+    private volatile List<InetSocketAddress> servers;
+    private ScheduledFuture<?> future;
+
+    /**
+     * @param name for logging.
+     * @param source reads current servers.
+     * @param servers initial servers, changes are relative to them.
+     * @param periodMs
+     * @param listener
+     */
+    ScribeServerWatcher(String name, Callable<List<InetSocketAddress>> source, List<InetSocketAddress> servers,
+            long periodMs, Listener listener) {
+        this.name = name;
+        this.source = source;
+        this.servers = servers;
+        this.periodMs = periodMs;
+        this.listener = listener;
+    }
+
+    synchronized ScribeServerWatcher start() {
+        if (future == null) {
+            future = scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    check();
+                }
+            }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * Re-read servers, notify if changed.
+     *
+     * @return true if changed.
+     */
+    boolean check() {
+        List<InetSocketAddress> latest;
+        try {
+            latest = source.call();
+        } catch (Exception ex) {
+            // keep current servers, zookeeper may be unreachable for a while.
+            LOGGER.warn("^#Red.server-watch: can't read servers of {}: {}", name, ex.toString());
+            return false;
+        }
+        if (latest == null || latest.isEmpty() || keys(latest).equals(keys(servers))) {
+            return false;
+        }
+        LOGGER.info("^#Blue.server-watch: servers of {} changed: {} -> {}.", name, servers, latest);
+        servers = latest;
+        PerfCounter.count(PerfConstants.SERVERS_CHANGED, 1);
+        try {
+            listener.onServersChanged(latest);
+        } catch (Exception ex) {
+            LOGGER.error("^#Red.server-watch: listener of {} failed", name, ex);
+        }
+        return true;
+    }
+
+    List<InetSocketAddress> servers() {
+        return servers;
+    }
+
+    private static List<String> keys(List<InetSocketAddress> servers) {
+        List<String> keys = new ArrayList<String>(servers.size());
+        for (InetSocketAddress addr : servers) {
+            keys.add(addr.getHostName() + ":" + addr.getPort());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    @Override
+    public String toString() {
+        return "ScribeServerWatcher{" + name + servers + "}";
+    }
+}
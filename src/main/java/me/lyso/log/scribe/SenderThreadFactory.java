@@ -0,0 +1,110 @@
+/**
+ * SenderThreadFactory.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:15:20 AM
+ */
+package me.lyso.log.scribe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread factory for scribe logger threads: named, daemon, and optionally pinned to a cpu core.
+ * Pinning uses "taskset" on linux's native thread id, it's best-effort and only logs if fails.
+ *
+ * @author leo
+ */
+public class SenderThreadFactory implements ThreadFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SenderThreadFactory.class);
+    private final String name;
+    private final int cpu;
+    private final AtomicInteger index = new AtomicInteger();
+
+    /**
+     * @param name thread name prefix.
+     * @param cpu core to pin threads on, -1 for no pinning.
+     */
+    public SenderThreadFactory(String name, int cpu) {
+        this.name = name;
+        this.cpu = cpu;
+    }
+
+    public SenderThreadFactory(String name) {
+        this(name, -1);
+    }
+
+    @Override
+    public Thread newThread(final Runnable r) {
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (cpu >= 0) {
+                    pin(cpu);
+                }
+                r.run();
+            }
+        }, name + "-" + index.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+    }
+
+    /**
+     * Pin current thread to #cpu.
+     *
+     * @param cpu
+     * @return
+     */
+    static boolean pin(int cpu) {
+        Process p = null;
+        try {
+            // "/proc/thread-self" links to "/proc/<pid>/task/<tid>" for the calling thread.
+            String tid = new File("/proc/thread-self").getCanonicalFile().getName();
+            p = new ProcessBuilder("taskset", "-p", "-c", String.valueOf(cpu), tid).redirectErrorStream(true).start();
+            p.getOutputStream().close();
+            // drained before waiting, so taskset never blocks on a full pipe.
+            String output = drain(p.getInputStream());
+            int exit = p.waitFor();
+            if (exit == 0) {
+                LOGGER.info("^#Blue.pin-thread: {}({}) pinned to cpu {}.", Thread.currentThread().getName(), tid, cpu);
+                return true;
+            }
+            LOGGER.warn("^#Red.pin-thread: taskset exited {} for cpu {}: {}", exit, cpu, output.trim());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("^#Red.pin-thread: interrupted pinning to cpu {}.", cpu);
+        } catch (Exception ex) {
+            LOGGER.warn("^#Red.pin-thread: can't pin to cpu {}: {}", cpu, ex.toString());
+        } finally {
+            if (p != null) {
+                // closes the remaining streams, and reaps the process if still running.
+                p.destroy();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read #in to end and close it.
+     */
+    private static String drain(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[256];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,487 @@
+/**
+ * SpillJournal.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 3:12:40 PM
+ */
+package me.lyso.log.scribe;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import me.lyso.perf.PerfCounter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import scribe.thrift.LogEntry;
+
+/**
+ * Local disk journal for logs which can't be sent to scribe server now, or can't be put into a full ring.
+ * <ol>
+ * <li>1. logs are appended to a memory-mapped segment file of fixed size, rotated when full;
+ * <li>2. at most {@link #maxSegments} segments are kept, the oldest one is evicted when exceeded;
+ * <li>3. each record is [int length][int crc32][short category-length][category][message], records failed
+ * crc check are treated as a torn write and the rest of the segment is skipped;
+ * <li>4. {@link #replay(int, Sink)} reads from the oldest segment, up to the write position of the active one,
+ * and deletes a sealed segment only after all of its records were sent, so delivery is at-least-once, including
+ * the segments left by a previous process;
+ * <li>5. producer threads never take the journal lock: {@link #offer(String, String)} hands a log over to the
+ * {@link #writer} thread, which appends it, and forces sealed and active segments to disk every
+ * {@link #FORCE_INTERVAL_MS}.
+ * </ol>
+ *
+ * @author leo
+ */
+public class SpillJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpillJournal.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String SUFFIX = ".spill";
+    /** int length + int crc32 */
+    private static final int HEADER = 8;
+    /** logs offered by producers and not appended yet, more are dropped */
+    static final int HANDOFF_CAPACITY = 1 << 14;
+    static final long FORCE_INTERVAL_MS = 1000;
+    /** appends offered logs and forces segments of all journals */
+    private static final ScheduledExecutorService writer = Executors
+            .newSingleThreadScheduledExecutor(new SenderThreadFactory("scribe-spill"));
+
+    /**
+     * Where replayed logs go.
+     */
+    public interface Sink {
+        /**
+         * @param logs
+         * @return true if all #logs were sent.
+         */
+        boolean send(List<LogEntry> logs);
+    }
+
+    private static class Segment {
+        private final File file;
+        private final MappedByteBuffer buf;
+        private int writePos;
+
+        private Segment(File file, MappedByteBuffer buf) {
+            this.file = file;
+            this.buf = buf;
+        }
+
+        @Override
+        public String toString() {
+            return file.getName();
+        }
+    }
+
+    private final File dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final LinkedList<Segment> sealed = new LinkedList<Segment>();
+    private final CRC32 crc = new CRC32();
+    private Segment active;
+    private long nextId;
+    /** read position in the oldest sealed segment, or in the active one if none sealed */
+    private int readPos = 0;
+    /** segments sealed and not forced yet */
+    private final List<Segment> unforced = new ArrayList<Segment>();
+    /** segments being forced without lock, not to be unmapped until done */
+    private final List<Segment> forcing = new ArrayList<Segment>();
+    private final BlockingQueue<LogEntry> handoff = new ArrayBlockingQueue<LogEntry>(HANDOFF_CAPACITY);
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private final ScheduledFuture<?> forcer;
+
+    /**
+     * Open journal in #dir, segments left by previous process will be replayed first.
+     *
+     * @param dir
+     * @param segmentSize bytes per segment.
+     * @param maxSegments max segments on disk, including the one being written.
+     * @throws IOException
+     */
+    public SpillJournal(File dir, int segmentSize, int maxSegments) throws IOException {
+        if (maxSegments < 2) {
+            throw new IllegalArgumentException("Spill journal needs at least 2 segments: " + maxSegments);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create spill dir: " + dir);
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        String[] names = dir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File d, String name) {
+                return name.endsWith(SUFFIX);
+            }
+        });
+        long[] ids = new long[names.length];
+        int n = 0;
+        for (String name : names) {
+            try {
+                ids[n++] = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            } catch (NumberFormatException ex) {
+                LOGGER.warn("^#Red.spill-open: ignore unknown file {}.", name);
+            }
+        }
+        ids = Arrays.copyOf(ids, n);
+        Arrays.sort(ids);
+        for (long id : ids) {
+            sealed.add(map(id));
+            nextId = id + 1;
+        }
+        active = map(nextId++);
+        forcer = writer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                force();
+            }
+        }, FORCE_INTERVAL_MS, FORCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        LOGGER.info("^#Blue.spill-open: {} with {} segments to replay.", dir, sealed.size());
+    }
+
+    private Segment map(long id) throws IOException {
+        File file = new File(dir, String.format("%020d%s", id, SUFFIX));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() != segmentSize) {
+                raf.setLength(segmentSize);
+            }
+            return new Segment(file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Hand a log over to the {@link #writer} thread to be appended, without taking the journal lock; for
+     * producer threads.
+     *
+     * @param category
+     * @param message
+     * @return false if too many logs are waiting to be appended.
+     */
+    public boolean offer(String category, String message) {
+        if (!handoff.offer(new LogEntry(category, message))) {
+            PerfCounter.count(PerfConstants.SPILL_FAIL, 1);
+            return false;
+        }
+        if (draining.compareAndSet(false, true)) {
+            writer.execute(drain);
+        }
+        return true;
+    }
+
+    /**
+     * Append logs handed over by {@link #offer(String, String)}.
+     */
+    private void drain() {
+        // logs offered from now on schedule another drain.
+        draining.set(false);
+        List<LogEntry> logs = new ArrayList<LogEntry>();
+        while (true) {
+            // taken and appended under lock, so #hasPending() never misses logs in between.
+            synchronized (this) {
+                if (handoff.drainTo(logs, 1024) == 0) {
+                    return;
+                }
+                append(logs);
+            }
+            logs.clear();
+        }
+    }
+
+    /**
+     * Append a log.
+     *
+     * @param category
+     * @param message
+     * @return false if failed to write, or the record is larger than a segment.
+     */
+    public synchronized boolean append(String category, String message) {
+        byte[] msg = message.getBytes(UTF8);
+        return append(category.getBytes(UTF8), msg, msg.length);
+    }
+
+    /**
+     * Append a log encoded in UTF-8.
+     *
+     * @param category
+     * @param message
+     * @return false if failed to write, or the record is larger than a segment.
+     */
+    public synchronized boolean append(String category, Utf8Buffer message) {
+        return append(category.getBytes(UTF8), message.array(), message.length());
+    }
+
+    /**
+     * Append all logs of #batch.
+     *
+     * @param batch
+     * @return number of logs appended.
+     */
+    synchronized int append(LogBatch batch) {
+        int n = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Utf8Buffer message = batch.message(i);
+            if (append(batch.categoryBytes(i), message.array(), message.length())) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private boolean append(byte[] cat, byte[] msg, int msgLen) {
+        int len = 2 + cat.length + msgLen;
+        if (HEADER + len > segmentSize) {
+            PerfCounter.count(PerfConstants.SPILL_FAIL, 1);
+            return false;
+        }
+        if (active.writePos + HEADER + len > segmentSize && !rotate()) {
+            PerfCounter.count(PerfConstants.SPILL_FAIL, 1);
+            return false;
+        }
+        ByteBuffer b = active.buf;
+        int pos = active.writePos;
+        b.position(pos + HEADER);
+        b.putShort((short) cat.length).put(cat).put(msg, 0, msgLen);
+        b.putInt(pos + 4, checksum(cat, msg, msgLen));
+        b.putInt(pos, len);
+        active.writePos = pos + HEADER + len;
+        PerfCounter.count(PerfConstants.SPILL_WRITE, 1);
+        return true;
+    }
+
+    /**
+     * Append a batch of logs.
+     *
+     * @param logs
+     * @return number of logs appended.
+     */
+    public synchronized int append(List<LogEntry> logs) {
+        int n = 0;
+        for (LogEntry log : logs) {
+            if (append(log.getCategory(), log.getMessage())) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Seal active segment and start a new one, evict oldest segments if exceeded {@link #maxSegments}.
+     *
+     * @return
+     */
+    private boolean rotate() {
+        try {
+            Segment next = map(nextId);
+            nextId++;
+            // forced by the writer, not under lock.
+            unforced.add(active);
+            sealed.add(active);
+            active = next;
+        } catch (IOException ex) {
+            LOGGER.error("^#Red.spill-rotate: can't create segment in {}: {}", dir, ex);
+            return false;
+        }
+        while (sealed.size() + 1 > maxSegments) {
+            Segment evicted = sealed.removeFirst();
+            readPos = 0;
+            delete(evicted);
+            PerfCounter.count(PerfConstants.SPILL_EVICT, 1);
+            LOGGER.warn("^#Red.spill-evict: disk bound reached, dropped segment {}.", evicted);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if there are logs not replayed yet.
+     */
+    public synchronized boolean hasPending() {
+        return !sealed.isEmpty() || active.writePos > readPos || !handoff.isEmpty();
+    }
+
+    /**
+     * Read at most #max logs from oldest segment and send them to #sink.
+     * Called by only one thread at a time; #sink is called without holding the journal lock.
+     *
+     * @param max
+     * @param sink
+     * @return number of logs replayed, 0 if nothing to replay (logs offered may still be waiting to be appended),
+     *         -1 if #sink failed.
+     */
+    public int replay(int max, Sink sink) {
+        Segment seg;
+        int end;
+        List<LogEntry> logs = new ArrayList<LogEntry>();
+        synchronized (this) {
+            while (true) {
+                // the active segment is read up to its write position, and left to be sealed by appends.
+                seg = sealed.isEmpty() ? active : sealed.getFirst();
+                end = read(seg, readPos, seg == active ? active.writePos : segmentSize, max, logs);
+                if (!logs.isEmpty()) {
+                    break;
+                }
+                if (seg == active) {
+                    readPos = end;
+                    return 0;
+                }
+                sealed.removeFirst();
+                readPos = 0;
+                delete(seg);
+            }
+        }
+        if (!sink.send(logs)) {
+            return -1;
+        }
+        synchronized (this) {
+            // the segment may be evicted, or the active one sealed, while sending.
+            if ((sealed.isEmpty() ? active : sealed.getFirst()) == seg) {
+                readPos = end;
+            }
+        }
+        PerfCounter.count(PerfConstants.SPILL_REPLAY, logs.size());
+        return logs.size();
+    }
+
+    /**
+     * Read at most #max records from #seg starting at #pos and ending before #limit into #logs.
+     *
+     * @return position after the last read record, {@link #segmentSize} if the rest of #seg is corrupted.
+     */
+    private int read(Segment seg, int pos, int limit, int max, List<LogEntry> logs) {
+        ByteBuffer b = seg.buf.duplicate();
+        while (logs.size() < max && pos + HEADER <= limit) {
+            int len = b.getInt(pos);
+            if (len == 0) {
+                break;
+            }
+            if (len < 2 || pos + HEADER + len > limit) {
+                corrupted(seg, pos);
+                return segmentSize;
+            }
+            int sum = b.getInt(pos + 4);
+            b.position(pos + HEADER);
+            int catLen = b.getShort() & 0xFFFF;
+            if (catLen > len - 2) {
+                corrupted(seg, pos);
+                return segmentSize;
+            }
+            byte[] cat = new byte[catLen];
+            byte[] msg = new byte[len - 2 - catLen];
+            b.get(cat).get(msg);
+            if (checksum(cat, msg, msg.length) != sum) {
+                corrupted(seg, pos);
+                return segmentSize;
+            }
+            logs.add(new LogEntry(new String(cat, UTF8), new String(msg, UTF8)));
+            pos += HEADER + len;
+        }
+        return pos;
+    }
+
+    /**
+     * crc32 of record body: [short category-length][category][message]
+     */
+    private int checksum(byte[] cat, byte[] msg, int msgLen) {
+        crc.reset();
+        crc.update(cat.length >>> 8);
+        crc.update(cat.length);
+        crc.update(cat);
+        crc.update(msg, 0, msgLen);
+        return (int) crc.getValue();
+    }
+
+    private void corrupted(Segment seg, int pos) {
+        PerfCounter.count(PerfConstants.SPILL_CORRUPT, 1);
+        LOGGER.warn("^#Red.spill-corrupt: bad record in {} at {}, skip rest of segment.", seg, pos);
+    }
+
+    private void delete(Segment seg) {
+        unforced.remove(seg);
+        if (!forcing.contains(seg)) {
+            // else left to gc after forced.
+            unmap(seg.buf);
+        }
+        if (!seg.file.delete()) {
+            LOGGER.warn("^#Red.spill-delete: can't delete {}.", seg.file);
+        }
+    }
+
+    /**
+     * Release mapped memory now instead of on gc, best-effort.
+     */
+    private static void unmap(MappedByteBuffer buf) {
+        try {
+            Method cleaner = buf.getClass().getMethod("cleaner");
+            cleaner.setAccessible(true);
+            Object c = cleaner.invoke(buf);
+            if (c != null) {
+                c.getClass().getMethod("clean").invoke(c);
+            }
+        } catch (Throwable t) {
+            // left to gc.
+        }
+    }
+
+    /**
+     * Flush sealed segments not forced yet and active segment to disk, without holding the journal lock.
+     */
+    public void force() {
+        List<Segment> segs;
+        synchronized (this) {
+            segs = new ArrayList<Segment>(unforced);
+            segs.add(active);
+            unforced.clear();
+            forcing.addAll(segs);
+        }
+        try {
+            for (Segment seg : segs) {
+                seg.buf.force();
+            }
+        } finally {
+            synchronized (this) {
+                forcing.removeAll(segs);
+            }
+        }
+    }
+
+    /**
+     * Stop forcing periodically, append logs offered and force all to disk, for shutdown.
+     */
+    public void close() {
+        forcer.cancel(false);
+        drain();
+        force();
+    }
+
+    @Override
+    public String toString() {
+        return "SpillJournal{" + dir + "}";
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * TimestampCache.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:31:06 AM
+ */
+package me.lyso.log.scribe;
+
+import org.apache.commons.lang.time.FastDateFormat;
+
+/**
+ * Shared "yyyy-MM-dd HH:mm:ss" formatting of log timestamps, formatted once per second.<BR>
+ * The last formatted second is published as an immutable entry through a volatile field, so readers take no
+ * lock and allocate nothing within the same second; on a new second one or a few threads format it again and
+ * the latest second wins. Timestamps of an older second are formatted without being cached. The entry keeps the
+ * UTF-8 bytes too, for {@link #appendTo(long, Utf8Buffer)} into a ring slot.
+ *
+ * @author leo
+ */
+public final class TimestampCache {
+    public static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final FastDateFormat FORMAT = FastDateFormat.getInstance(PATTERN);
+
+    private static final class Entry {
+        private final long second;
+        private final String text;
+        /** UTF-8 of #text, all ASCII */
+        private final byte[] bytes;
+
+        private Entry(long second, String text) {
+            this.second = second;
+            this.text = text;
+            this.bytes = text.getBytes(Utf8Buffer.UTF8);
+        }
+    }
+
+    private static volatile Entry last = new Entry(Long.MIN_VALUE, "");
+
+    private TimestampCache() {
+    }
+
+    /**
+     * Format #timeMs to second.
+     *
+     * @param timeMs
+     * @return
+     */
+    public static String format(long timeMs) {
+        return entry(timeMs).text;
+    }
+
+    /**
+     * Append #timeMs formatted to second to #buf, copying the cached bytes without encoding.
+     *
+     * @param timeMs
+     * @param buf
+     * @return #buf
+     */
+    public static Utf8Buffer appendTo(long timeMs, Utf8Buffer buf) {
+        byte[] bytes = entry(timeMs).bytes;
+        return buf.append(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Append #timeMs formatted to second to #sb.
+     *
+     * @param timeMs
+     * @param sb
+     * @return #sb
+     */
+    public static StringBuilder appendTo(long timeMs, StringBuilder sb) {
+        return sb.append(entry(timeMs).text);
+    }
+
+    private static Entry entry(long timeMs) {
+        long second = timeMs >= 0 ? timeMs / 1000 : (timeMs - 999) / 1000;
+        Entry e = last;
+        if (e.second == second) {
+            return e;
+        }
+        Entry formatted = new Entry(second, FORMAT.format(second * 1000));
+        if (second > e.second) {
+            last = formatted;
+        }
+        return formatted;
+    }
+
+    /**
+     * Format current time.
+     *
+     * @return
+     */
+    public static String now() {
+        return format(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * TokenBucket.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:32:18 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket of #permitsPerSecond with #burst tokens, kept as the time the bucket will be full
+ * again (GCRA, same decisions as a token bucket): taking a token pushes that time by one interval, and fails
+ * if it would be more than #burst intervals ahead of now. One CAS per take, nothing allocated.
+ *
+ * @author leo
+ */
+class TokenBucket {
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    /** System.nanoTime() when all tokens taken so far are paid back */
+    private final AtomicLong paidUntil;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit: " + permitsPerSecond + "/s, burst " + burst);
+        }
+        this.intervalNanos = Math.max(1, (long) (1e9 / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * burst;
+        this.paidUntil = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Take a token if there is one.
+     *
+     * @param now System.nanoTime()
+     * @return
+     */
+    boolean tryAcquire(long now) {
+        while (true) {
+            long paid = paidUntil.get();
+            // an idle bucket refills to #burst, not more.
+            long next = (paid - now < 0 ? now : paid) + intervalNanos;
+            if (next - now > toleranceNanos) {
+                return false;
+            }
+            if (paidUntil.compareAndSet(paid, next)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket{" + 1e9 / intervalNanos + "/s, burst " + toleranceNanos / intervalNanos + "}";
+    }
+}
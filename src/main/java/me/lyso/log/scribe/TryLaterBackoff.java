@@ -0,0 +1,52 @@
+/**
+ * TryLaterBackoff.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 3:17:44 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.Random;
+
+/**
+ * Adaptive delay before resending a batch answered TRY_LATER, shared by all batches of a sender.<BR>
+ * Each TRY_LATER doubles it from min to max and each OK halves it, so resends to a busy server spread out for as
+ * long as it stays busy, and a recovered one gets full rate back after a few acks. Delays are jittered in
+ * [half, full] so batches answered together are not resent together.
+ *
+ * @author leo
+ */
+class TryLaterBackoff {
+    private final long minMs;
+    private final long maxMs;
+    private final Random random = new Random();
+    /** 0 if the server is not busy */
+    private volatile long currentMs = 0;
+
+    TryLaterBackoff(long minMs, long maxMs) {
+        this.minMs = minMs;
+        this.maxMs = maxMs;
+    }
+
+    /**
+     * @return millis to wait before resending.
+     */
+    synchronized long onTryLater() {
+        long c = currentMs == 0 ? minMs : Math.min(currentMs << 1, maxMs);
+        currentMs = c;
+        return c - c / 2 + (long) (random.nextDouble() * (c / 2));
+    }
+
+    void onOk() {
+        // read without lock on each ack, usually 0.
+        if (currentMs != 0) {
+            synchronized (this) {
+                currentMs = currentMs >> 1 < minMs ? 0 : currentMs >> 1;
+            }
+        }
+    }
+
+    long currentMs() {
+        return currentMs;
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Utf8Buffer.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 2:36:52 PM
+ */
+package me.lyso.log.scribe;
+
+import java.nio.charset.Charset;
+
+/**
+ * Reusable UTF-8 bytes of a log message, held by each ring slot and each {@link LogBatch} entry.<BR>
+ * Chars are encoded straight into the reused array, so no String, char[] or byte[] is created per log;
+ * the array only grows for a longer message, and is given back by {@link #clear()} once over
+ * {@link #MAX_RETAINED} so one huge log doesn't pin memory in every slot.
+ *
+ * @author leo
+ */
+public final class Utf8Buffer {
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    static final int INITIAL = 256;
+    static final int MAX_RETAINED = 1 << 16;
+
+    private byte[] bytes = new byte[INITIAL];
+    private int length = 0;
+
+    public Utf8Buffer clear() {
+        if (bytes.length > MAX_RETAINED) {
+            bytes = new byte[INITIAL];
+        }
+        length = 0;
+        return this;
+    }
+
+    public Utf8Buffer append(CharSequence s) {
+        return append(s, 0, s.length());
+    }
+
+    /**
+     * Append chars in [#start, #end) of #s as UTF-8, unpaired surrogates become '?' like String.getBytes.
+     *
+     * @param s
+     * @param start
+     * @param end
+     * @return
+     */
+    public Utf8Buffer append(CharSequence s, int start, int end) {
+        // at most 3 bytes per char, a surrogate pair is 4 bytes for 2 chars.
+        ensure(length + (end - start) * 3);
+        byte[] b = bytes;
+        int n = length;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                b[n++] = (byte) c;
+            } else if (c < 0x800) {
+                b[n++] = (byte) (0xC0 | c >> 6);
+                b[n++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[n++] = (byte) (0xF0 | cp >> 18);
+                b[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                b[n++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                b[n++] = (byte) (0x80 | cp & 0x3F);
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                b[n++] = '?';
+            } else {
+                b[n++] = (byte) (0xE0 | c >> 12);
+                b[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+                b[n++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        length = n;
+        return this;
+    }
+
+    public Utf8Buffer append(char c) {
+        if (c < 0x80) {
+            ensure(length + 1);
+            bytes[length++] = (byte) c;
+            return this;
+        }
+        return append(String.valueOf(c));
+    }
+
+    /**
+     * Append decimal digits of #v.
+     *
+     * @param v
+     * @return
+     */
+    public Utf8Buffer append(long v) {
+        ensure(length + 20);
+        if (v < 0) {
+            bytes[length++] = '-';
+        } else {
+            v = -v;
+        }
+        // digits of a non-positive value, so Long.MIN_VALUE needs no special case.
+        int start = length;
+        do {
+            bytes[length++] = (byte) ('0' - v % 10);
+            v /= 10;
+        } while (v != 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            byte t = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = t;
+        }
+        return this;
+    }
+
+    public Utf8Buffer append(byte[] src, int offset, int len) {
+        ensure(length + len);
+        System.arraycopy(src, offset, bytes, length, len);
+        length += len;
+        return this;
+    }
+
+    /**
+     * Replace content with a copy of #src.
+     *
+     * @param src
+     * @return
+     */
+    public Utf8Buffer copyFrom(Utf8Buffer src) {
+        clear();
+        return append(src.bytes, 0, src.length);
+    }
+
+    private void ensure(int capacity) {
+        if (capacity > bytes.length) {
+            byte[] b = new byte[Math.max(capacity, bytes.length << 1)];
+            System.arraycopy(bytes, 0, b, 0, length);
+            bytes = b;
+        }
+    }
+
+    /**
+     * Backing array, valid in [0, {@link #length()}) until next change.
+     *
+     * @return
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Decode to a String, for paths that still need one (sync client, logging).
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, UTF8);
+    }
+}
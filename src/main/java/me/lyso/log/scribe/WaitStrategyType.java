@@ -0,0 +1,68 @@
+/**
+ * WaitStrategyType.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:02:47 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.PhasedBackoffWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * How {@link LogSender} waits for new logs on the ring, from lowest cpu cost to lowest latency:
+ * <ol>
+ * <li>Blocking: lock and condition, wakeup cost of a futex;
+ * <li>Sleeping: spin, yield, then parkNanos, millisecond-scale wakeup jitter (the default);
+ * <li>PhasedBackoff: spin then yield for a while, then fall back to lock;
+ * <li>Yielding: spin then Thread.yield, burns a core when idle;
+ * <li>BusySpin: never gives up the core, only with a dedicated (pinned) sender thread.
+ * </ol>
+ *
+ * @author leo
+ */
+public enum WaitStrategyType {
+    Blocking {
+        @Override
+        public WaitStrategy create() {
+            return new BlockingWaitStrategy();
+        }
+    },
+    Sleeping {
+        @Override
+        public WaitStrategy create() {
+            return new SleepingWaitStrategy();
+        }
+    },
+    PhasedBackoff {
+        @Override
+        public WaitStrategy create() {
+            return PhasedBackoffWaitStrategy.withLock(10, 100, TimeUnit.MICROSECONDS);
+        }
+    },
+    Yielding {
+        @Override
+        public WaitStrategy create() {
+            return new YieldingWaitStrategy();
+        }
+    },
+    BusySpin {
+        @Override
+        public WaitStrategy create() {
+            return new BusySpinWaitStrategy();
+        }
+    };
+
+    /**
+     * Create a new wait strategy instance, strategies hold state so never share them between rings.
+     *
+     * @return
+     */
+    public abstract WaitStrategy create();
+}
@@ -0,0 +1,234 @@
+/**
+ * UsageAggregator.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:26:41 AM
+ */
+package me.lyso.log.usage;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import me.lyso.log.scribe.SenderThreadFactory;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges usage logs of the same (module, action, appId, packageName, topicOrAlias) and direction within a
+ * window into one log, which carries fields of the first one and the summed count.
+ * <ol>
+ * <li>1. logs go to an open-addressing table of at most #capacity keys, new keys are CAS-ed into empty slots;
+ * <li>2. counts of a key are added to striped cells, one per cache line and picked by thread, so threads
+ * pushing to one big topic don't contend on a counter;
+ * <li>3. every window the flusher swaps in a new table, then seals each slot and each cell of the old one, and
+ * emits the sums; a writer that finds a sealed slot or cell retries on the new table, so no count is lost.
+ * </ol>
+ * If the table is full, the log has an sdkVersion (whose line has no count field), or the aggregator is closed,
+ * {@link #add(UsageLog)} returns false and the log should be sent as is.
+ *
+ * @author leo
+ */
+class UsageAggregator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UsageAggregator.class);
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(
+            new SenderThreadFactory("usage-aggregator"));
+    private static final int CELLS = 8;
+    /** longs per cell, to keep cells on separate cache lines */
+    private static final int PAD = 8;
+    private static final long SEALED = Long.MIN_VALUE;
+    /** put into slots of a retired table */
+    private static final Entry RETIRED = new Entry(0, null);
+    /** swapped in by {@link #close()}, writers finding it send their logs as is */
+    private static final AtomicReferenceArray<Entry> CLOSED = new AtomicReferenceArray<Entry>(0);
+
+    /**
+     * Where merged logs go.
+     */
+    interface Sink {
+        void emit(UsageLog log);
+    }
+
+    private static final class Entry {
+        private final int hash;
+        /** fields of the first log of the key in this window */
+        private final UsageLog first;
+        private final AtomicLongArray cells = new AtomicLongArray(CELLS * PAD);
+
+        private Entry(int hash, UsageLog first) {
+            this.hash = hash;
+            this.first = first;
+        }
+
+        private boolean matches(int h, UsageLog log) {
+            return hash == h && first.getDir() == log.getDir() && eq(first.getModule(), log.getModule())
+                    && eq(first.getAction(), log.getAction()) && eq(first.getAppId(), log.getAppId())
+                    && eq(first.getPackageName(), log.getPackageName())
+                    && eq(first.getTopicOrAlias(), log.getTopicOrAlias());
+        }
+
+        /**
+         * @return false if sealed.
+         */
+        private boolean add(long n) {
+            int i = (int) (Thread.currentThread().getId() & (CELLS - 1)) * PAD;
+            while (true) {
+                long c = cells.get(i);
+                if (c == SEALED) {
+                    return false;
+                }
+                if (cells.compareAndSet(i, c, c + n)) {
+                    return true;
+                }
+            }
+        }
+
+        private long seal() {
+            long sum = 0;
+            for (int i = 0; i < CELLS; i++) {
+                sum += cells.getAndSet(i * PAD, SEALED);
+            }
+            return sum;
+        }
+    }
+
+    private final int capacity;
+    private final Sink sink;
+    private final AtomicReference<AtomicReferenceArray<Entry>> table;
+    private final ScheduledFuture<?> flushing;
+
+    /**
+     * @param windowMs
+     * @param maxKeys rounded up to a power of 2.
+     * @param sink
+     */
+    UsageAggregator(long windowMs, int maxKeys, Sink sink) {
+        if (windowMs <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("Invalid aggregation: " + windowMs + "ms, " + maxKeys + " keys");
+        }
+        this.capacity = Integer.highestOneBit(Math.max(maxKeys - 1, 1)) << 1;
+        this.sink = sink;
+        this.table = new AtomicReference<AtomicReferenceArray<Entry>>(new AtomicReferenceArray<Entry>(capacity));
+        this.flushing = FLUSHER.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (Throwable t) {
+                    LOGGER.error("^#Red.usage-aggregate: flush failed", t);
+                }
+            }
+        }, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Add #log's count to its key.
+     *
+     * @param log
+     * @return false if #log is not added: the table is full, #log has an sdkVersion, or closed.
+     */
+    boolean add(UsageLog log) {
+        if (!StringUtils.isBlank(log.getSdkVersion())) {
+            return false;
+        }
+        int h = hash(log);
+        Entry created = null;
+        while (true) {
+            AtomicReferenceArray<Entry> t = table.get();
+            if (t == CLOSED) {
+                return false;
+            }
+            int mask = capacity - 1;
+            Entry e = null;
+            for (int probe = 0; probe < capacity; probe++) {
+                int i = (h + probe) & mask;
+                e = t.get(i);
+                if (e == null) {
+                    if (created == null) {
+                        UsageLog first = new UsageLog();
+                        log.copyTo(first);
+                        created = new Entry(h, first);
+                    }
+                    if (t.compareAndSet(i, null, created)) {
+                        e = created;
+                        created = null;
+                        break;
+                    }
+                    e = t.get(i);
+                }
+                if (e == RETIRED || e.matches(h, log)) {
+                    break;
+                }
+                e = null;
+            }
+            if (e == null) {
+                return false;
+            }
+            if (e != RETIRED && e.add(log.getCount())) {
+                return true;
+            }
+            // table retired by a flush, retry on the new one.
+        }
+    }
+
+    private static int hash(UsageLog log) {
+        int h = log.getDir() == null ? 0 : log.getDir().ordinal();
+        h = h * 31 + hash(log.getModule());
+        h = h * 31 + hash(log.getAction());
+        h = h * 31 + hash(log.getAppId());
+        h = h * 31 + hash(log.getPackageName());
+        h = h * 31 + hash(log.getTopicOrAlias());
+        return h ^ h >>> 16;
+    }
+
+    private static int hash(String s) {
+        return s == null ? 0 : s.hashCode();
+    }
+
+    private static boolean eq(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Emit sums of the current window and start a new one. Called by the flusher.
+     */
+    synchronized void flush() {
+        if (table.get() != CLOSED) {
+            retire(new AtomicReferenceArray<Entry>(capacity));
+        }
+    }
+
+    /**
+     * Swap in #next and emit sums of the old table.
+     */
+    private void retire(AtomicReferenceArray<Entry> next) {
+        AtomicReferenceArray<Entry> t = table.getAndSet(next);
+        for (int i = 0; i < capacity; i++) {
+            Entry e = t.getAndSet(i, RETIRED);
+            if (e == null) {
+                continue;
+            }
+            long sum = e.seal();
+            if (sum > 0) {
+                e.first.setCount((int) Math.min(sum, Integer.MAX_VALUE));
+                sink.emit(e.first);
+            }
+        }
+    }
+
+    /**
+     * Stop flushing and emit what's left; logs added after are refused.
+     */
+    synchronized void close() {
+        flushing.cancel(false);
+        if (table.get() != CLOSED) {
+            retire(CLOSED);
+        }
+    }
+}
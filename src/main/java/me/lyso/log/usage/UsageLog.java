@@ -6,18 +6,20 @@
  */
 package me.lyso.log.usage;
 
-import java.text.SimpleDateFormat;
-
 import org.apache.commons.lang3.StringUtils;
 
+import me.lyso.log.scribe.DeferredLog;
 import me.lyso.log.scribe.ScribeLogger;
+import me.lyso.log.scribe.TimestampCache;
 
 /**
+ * A usage record, formatted as a comma-separated line by {@link #build()}, or copied into the ring and
+ * formatted on the sender thread as a {@link DeferredLog}.
+ *
  * @author leo
  */
-public class UsageLog {
+public class UsageLog implements DeferredLog {
     private static final String SERVER = "lyso.me";
-    private final SimpleDateFormat TIME_FMT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
     // "," shouldn't appeared in log fields, replace it to this value.
     private static final char REPLACE_COMMA_TO = '`';
     // For a filed, its size couldn't exceed this value.
@@ -60,6 +62,9 @@ public class UsageLog {
      */
     private int count = 1;
 
+    /** when the usage happened, 0 for the time of building */
+    private long timestamp;
+
     private StringBuilder sb = new StringBuilder();
     boolean built = false;
     private String msg = "";
@@ -221,65 +226,157 @@ public class UsageLog {
         return this;
     }
 
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public UsageLog setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        this.built = false;
+        return this;
+    }
+
+    @Override
+    public DeferredLog newSlot() {
+        return new UsageLog();
+    }
+
+    /**
+     * Copy all fields into #slot, the timestamp is taken now if not set, as this log is formatted later.
+     */
+    @Override
+    public void copyTo(DeferredLog slot) {
+        UsageLog to = (UsageLog) slot;
+        to.module = module;
+        to.chid = chid;
+        to.dir = dir;
+        to.action = action;
+        to.uuid = uuid;
+        to.resource = resource;
+        to.msgId = msgId;
+        to.appId = appId;
+        to.packageName = packageName;
+        to.topicOrAlias = topicOrAlias;
+        to.messageCreateTimestamp = messageCreateTimestamp;
+        to.fromIp = fromIp;
+        to.clientIp = clientIp;
+        to.frontendIp = frontendIp;
+        to.os = os;
+        to.model = model;
+        to.sdkVersion = sdkVersion;
+        to.count = count;
+        to.timestamp = timestamp != 0 ? timestamp : System.currentTimeMillis();
+        to.built = false;
+    }
+
+    @Override
+    public CharSequence format() {
+        return chars();
+    }
+
     public String build() {
-        if (built) {
-            return msg;
+        if (!built) {
+            msg = formatFields().toString();
+            built = true;
         }
+        return msg;
+    }
+
+    /**
+     * Build the message into a reused builder without making a String, for {@link ScribeLogger#log(CharSequence)}
+     * which encodes it straight into the ring. Valid until next change of this log.
+     *
+     * @return
+     */
+    public CharSequence chars() {
+        return built ? msg : formatFields();
+    }
+
+    private StringBuilder formatFields() {
         sb.setLength(0);
-        long now = System.currentTimeMillis();
-        String c, s = SERVER, from, to;
-        if (StringUtils.isBlank(resource)) {
-            c = uuid + "@" + SERVER;
+        long now = timestamp != 0 ? timestamp : System.currentTimeMillis();
+        a(ScribeLogger.LOCAL_HOST).a(action);
+        if (dir == MessageDirection.ClientToServer) {
+            client().a(SERVER);
         } else {
-            c = uuid + "@" + SERVER + '/' + resource;
+            a(SERVER).client();
         }
-        if (dir == MessageDirection.ClientToServer) {
-            from = c;
-            to = s;
+        a(msgId).a(module).a(fromIp).ts(now)
+                .a(chid).a(StringUtils.isEmpty(topicOrAlias) ? clientIp : topicOrAlias);
+        if (messageCreateTimestamp == null) {
+            a(frontendIp);
         } else {
-            from = s;
-            to = c;
+            a(messageCreateTimestamp.longValue());
         }
-        a(ScribeLogger.LOCAL_HOST).a(action).a(from).a(to).a(msgId).a(module).a(fromIp).a(TIME_FMT.format(now))
-                .a(chid).a(StringUtils.isEmpty(topicOrAlias) ? clientIp : topicOrAlias)
-                .a(messageCreateTimestamp == null? frontendIp: messageCreateTimestamp)
-                .a(appId).a(packageName).a(os).a(model);
+        a(appId).a(packageName).a(os).a(model);
         if (!StringUtils.isBlank(sdkVersion)) {
             a(sdkVersion);
         } else {
             if (count != 1) {
-                a(Integer.toString(count));
+                a(count);
             }
         }
         sb.setLength(sb.length() - 1);
-        this.built = true;
-        return msg = sb.toString();
+        return sb;
+    }
+
+    /**
+     * Client field: uuid@SERVER or uuid@SERVER/resource.
+     */
+    private UsageLog client() {
+        int start = sb.length();
+        sb.append(uuid).append('@').append(SERVER);
+        if (!StringUtils.isBlank(resource)) {
+            sb.append('/').append(resource);
+        }
+        return end(start);
     }
 
     private UsageLog a(String s) {
         if (null != s) {
-            /**
-             * Make sure s.length <= MAX_FIELD_SIZE, and replace "," to REPLACE_COMMA_TO.
-             */
-            boolean addTailDots = false;
-            int len = s.length();
-            if (len > MAX_FIELD_SIZE) {
-                addTailDots = true;
-                len = MAX_FIELD_SIZE - 2;
-            }
-            for (int i=0; i<len; ++i) {
-                char c = s.charAt(i);
-                sb.append(c == ','? REPLACE_COMMA_TO: c);
-            }
-            if (addTailDots) {
-                sb.append("..");
-            }
+            int start = sb.length();
+            sb.append(s);
+            return end(start);
         }
         sb.append(',');
         return this;
     }
-    private UsageLog a(Object o) {
-        return a(null == o? "": o.toString());
+
+    private UsageLog a(long v) {
+        sb.append(v).append(',');
+        return this;
+    }
+
+    /**
+     * Timestamp field of #timeMs, from {@link TimestampCache}.
+     */
+    private UsageLog ts(long timeMs) {
+        TimestampCache.appendTo(timeMs, sb).append(',');
+        return this;
+    }
+
+    /**
+     * Make sure the field from #start has length <= MAX_FIELD_SIZE, replace "," to REPLACE_COMMA_TO,
+     * then end the field with ",".
+     */
+    private UsageLog end(int start) {
+        int len = sb.length() - start;
+        boolean addTailDots = false;
+        if (len > MAX_FIELD_SIZE) {
+            addTailDots = true;
+            len = MAX_FIELD_SIZE - 2;
+            sb.setLength(start + len);
+        }
+        for (int i = start; i < start + len; ++i) {
+            if (sb.charAt(i) == ',') {
+                sb.setCharAt(i, REPLACE_COMMA_TO);
+            }
+        }
+        if (addTailDots) {
+            sb.append("..");
+        }
+        sb.append(',');
+        return this;
     }
 
     @Override
@@ -13,7 +13,9 @@ import org.slf4j.LoggerFactory;
 import me.lyso.log.scribe.ScribeLogger;
 
 /**
- * Async usage logger, use {@link ScribeLogger}.
+ * Async usage logger, use {@link ScribeLogger}.<BR>
+ * With {@link #setAggregate(long, int)}, logs of the same (module, action, appId, packageName, topicOrAlias)
+ * are merged by a {@link UsageAggregator} into one log per window with the summed count.
  *
  * @author leo
  */
@@ -22,14 +24,29 @@ public class UsageLogger {
     private final ScribeLogger slogger;
     private String category = "usage";
     private String module = "m:unset";
+    /** copy fields into ring and format on sender thread */
+    private boolean deferred = false;
+    /** null if not aggregating */
+    private volatile UsageAggregator aggregator;
 
     public UsageLogger(String category, String logServersZkPath) {
+        this(category, ScribeLogger.get(category, logServersZkPath));
+    }
+
+    /**
+     * Log usage to #slogger.
+     *
+     * @param category
+     * @param slogger
+     */
+    public UsageLogger(String category, final ScribeLogger slogger) {
         this.category = category;
-        slogger = ScribeLogger.get(this.category, logServersZkPath);
+        this.slogger = slogger;
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
             public void run() {
                 try {
+                    setAggregate(0, 0);
                     String message = new UsageLog().setDir(MessageDirection.ServerToClient)
                             .setAction("shutdown").setModule(module()).build();
                     slogger.onShutdown(message);
@@ -49,6 +66,45 @@ public class UsageLogger {
         return module;
     }
 
+    /**
+     * If #deferred, {@link #log(UsageLog)} only copies field values into the ring, and the message is formatted
+     * on the sender thread; the timestamp is still taken on the caller's thread.
+     *
+     * @param deferred
+     * @return
+     */
+    public UsageLogger setDeferred(boolean deferred) {
+        this.deferred = deferred;
+        return this;
+    }
+
+    public boolean deferred() {
+        return deferred;
+    }
+
+    /**
+     * Merge logs of the same (module, action, appId, packageName, topicOrAlias) and direction in each
+     * #windowMs into one log with the summed count, keeping other fields of the first one; at most #maxKeys
+     * keys in a window, logs of more keys are sent as is, and so are logs with an sdkVersion.
+     *
+     * @param windowMs 0 to stop aggregating, logs merged so far are sent now.
+     * @param maxKeys
+     * @return
+     */
+    public synchronized UsageLogger setAggregate(long windowMs, int maxKeys) {
+        UsageAggregator old = aggregator;
+        aggregator = windowMs > 0 ? new UsageAggregator(windowMs, maxKeys, new UsageAggregator.Sink() {
+            @Override
+            public void emit(UsageLog log) {
+                send(log);
+            }
+        }) : null;
+        if (old != null) {
+            old.close();
+        }
+        return this;
+    }
+
     public String category() {
         return category;
     }
@@ -92,13 +148,27 @@ public class UsageLogger {
     }
 
     /**
-     * Log a usage behavior asynchronously.
+     * Log a usage behavior asynchronously, sampled by its msgId if the scribe logger samples; or merged into
+     * the window's log of its key if aggregating.
      *
      * @param record
      */
     public void log(UsageLog record) {
+        UsageAggregator a = aggregator;
+        if (a != null && a.add(record)) {
+            PerfCounter.count("UsageLogger.aggregate", 1);
+            return;
+        }
+        send(record);
+    }
+
+    private void send(UsageLog record) {
         long ts = System.currentTimeMillis();
-        slogger.log(record.build());
+        if (deferred) {
+            slogger.logDeferred(record, record.getMsgId());
+        } else {
+            slogger.logSampled(record.getMsgId(), record.chars());
+        }
         PerfCounter.count("UsageLogger.log", 1, System.currentTimeMillis() - ts);
     }
 
@@ -0,0 +1,76 @@
+/**
+ * AdaptiveBatchTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 6:12:45 PM
+ */
+package me.lyso.log.scribe;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link LogSender#adapt(long, long)} grows the batch limit while sends are slower than filling a batch, and shrinks
+ * it while much faster, within [min batch size, batch size].
+ *
+ * @author leo
+ */
+public class AdaptiveBatchTest {
+    private static LogSender sender(ScribeLoggerConfig config) {
+        return new LogSender("usage", new CountingScribeClient(), config);
+    }
+
+    @Test
+    public void testGrow() {
+        LogSender sender = sender(new ScribeLoggerConfig().batchSize(800).adaptiveBatch(100));
+        Assert.assertEquals(100, sender.batchLimit());
+        int[] expected = {200, 400, 800, 800, 800};
+        for (int limit : expected) {
+            sender.adapt(1000, 10000);
+            Assert.assertEquals(limit, sender.batchLimit());
+        }
+    }
+
+    @Test
+    public void testShrink() {
+        LogSender sender = sender(new ScribeLoggerConfig().batchSize(800).adaptiveBatch(100));
+        for (int i = 0; i < 3; i++) {
+            sender.adapt(1000, 10000);
+        }
+        Assert.assertEquals(800, sender.batchLimit());
+        int last = sender.batchLimit();
+        for (int i = 0; i < 100; i++) {
+            sender.adapt(1000000, 1000);
+            Assert.assertTrue(sender.batchLimit() <= last);
+            last = sender.batchLimit();
+        }
+        Assert.assertEquals(100, sender.batchLimit());
+    }
+
+    @Test
+    public void testSteady() {
+        // rtt between 1/4 and 1 of fill time keeps the limit.
+        LogSender sender = sender(new ScribeLoggerConfig().batchSize(800).adaptiveBatch(100));
+        for (int i = 0; i < 100; i++) {
+            sender.adapt(10000, 5000);
+            Assert.assertEquals(100, sender.batchLimit());
+        }
+    }
+
+    @Test
+    public void testMinOverBatchSize() {
+        LogSender sender = sender(new ScribeLoggerConfig().adaptiveBatch(5000).batchSize(200));
+        Assert.assertEquals(200, sender.batchLimit());
+        sender.adapt(1000000, 1000);
+        Assert.assertEquals(200, sender.batchLimit());
+        sender.adapt(1000, 1000000);
+        Assert.assertEquals(200, sender.batchLimit());
+    }
+
+    @Test
+    public void testDisabled() {
+        LogSender sender = sender(new ScribeLoggerConfig().batchSize(800));
+        sender.adapt(1000000, 1000);
+        Assert.assertEquals(800, sender.batchLimit());
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * AdmissionTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 6:10:25 PM
+ */
+package me.lyso.log.scribe;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Sampling keeps the same keys everywhere at the given rate, rate limit admits burst then rate.
+ *
+ * @author leo
+ */
+public class AdmissionTest {
+    private static final int KEYS = 100000;
+
+    @Test
+    public void testSample() {
+        Admission a = new Admission("trace", 0.1, null);
+        Admission b = new Admission("trace", 0.1, null);
+        int kept = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "msg-" + i;
+            boolean admitted = a.admit(key);
+            Assert.assertEquals(admitted, b.admit(key));
+            Assert.assertEquals(admitted, a.admit(key));
+            if (admitted) {
+                kept++;
+            }
+        }
+        Assert.assertEquals(KEYS / 10, kept, KEYS / 100);
+        Assert.assertEquals(KEYS - kept, b.sampledOut());
+        Assert.assertTrue(a.admit(null));
+        Assert.assertFalse(new Admission("trace", 0, null).admit("any"));
+        Assert.assertTrue(new Admission("trace", 1, null).admit("any"));
+    }
+
+    @Test
+    public void testRateLimit() throws InterruptedException {
+        // slow refill, so a loop descheduled on a busy machine adds no token.
+        Admission a = new Admission("profiling", 1, new TokenBucket(100, 100));
+        int admitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (a.admit(null)) {
+                admitted++;
+            }
+        }
+        Assert.assertEquals(100, admitted, 2);
+        Thread.sleep(500);
+        admitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (a.admit(null)) {
+                admitted++;
+            }
+        }
+        // refilled 50 in 500ms, give some room for a slow sleep.
+        Assert.assertTrue("admitted " + admitted, admitted >= 45 && admitted <= 100);
+        Assert.assertEquals(2000 - 100 - admitted, a.rateLimited(), 2);
+    }
+
+    @Test
+    public void testLogger() throws InterruptedException {
+        CountingScribeClient client = new CountingScribeClient();
+        // block, so a full ring never drops some logs of a message.
+        ScribeLoggerConfig config = new ScribeLoggerConfig().sample(0.25).publishPolicy(PublishPolicy.Block);
+        ScribeLogger logger = new ScribeLogger(new LogSender("trace", client), config, WaitStrategyType.Sleeping,
+                new SenderThreadFactory("admission"));
+        int logged = 0;
+        for (int i = 0; i < KEYS; i++) {
+            // 4 logs of each message are kept or dropped together.
+            String msgId = "msg-" + (i >> 2);
+            if (logger.logSampled(msgId, "trace " + i)) {
+                logged++;
+            }
+        }
+        Assert.assertEquals(logged, client.await(logged, 10000));
+        Assert.assertEquals(0, logged % 4);
+        Assert.assertEquals(KEYS - logged, logger.admission().sampledOut());
+        logger.close();
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * CircuitBreakerTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:02:19 AM
+ */
+package me.lyso.log.scribe;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author leo
+ */
+public class CircuitBreakerTest {
+    @Test
+    public void testStates() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 100, 1000);
+        long now = 0;
+        Assert.assertTrue(breaker.tryAttempt(now));
+        Assert.assertEquals(CircuitBreaker.State.HalfOpen, breaker.state());
+        // only one attempt at a time.
+        Assert.assertFalse(breaker.tryAttempt(now));
+        long backoff = breaker.onFailure(now);
+        Assert.assertEquals(CircuitBreaker.State.Open, breaker.state());
+        Assert.assertFalse(breaker.tryAttempt(now + backoff - 1));
+        Assert.assertTrue(breaker.tryAttempt(now + backoff));
+        breaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.Closed, breaker.state());
+        Assert.assertEquals(0, breaker.failures());
+    }
+
+    @Test
+    public void testBackoff() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 100, 1000);
+        long[] max = {100, 200, 400, 800, 1000, 1000};
+        for (long m : max) {
+            long backoff = breaker.onFailure(0);
+            Assert.assertTrue(backoff + " of " + m, backoff >= m / 2 && backoff <= m);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * CountingScribeClient.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:12:31 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.thrift.TException;
+
+import scribe.thrift.LogEntry;
+import scribe.thrift.ResultCode;
+
+/**
+ * In-memory scribe client which only counts received logs, optionally with a fixed send latency.
+ *
+ * @author leo
+ */
+public class CountingScribeClient implements scribe.thrift.scribe.Iface {
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final long latencyMs;
+
+    public CountingScribeClient() {
+        this(0);
+    }
+
+    /**
+     * @param latencyMs time each {@link #Log(List)} takes.
+     */
+    public CountingScribeClient(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public ResultCode Log(List<LogEntry> messages) throws TException {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException ex) {
+                throw new TException(ex);
+            }
+        }
+        received.addAndGet(messages.size());
+        batches.incrementAndGet();
+        return ResultCode.OK;
+    }
+
+    public long received() {
+        return received.get();
+    }
+
+    public long batches() {
+        return batches.get();
+    }
+
+    /**
+     * Wait until at least #expected logs received or #timeoutMs elapsed.
+     *
+     * @param expected
+     * @param timeoutMs
+     * @return received count.
+     * @throws InterruptedException
+     */
+    public long await(long expected, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (received.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return received.get();
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * DeferredFormatTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:05:12 PM
+ */
+package me.lyso.log.scribe;
+
+import me.lyso.log.usage.MessageDirection;
+import me.lyso.log.usage.UsageLog;
+import me.lyso.log.usage.UsageLogger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link UsageLogger#log(UsageLog)} formatting on the caller's thread and copying fields into the ring to format on
+ * the sender thread make the same message, and all logs of both arrive. UsageLoggerBenchmark measures the caller
+ * latency of each.
+ *
+ * @author leo
+ */
+public class DeferredFormatTest {
+    private static final int LOGS = 20000;
+
+    @Test
+    public void testSameMessage() {
+        UsageLog log = usage(new UsageLog(), 3).setTimestamp(1400000000000L);
+        UsageLog slot = (UsageLog) log.newSlot();
+        log.copyTo(slot);
+        Assert.assertEquals(log.build(), slot.format().toString());
+    }
+
+    @Test
+    public void testDelivered() throws Exception {
+        FakeScribeServer server = new FakeScribeServer(1);
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 14).batchSize(500)
+                .maxInFlightBatches(4).publishPolicy(PublishPolicy.Block);
+        ScribeLogger slogger = new ScribeLogger(new LogSender("usage", server.host(), server.port(), config),
+                config, WaitStrategyType.Sleeping, new SenderThreadFactory("deferred"));
+        UsageLogger logger = new UsageLogger("usage", slogger).setModule("bench");
+        for (boolean deferred : new boolean[] {false, true}) {
+            logger.setDeferred(deferred);
+            for (int i = 0; i < LOGS; i++) {
+                logger.log(usage(new UsageLog(), i).setModule(logger.module()));
+            }
+        }
+        Assert.assertEquals(LOGS * 2, server.await(LOGS * 2, 10000));
+        slogger.close();
+        server.stop();
+    }
+
+    private static UsageLog usage(UsageLog log, int i) {
+        return log.setDir(MessageDirection.ClientToServer).setAction("msg_sent").setUuid("uuid-" + (i & 1023))
+                .setResource("res,with,comma").setMsgId("msg-0123456789").setAppId("app")
+                .setPackageName("me.lyso.app").setTopicOrAlias("topic").setMessageCreateTimestamp(1400000000000L)
+                .setChid(i).setCount(2);
+    }
+}
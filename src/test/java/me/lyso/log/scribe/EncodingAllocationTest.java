@@ -0,0 +1,134 @@
+/**
+ * EncodingAllocationTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:25:09 PM
+ */
+package me.lyso.log.scribe;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TTransport;
+import org.junit.Assert;
+import org.junit.Test;
+
+import scribe.thrift.LogEntry;
+
+/**
+ * UTF-8 encoding of {@link Utf8Buffer}, and allocated bytes per log of the old path (String, LogEntry,
+ * writeString) against the new one (ring slot bytes, batch copy, raw bytes to frame), measured by the
+ * per-thread allocation counter as the JMH gc profiler does.
+ *
+ * @author leo
+ */
+public class EncodingAllocationTest {
+    private static final int BATCH = 100;
+    private static final int ROUNDS = 2000;
+
+    /** transport discarding all writes, to measure encoding only */
+    private static class NullTransport extends TTransport {
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) {
+            return 0;
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+        }
+    }
+
+    @Test
+    public void testEncode() {
+        String[] samples = {"", "plain ascii,with comma", "中文日志", "éè", "emoji 😀 pair",
+                "unpaired \ud83d high", "unpaired \ude00 low", "tail high \ud83d"};
+        Utf8Buffer buf = new Utf8Buffer();
+        for (String s : samples) {
+            buf.clear().append(s);
+            Assert.assertArrayEquals(s, s.getBytes(Utf8Buffer.UTF8), Arrays.copyOf(buf.array(), buf.length()));
+            Assert.assertEquals(new String(s.getBytes(Utf8Buffer.UTF8), Utf8Buffer.UTF8), buf.toString());
+        }
+    }
+
+    @Test
+    public void testAllocation() throws TException {
+        StringBuilder builder = usage().builder;
+        TProtocol out = new TBinaryProtocol(new NullTransport());
+        LogEntry[] entries = new LogEntry[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            entries[i] = new LogEntry("usage", "");
+        }
+        LogEvent<String> slot = new LogEvent<String>();
+        LogBatch batch = new LogBatch("usage", BATCH);
+        for (int warm = 0; warm < 3; warm++) {
+            oldPath(builder, entries, out);
+            newPath(builder, slot, batch, out);
+        }
+        long before = allocated();
+        oldPath(builder, entries, out);
+        double oldBytes = (allocated() - before) / (double) (BATCH * ROUNDS);
+        before = allocated();
+        newPath(builder, slot, batch, out);
+        double newBytes = (allocated() - before) / (double) (BATCH * ROUNDS);
+        Assert.assertTrue(newBytes + " vs " + oldBytes + " bytes/log", newBytes * 10 < oldBytes);
+    }
+
+    private static Log.Usage usage() {
+        Log.Usage log = new Log.Usage().$1_host("host-01").$2_action(UsageAction.values()[0]).$3_from("from@lyso.me")
+                .$4_to("to@lyso.me/资源").$5_msgId("msg-0123456789").$6_msgType("chat").$7_fromIp("10.0.0.1")
+                .$8_timestamp(0).$9_chid(3).$C_appId("app").$D_packageName("me.lyso.app");
+        log.done();
+        return log;
+    }
+
+    /**
+     * Message as String, set to a LogEntry, encoded by writeString.
+     */
+    private static void oldPath(StringBuilder builder, LogEntry[] entries, TProtocol out) throws TException {
+        for (int r = 0; r < ROUNDS; r++) {
+            for (int i = 0; i < BATCH; i++) {
+                entries[i].setMessage(builder.toString());
+            }
+            for (int i = 0; i < BATCH; i++) {
+                out.writeString(entries[i].getCategory());
+                out.writeString(entries[i].getMessage());
+            }
+        }
+    }
+
+    /**
+     * Message encoded into a ring slot, copied into a batch, written as raw bytes.
+     */
+    private static void newPath(StringBuilder builder, LogEvent<String> slot, LogBatch batch, TProtocol out)
+            throws TException {
+        for (int r = 0; r < ROUNDS; r++) {
+            for (int i = 0; i < BATCH; i++) {
+                slot.encode(builder);
+                batch.add(slot.bytes(), slot.ts());
+            }
+            ScribeConnection.writeCall(out, r, batch);
+            batch.reset();
+        }
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
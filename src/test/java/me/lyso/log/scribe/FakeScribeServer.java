@@ -0,0 +1,370 @@
+/**
+ * FakeScribeServer.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 2:10:37 PM
+ */
+package me.lyso.log.scribe;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolUtil;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+
+import scribe.thrift.ResultCode;
+
+/**
+ * In-process scribe server on localhost speaking framed binary thrift, for tests.
+ * Replies are delayed by #latencyMs without blocking reading next calls, like a network round-trip.<BR>
+ * Faults can be injected while running, to see throughput and loss of senders under failure:
+ * <ul>
+ * <li>{@link #tryLater(double)}: answer a share of calls TRY_LATER, their logs are not received;
+ * <li>{@link #resetEvery(int)}: reset the connection on every n-th call, replies not yet sent are lost;
+ * <li>{@link #maxLogsPerSecond(long)}: delay replies so at most that many logs are received per second.
+ * </ul>
+ * With {@link #record(boolean)}, messages received are kept in the order they are answered OK.<BR>
+ * Point a zookeeper path to servers with {@link LocalServers}.
+ *
+ * @author leo
+ */
+public class FakeScribeServer {
+    private static final TStruct RESULT_STRUCT = new TStruct("Log_result");
+    private static final TField SUCCESS_FIELD = new TField("success", TType.I32, (short) 0);
+
+    private final ServerSocket server;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong tryLaters = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final Random random = new Random(0x5C81BE);
+    private volatile long latencyMs;
+    private volatile double tryLaterRatio = 0;
+    private volatile int resetEvery = 0;
+    private volatile long maxLogsPerSecond = 0;
+    private volatile boolean record = false;
+    private final List<String> messages = new ArrayList<String>();
+    /** nanos when logs under {@link #maxLogsPerSecond} can be received again */
+    private long capFreeNanos = 0;
+    private final ConcurrentHashMap<String, AtomicLong> categories = new ConcurrentHashMap<String, AtomicLong>();
+    private final Set<Socket> sockets = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private volatile boolean stopped = false;
+
+    public FakeScribeServer(long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        this.server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread("fake-scribe-acceptor") {
+            @Override
+            public void run() {
+                accept();
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public FakeScribeServer latencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    /**
+     * Answer #ratio (0~1) of calls with TRY_LATER.
+     */
+    public FakeScribeServer tryLater(double ratio) {
+        this.tryLaterRatio = ratio;
+        return this;
+    }
+
+    /**
+     * Reset the connection on every #calls-th call of this server, 0 to never.
+     */
+    public FakeScribeServer resetEvery(int calls) {
+        this.resetEvery = calls;
+        return this;
+    }
+
+    /**
+     * Receive at most #logs per second by delaying replies, 0 for no limit.
+     */
+    public FakeScribeServer maxLogsPerSecond(long logs) {
+        this.maxLogsPerSecond = logs;
+        return this;
+    }
+
+    /**
+     * Keep messages received, see {@link #messages()}.
+     */
+    public FakeScribeServer record(boolean record) {
+        this.record = record;
+        return this;
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    public String host() {
+        return "127.0.0.1";
+    }
+
+    private void accept() {
+        while (!stopped) {
+            try {
+                final Socket socket = server.accept();
+                sockets.add(socket);
+                Thread t = new Thread("fake-scribe-" + socket.getPort()) {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                };
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException ex) {
+                // stopped
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        ScheduledExecutorService replier = Executors.newSingleThreadScheduledExecutor();
+        try {
+            TSocket transport = new TSocket(socket);
+            TProtocol in = new TBinaryProtocol(new TFramedTransport(transport));
+            final TProtocol out = new TBinaryProtocol(new TFramedTransport(transport));
+            while (!stopped) {
+                TMessage msg = in.readMessageBegin();
+                final List<String> logs = record ? new ArrayList<String>() : null;
+                final int n = readLogArgs(in, logs);
+                in.readMessageEnd();
+                final int seqid = msg.seqid;
+                long call = calls.incrementAndGet();
+                int every = resetEvery;
+                if (every > 0 && call % every == 0) {
+                    resets.incrementAndGet();
+                    // RST instead of FIN, like a crashed server.
+                    socket.setSoLinger(true, 0);
+                    socket.close();
+                    break;
+                }
+                final ResultCode result = random.nextDouble() < tryLaterRatio ? ResultCode.TRY_LATER : ResultCode.OK;
+                replier.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        // counted before replying, so a client seeing the ack sees the counts too.
+                        count(result, n, logs, 1);
+                        try {
+                            reply(out, seqid, result);
+                        } catch (TException ex) {
+                            // client closed, never acked.
+                            count(result, n, logs, -1);
+                        }
+                    }
+                }, replyDelayNanos(n), TimeUnit.NANOSECONDS);
+            }
+        } catch (TException ex) {
+            // client closed
+        } catch (IOException ex) {
+            // client closed
+        } finally {
+            replier.shutdown();
+        }
+    }
+
+    /**
+     * Add (#sign 1) or take back (#sign -1) a batch of #n logs answered #result.
+     */
+    private void count(ResultCode result, int n, List<String> logs, int sign) {
+        if (result != ResultCode.OK) {
+            tryLaters.addAndGet(sign * n);
+            return;
+        }
+        if (logs != null) {
+            synchronized (messages) {
+                if (sign > 0) {
+                    messages.addAll(logs);
+                } else {
+                    for (String log : logs) {
+                        messages.remove(log);
+                    }
+                }
+            }
+        }
+        received.addAndGet(sign * n);
+        batches.addAndGet(sign);
+    }
+
+    /**
+     * Delay of a reply to #n logs: the latency, or longer to keep under {@link #maxLogsPerSecond}.
+     */
+    private long replyDelayNanos(int n) {
+        long delay = TimeUnit.MILLISECONDS.toNanos(latencyMs);
+        long cap = maxLogsPerSecond;
+        if (cap <= 0) {
+            return delay;
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            capFreeNanos = Math.max(capFreeNanos, now) + n * 1000000000L / cap;
+            return Math.max(delay, capFreeNanos - now);
+        }
+    }
+
+    /**
+     * Read Log_args, count its messages and their categories, and add messages to #logs if not null.
+     */
+    private int readLogArgs(TProtocol in, List<String> logs) throws TException {
+        int n = 0;
+        in.readStructBegin();
+        while (true) {
+            TField field = in.readFieldBegin();
+            if (field.type == TType.STOP) {
+                break;
+            }
+            if (field.id == 1 && field.type == TType.LIST) {
+                TList list = in.readListBegin();
+                for (int i = 0; i < list.size; i++) {
+                    readLogEntry(in, logs);
+                }
+                in.readListEnd();
+                n += list.size;
+            } else {
+                TProtocolUtil.skip(in, field.type);
+            }
+            in.readFieldEnd();
+        }
+        in.readStructEnd();
+        return n;
+    }
+
+    private void readLogEntry(TProtocol in, List<String> logs) throws TException {
+        in.readStructBegin();
+        while (true) {
+            TField field = in.readFieldBegin();
+            if (field.type == TType.STOP) {
+                break;
+            }
+            if (field.id == 1 && field.type == TType.STRING) {
+                String category = in.readString();
+                AtomicLong n = categories.get(category);
+                if (n == null) {
+                    AtomicLong existed = categories.putIfAbsent(category, n = new AtomicLong());
+                    n = existed != null ? existed : n;
+                }
+                n.incrementAndGet();
+            } else if (field.id == 2 && field.type == TType.STRING && logs != null) {
+                logs.add(in.readString());
+            } else {
+                TProtocolUtil.skip(in, field.type);
+            }
+            in.readFieldEnd();
+        }
+        in.readStructEnd();
+    }
+
+    private static void reply(TProtocol out, int seqid, ResultCode result) throws TException {
+        out.writeMessageBegin(new TMessage("Log", TMessageType.REPLY, seqid));
+        out.writeStructBegin(RESULT_STRUCT);
+        out.writeFieldBegin(SUCCESS_FIELD);
+        out.writeI32(result.getValue());
+        out.writeFieldEnd();
+        out.writeFieldStop();
+        out.writeStructEnd();
+        out.writeMessageEnd();
+        out.getTransport().flush();
+    }
+
+    public long received() {
+        return received.get();
+    }
+
+    public long batches() {
+        return batches.get();
+    }
+
+    /**
+     * Messages received with {@link #record(boolean)} on, in the order answered OK.
+     */
+    public List<String> messages() {
+        synchronized (messages) {
+            return new ArrayList<String>(messages);
+        }
+    }
+
+    /**
+     * Number of logs answered TRY_LATER.
+     */
+    public long tryLaters() {
+        return tryLaters.get();
+    }
+
+    /**
+     * Number of connections reset by {@link #resetEvery(int)}.
+     */
+    public long resets() {
+        return resets.get();
+    }
+
+    /**
+     * Number of logs read of #category.
+     */
+    public long received(String category) {
+        AtomicLong n = categories.get(category);
+        return n == null ? 0 : n.get();
+    }
+
+    /**
+     * Number of connections accepted.
+     */
+    public int connections() {
+        return sockets.size();
+    }
+
+    /**
+     * Wait until at least #expected logs received or #timeoutMs elapsed.
+     *
+     * @return received count.
+     */
+    public long await(long expected, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (received.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        return received.get();
+    }
+
+    /**
+     * Stop accepting and reset all connections.
+     */
+    public void stop() throws IOException {
+        stopped = true;
+        server.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+}
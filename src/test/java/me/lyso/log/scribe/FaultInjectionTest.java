@@ -0,0 +1,160 @@
+/**
+ * FaultInjectionTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:42:10 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Delivery and loss of a pipelined sender on a zookeeper path, against {@link FakeScribeServer}s with faults
+ * injected and listed by {@link LocalServers}.
+ *
+ * @author leo
+ */
+public class FaultInjectionTest {
+    private static final String PATH = "/services/scribe/fault-test/";
+    private static final int LOGS = 100000;
+
+    private final LocalServers zk = new LocalServers();
+
+    @Before
+    public void setUp() {
+        zk.install();
+    }
+
+    @After
+    public void tearDown() {
+        zk.uninstall();
+    }
+
+    /**
+     * Logger of #category on its own zookeeper path, loggers of other tests keep running.
+     */
+    private static ScribeLogger logger(String category) {
+        return logger(category, LoadBalance.Sticky);
+    }
+
+    private static ScribeLogger logger(String category, LoadBalance balance) {
+        ScribeLoggerConfig config = new ScribeLoggerConfig().maxInFlightBatches(4).batchSize(100)
+                .serverWatchMs(100).publishPolicy(PublishPolicy.Block).tryLater(5, 200, 100)
+                .reconnectBackoffMs(10, 100).loadBalance(balance);
+        return ScribeLogger.builder(category).zkPath(PATH + category).config(config).build();
+    }
+
+    /**
+     * Log #n and wait until servers receive all or stop answering.
+     *
+     * @return millis elapsed.
+     */
+    private static long send(ScribeLogger logger, int n, FakeScribeServer... servers) throws InterruptedException {
+        long begin = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            logger.log("fault log " + i);
+        }
+        long last = -1;
+        long answered;
+        while (received(servers) < n && (answered = answered(servers)) != last) {
+            last = answered;
+            Thread.sleep(500);
+        }
+        return System.currentTimeMillis() - begin;
+    }
+
+    private static long received(FakeScribeServer... servers) {
+        long n = 0;
+        for (FakeScribeServer server : servers) {
+            n += server.received();
+        }
+        return n;
+    }
+
+    private static long answered(FakeScribeServer... servers) {
+        long n = 0;
+        for (FakeScribeServer server : servers) {
+            n += server.received() + server.tryLaters();
+        }
+        return n;
+    }
+
+    @Test
+    public void testTryLater() throws Exception {
+        FakeScribeServer busy = new FakeScribeServer(1).tryLater(0.3);
+        zk.set(PATH + "busy", busy);
+        ScribeLogger logger = logger("busy");
+        send(logger, LOGS, busy);
+        // answered TRY_LATER, but all resent.
+        Assert.assertTrue(busy.tryLaters() > 0);
+        Assert.assertEquals(LOGS, busy.received());
+        Assert.assertEquals(0, logger.pendingRetries());
+        busy.stop();
+    }
+
+    @Test
+    public void testTryLaterOrder() throws Exception {
+        FakeScribeServer busy = new FakeScribeServer(1).tryLater(0.3).record(true);
+        zk.set(PATH + "ordered", busy);
+        ScribeLogger logger = logger("ordered");
+        send(logger, LOGS, busy);
+        List<String> messages = busy.messages();
+        Assert.assertEquals(LOGS, messages.size());
+        // only the 4 batches in flight when TRY_LATER comes back may pass a resent one.
+        int maxShift = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            int n = Integer.parseInt(messages.get(i).substring("fault log ".length()));
+            maxShift = Math.max(maxShift, Math.abs(n - i));
+        }
+        Assert.assertTrue("shifted " + maxShift, maxShift <= 4 * 100);
+        busy.stop();
+    }
+
+    @Test
+    public void testResets() throws Exception {
+        FakeScribeServer crashing = new FakeScribeServer(1).resetEvery(50);
+        FakeScribeServer good = new FakeScribeServer(1);
+        zk.set(PATH + "crashing", crashing, good);
+        // spread, so the crashing server keeps being reconnected and chosen.
+        ScribeLogger logger = logger("crashing", LoadBalance.LeastOutstanding);
+        send(logger, LOGS, crashing, good);
+        long received = crashing.received() + good.received();
+        Assert.assertTrue(crashing.resets() > 0);
+        Assert.assertTrue(crashing.connections() > 1);
+        Assert.assertTrue(received > LOGS / 2);
+        crashing.stop();
+        good.stop();
+    }
+
+    @Test
+    public void testThroughputCap() throws Exception {
+        FakeScribeServer slow = new FakeScribeServer(0).maxLogsPerSecond(LOGS);
+        zk.set(PATH + "capped", slow);
+        ScribeLogger logger = logger("capped");
+        long ms = send(logger, LOGS, slow);
+        Assert.assertEquals(LOGS, slow.received());
+        Assert.assertTrue(ms >= 900);
+        slow.stop();
+    }
+
+    @Test
+    public void testServersChange() throws Exception {
+        FakeScribeServer first = new FakeScribeServer(0);
+        FakeScribeServer second = new FakeScribeServer(0);
+        zk.set(PATH + "moving", first);
+        ScribeLogger logger = logger("moving");
+        send(logger, 1000, first);
+        zk.set(PATH + "moving", second);
+        Thread.sleep(500);
+        send(logger, 1000, second);
+        Assert.assertEquals(1000, first.received());
+        Assert.assertEquals(1000, second.received());
+        first.stop();
+        second.stop();
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * LocalServers.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:08:35 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in of zookeeper for the "servers" property of scribe paths, so a {@link LogSender} on a zookeeper path
+ * connects to {@link FakeScribeServer}s, and sees them change through its {@link ScribeServerWatcher}.
+ *
+ * @author leo
+ */
+public class LocalServers implements LogClientHelper.ServersSource {
+    private final ConcurrentHashMap<String, String> paths = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Serve servers of all zookeeper paths from this, until {@link #uninstall()}.
+     */
+    public LocalServers install() {
+        LogClientHelper.serversSource(this);
+        return this;
+    }
+
+    public void uninstall() {
+        LogClientHelper.serversSource(LogClientHelper.ZOOKEEPER);
+    }
+
+    /**
+     * Set "servers" of #zkPath to #servers.
+     */
+    public LocalServers set(String zkPath, FakeScribeServer... servers) {
+        StringBuilder sb = new StringBuilder();
+        for (FakeScribeServer server : servers) {
+            sb.append(sb.length() == 0 ? "" : ",").append(server.host()).append(':').append(server.port());
+        }
+        paths.put(zkPath, sb.toString());
+        return this;
+    }
+
+    @Override
+    public String servers(String zkPath) {
+        return paths.get(zkPath);
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * LogPackerTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 2:48:30 PM
+ */
+package me.lyso.log.scribe;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import me.lyso.log.usage.MessageDirection;
+import me.lyso.log.usage.UsageLog;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Packed lines come back by {@link LogUnpacker}, the default dictionary never changes, and compression ratio of a
+ * usage log corpus.
+ *
+ * @author leo
+ */
+public class LogPackerTest {
+    private static final int LINES = 20000;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        LogBatch batch = new LogBatch("usage", 8);
+        String[] lines = {"a,b,c", "", "中文,😀,é", "perf line", "x"};
+        String[] categories = {null, "perf", null, "perf", "error"};
+        for (int i = 0; i < lines.length; i++) {
+            batch.add(lines[i], 0, categories[i]);
+        }
+        batch.pack(new LogPacker(6, LogPacker.DEFAULT_DICTIONARY));
+        List<scribe.thrift.LogEntry> logs = batch.logs();
+        Assert.assertEquals(3, logs.size());
+        LogUnpacker unpacker = new LogUnpacker();
+        Assert.assertEquals("usage", logs.get(0).getCategory());
+        Assert.assertEquals(Arrays.asList("a,b,c", "中文,😀,é"), unpacker.unpack(logs.get(0).getMessage()));
+        Assert.assertEquals("perf", logs.get(1).getCategory());
+        Assert.assertEquals(Arrays.asList("", "perf line"), unpacker.unpack(logs.get(1).getMessage()));
+        Assert.assertEquals(Arrays.asList("x"), unpacker.unpack(logs.get(2).getMessage()));
+        Assert.assertEquals(Arrays.asList("plain"), unpacker.unpack("plain"));
+        // spilled as original lines.
+        Assert.assertEquals(5, batch.size());
+        Assert.assertEquals("perf line", batch.message(3).toString());
+
+        byte[] dictionary = "my,own,dictionary".getBytes(Utf8Buffer.UTF8);
+        batch.pack(new LogPacker(1, dictionary));
+        String packed = batch.logs().get(0).getMessage();
+        try {
+            unpacker.unpack(packed);
+            Assert.fail("Unknown dictionary should fail.");
+        } catch (IOException ex) {
+            // expected
+        }
+        Assert.assertEquals(2, new LogUnpacker(dictionary).unpack(packed).size());
+    }
+
+    @Test
+    public void testDictionaryFrozen() {
+        // messages packed in the past are unpacked by this checksum, never change it.
+        Adler32 adler = new Adler32();
+        adler.update(LogPacker.DEFAULT_DICTIONARY);
+        Assert.assertEquals(0x97404d29L, adler.getValue());
+    }
+
+    @Test
+    public void testRatio() throws IOException {
+        List<String> corpus = corpus(LINES);
+        LogUnpacker unpacker = new LogUnpacker();
+        for (int batchSize : new int[] {50, 1000}) {
+            for (int level : new int[] {1, 6, 9}) {
+                double plain = ratio(corpus, batchSize, new LogPacker(level, null), unpacker);
+                double dictionary = ratio(corpus, batchSize, new LogPacker(level, LogPacker.DEFAULT_DICTIONARY),
+                        unpacker);
+                Assert.assertTrue("ratio " + plain, plain > 2);
+                // the dictionary pays off most in small batches.
+                if (batchSize == 50) {
+                    Assert.assertTrue(dictionary + " vs " + plain, dictionary > plain);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pack #corpus in batches of #batchSize, each must come back by #unpacker.
+     *
+     * @return raw bytes over packed.
+     */
+    private static double ratio(List<String> corpus, int batchSize, LogPacker packer, LogUnpacker unpacker)
+            throws IOException {
+        LogBatch batch = new LogBatch("usage", batchSize);
+        long raw = 0;
+        long packed = 0;
+        for (int from = 0; from < corpus.size(); from += batchSize) {
+            batch.reset();
+            for (String line : corpus.subList(from, from + batchSize)) {
+                batch.add(line, 0);
+                raw += batch.message(batch.size() - 1).length();
+            }
+            batch.pack(packer);
+            String message = batch.logs().get(0).getMessage();
+            packed += message.length();
+            Assert.assertEquals(corpus.subList(from, from + batchSize), unpacker.unpack(message));
+        }
+        packer.close();
+        return raw / (double) packed;
+    }
+
+    /**
+     * Usage logs of a few apps and actions, many users and messages, also packed by PackBenchmark.
+     */
+    static List<String> corpus(int n) {
+        Random rand = new Random(42);
+        String[] apps = {"10001", "10002", "20031", "30045"};
+        String[] packages = {"me.lyso.chat", "me.lyso.game", "com.example.shop", "com.example.news"};
+        UsageAction[] actions = UsageAction.values();
+        List<String> lines = new ArrayList<String>(n);
+        long ts = 1400000000000L;
+        for (int i = 0; i < n; i++) {
+            int app = rand.nextInt(apps.length);
+            ts += rand.nextInt(20);
+            UsageLog log = new UsageLog().setTimestamp(ts).setModule("fe")
+                    .setDir(rand.nextBoolean() ? MessageDirection.ClientToServer : MessageDirection.ServerToClient)
+                    .setAction(actions[rand.nextInt(actions.length)].name())
+                    .setUuid(String.valueOf(rand.nextInt(1000000)))
+                    .setResource("res" + rand.nextInt(8)).setMsgId(Long.toHexString(rand.nextLong()))
+                    .setFromIp("10.0." + rand.nextInt(4) + "." + rand.nextInt(256)).setChid(rand.nextInt(4))
+                    .setClientIp("172.16." + rand.nextInt(256) + "." + rand.nextInt(256))
+                    .setMessageCreateTimestamp(ts - rand.nextInt(1000)).setAppId(apps[app])
+                    .setPackageName(packages[app]).setOs(rand.nextBoolean() ? "android" : "ios")
+                    .setModel("model-" + rand.nextInt(30));
+            lines.add(log.build());
+        }
+        return lines;
+    }
+}
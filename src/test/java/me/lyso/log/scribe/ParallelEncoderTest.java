@@ -0,0 +1,149 @@
+/**
+ * ParallelEncoderTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 3:40:18 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.lyso.log.usage.MessageDirection;
+import me.lyso.log.usage.UsageLog;
+
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import scribe.thrift.LogEntry;
+import scribe.thrift.ResultCode;
+
+/**
+ * Deferred logs formatted by the sender itself or by {@link LogEncoder}s all reach the server, those of each
+ * producer in order. EncoderBenchmark measures the throughput of 0 to 8 encoders.
+ *
+ * @author leo
+ */
+public class ParallelEncoderTest {
+    private static final int PRODUCERS = 4;
+    private static final int LOGS_PER_PRODUCER = 50000;
+
+    /**
+     * A usage record tagged with producer and its sequence, formatted as "producer:seq,usage...".
+     */
+    private static class TaggedLog implements DeferredLog {
+        private final UsageLog usage = new UsageLog();
+        private final StringBuilder sb = new StringBuilder();
+        private int producer;
+        private long seq;
+
+        @Override
+        public DeferredLog newSlot() {
+            return new TaggedLog();
+        }
+
+        @Override
+        public void copyTo(DeferredLog slot) {
+            TaggedLog to = (TaggedLog) slot;
+            to.producer = producer;
+            to.seq = seq;
+            usage.copyTo(to.usage);
+        }
+
+        @Override
+        public CharSequence format() {
+            sb.setLength(0);
+            return sb.append(producer).append(':').append(seq).append(',').append(usage.format());
+        }
+    }
+
+    /**
+     * Checks sequence of each producer only grows.
+     */
+    private static class OrderCheckingClient implements scribe.thrift.scribe.Iface {
+        private final long[] last = new long[PRODUCERS];
+        private final AtomicLong received = new AtomicLong();
+        private volatile String error;
+
+        OrderCheckingClient() {
+            Arrays.fill(last, -1);
+        }
+
+        @Override
+        public ResultCode Log(List<LogEntry> messages) throws TException {
+            for (LogEntry log : messages) {
+                String m = log.getMessage();
+                int colon = m.indexOf(':');
+                int producer = Integer.parseInt(m.substring(0, colon));
+                long seq = Long.parseLong(m.substring(colon + 1, m.indexOf(',')));
+                if (seq <= last[producer] && error == null) {
+                    error = "producer " + producer + " got " + seq + " after " + last[producer];
+                }
+                last[producer] = seq;
+            }
+            received.addAndGet(messages.size());
+            return ResultCode.OK;
+        }
+
+        long await(long expected, long timeoutMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (received.get() < expected && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            return received.get();
+        }
+    }
+
+    @Test
+    public void testEncoders() throws Exception {
+        for (int encoders : new int[] {0, 1, 4}) {
+            run(encoders);
+        }
+    }
+
+    private void run(int encoders) throws Exception {
+        OrderCheckingClient client = new OrderCheckingClient();
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 14).batchSize(1000)
+                .publishPolicy(PublishPolicy.Block).encoders(encoders);
+        final ScribeLogger logger = new ScribeLogger(new LogSender("usage", client, config), config,
+                WaitStrategyType.Yielding, new SenderThreadFactory("encoder-test"));
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(PRODUCERS);
+        for (int t = 0; t < PRODUCERS; t++) {
+            final int producer = t;
+            new Thread("producer-" + t) {
+                @Override
+                public void run() {
+                    TaggedLog log = new TaggedLog();
+                    log.producer = producer;
+                    log.usage.setDir(MessageDirection.ClientToServer).setAction("msg_sent")
+                            .setResource("res,with,comma").setMsgId("msg-0123456789").setAppId("app")
+                            .setPackageName("me.lyso.app").setTopicOrAlias("topic").setModule("bench")
+                            .setMessageCreateTimestamp(1400000000000L).setCount(2);
+                    try {
+                        start.await();
+                        for (int i = 0; i < LOGS_PER_PRODUCER; i++) {
+                            log.seq = i;
+                            log.usage.setUuid("uuid-" + (i & 1023)).setChid(i);
+                            logger.logDeferred(log);
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        long total = (long) PRODUCERS * LOGS_PER_PRODUCER;
+        start.countDown();
+        done.await();
+        long received = client.await(total, 20000);
+        Assert.assertNull(client.error, client.error);
+        Assert.assertEquals(total, received);
+        logger.close();
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * PipelinedSenderTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 2:48:02 PM
+ */
+package me.lyso.log.scribe;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Pipelined sending with 1 to 8 batches in flight delivers all logs, against a scribe server with 5ms round-trip.
+ * EndToEndBenchmark measures the throughput.
+ *
+ * @author leo
+ */
+public class PipelinedSenderTest {
+    private static final int LOGS = 40000;
+
+    @Test
+    public void testInFlightBatches() throws Exception {
+        for (int inFlight = 1; inFlight <= 8; inFlight <<= 1) {
+            run(inFlight);
+        }
+    }
+
+    private void run(int inFlight) throws Exception {
+        FakeScribeServer server = new FakeScribeServer(5);
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 14).batchSize(200)
+                .maxInFlightBatches(inFlight).publishPolicy(PublishPolicy.Block);
+        ScribeLogger logger = new ScribeLogger(new LogSender("usage", server.host(), server.port(), config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("pipelined-" + inFlight));
+        for (int i = 0; i < LOGS; i++) {
+            Assert.assertTrue(logger.log("pipelined log " + i));
+        }
+        Assert.assertEquals(LOGS, server.await(LOGS, 30000));
+        Assert.assertTrue(server.batches() >= LOGS / 200);
+        logger.close();
+        server.stop();
+    }
+}
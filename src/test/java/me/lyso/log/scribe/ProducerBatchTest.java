@@ -0,0 +1,115 @@
+/**
+ * ProducerBatchTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:42:09 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link ScribeLogger#logBatched(CharSequence)} flushed on size, on {@link ScribeLogger#flushBatched()}, and by the
+ * timer after linger without blocking it; and requests of 3 lines all arrive with or without it.
+ * ProducerBatchBenchmark measures the cost against {@link ScribeLogger#log(CharSequence)}.
+ *
+ * @author leo
+ */
+public class ProducerBatchTest {
+    private static ScribeLogger logger(CountingScribeClient client, ScribeLoggerConfig config) {
+        return new ScribeLogger(new LogSender("producer", client, config), config, WaitStrategyType.Sleeping,
+                new SenderThreadFactory("producer-batch"));
+    }
+
+    @Test
+    public void testFlush() throws InterruptedException {
+        CountingScribeClient client = new CountingScribeClient();
+        ScribeLogger logger = logger(client, new ScribeLoggerConfig().producerBatch(10, 60000));
+        for (int i = 0; i < 25; i++) {
+            Assert.assertTrue(logger.logBatched("batched " + i));
+        }
+        // 2 full batches in ring, 5 left in this thread.
+        Assert.assertEquals(20, client.await(25, 500));
+        Assert.assertTrue(logger.flushBatched());
+        Assert.assertEquals(25, client.await(25, 5000));
+    }
+
+    @Test
+    public void testLinger() throws InterruptedException {
+        CountingScribeClient client = new CountingScribeClient();
+        ScribeLogger logger = logger(client, new ScribeLoggerConfig().producerBatch(100, 20));
+        for (int i = 0; i < 5; i++) {
+            logger.logBatched("lingering " + i);
+        }
+        Assert.assertEquals(5, client.await(5, 5000));
+    }
+
+    @Test
+    public void testLingerLatency() throws InterruptedException {
+        CountingScribeClient client = new CountingScribeClient();
+        ScribeLogger logger = logger(client, new ScribeLoggerConfig().producerBatch(100, 50));
+        try {
+            for (int i = 0; i < 5; i++) {
+                logger.logBatched("lingering " + i);
+            }
+            Assert.assertEquals(5, client.await(5, 5000));
+            // the time buffered counts, not the time put into ring.
+            Assert.assertTrue(logger.latency().percentile(50) >= TimeUnit.MILLISECONDS.toMicros(40));
+        } finally {
+            logger.close();
+        }
+    }
+
+    @Test
+    public void testTimerNeverBlocks() throws InterruptedException {
+        CountingScribeClient client = new CountingScribeClient(300);
+        ScribeLogger logger = logger(client, new ScribeLoggerConfig().ringSize(16).batchSize(16)
+                .publishPolicy(PublishPolicy.Block).producerBatch(8, 5));
+        try {
+            // the sender is stuck in a send, and ring is full.
+            int accepted = 0;
+            for (int i = 0; i < 16; i++) {
+                accepted += logger.log("stuck " + i, PublishPolicy.Drop) ? 1 : 0;
+            }
+            Thread.sleep(50);
+            for (int i = 0; i < 16; i++) {
+                accepted += logger.log("full " + i, PublishPolicy.Drop) ? 1 : 0;
+            }
+            Assert.assertEquals(0, logger.ringRemaining());
+            logger.logBatched("kept");
+            Thread.sleep(50);
+            // the timer found no room, and let go of this thread's batch.
+            long begin = System.nanoTime();
+            Assert.assertTrue(logger.logBatched("more"));
+            Assert.assertTrue(System.nanoTime() - begin < TimeUnit.MILLISECONDS.toNanos(50));
+            Assert.assertTrue(logger.flushBatched());
+            Assert.assertEquals(accepted + 2, client.await(accepted + 2, 5000));
+        } finally {
+            logger.close();
+        }
+    }
+
+    @Test
+    public void testRequests() throws InterruptedException {
+        final int requests = 20000;
+        for (int batch : new int[] {0, 64}) {
+            ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 16).publishPolicy(PublishPolicy.Block);
+            if (batch > 0) {
+                config.producerBatch(batch, ScribeLoggerConfig.DEFAULT_PRODUCER_LINGER_MS);
+            }
+            CountingScribeClient client = new CountingScribeClient();
+            ScribeLogger logger = logger(client, config);
+            for (int i = 0; i < requests; i++) {
+                Assert.assertTrue(logger.logBatched("10.0.0.1,msg,1001@lyso.me/a,1002@lyso.me,42,chat"));
+                Assert.assertTrue(logger.logBatched("10.0.0.1,msg_sent,1001@lyso.me/a,1002@lyso.me,42,chat"));
+                Assert.assertTrue(logger.logBatched("10.0.0.1,dlvr,1001@lyso.me/a,1002@lyso.me,42,chat"));
+                Assert.assertTrue(logger.flushBatched());
+            }
+            Assert.assertEquals(3L * requests, client.await(3L * requests, 30000));
+            logger.close();
+        }
+    }
+}
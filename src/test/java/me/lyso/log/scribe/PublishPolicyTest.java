@@ -0,0 +1,120 @@
+/**
+ * PublishPolicyTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 5:40:18 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Accepted logs of each {@link PublishPolicy} arrive while the sender is saturated by a slow scribe client,
+ * {@link PublishPolicy#DropOldest} against a stuck sender, and invalid policies. PublishPolicyBenchmark measures
+ * the caller latency of each.
+ *
+ * @author leo
+ */
+public class PublishPolicyTest {
+    private static final int THREADS = 4;
+    private static final int LOGS_PER_THREAD = 5000;
+
+    @Test
+    public void testPolicies() throws InterruptedException {
+        for (PublishPolicy policy : PublishPolicy.values()) {
+            run(policy);
+        }
+    }
+
+    @Test
+    public void testDropOldestStuck() throws InterruptedException {
+        CountingScribeClient client = new CountingScribeClient(300);
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(16).publishPolicy(PublishPolicy.DropOldest);
+        ScribeLogger logger = new ScribeLogger(new LogSender("usage", client, config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("drop-oldest-stuck"));
+        int accepted = 0;
+        long begin = System.nanoTime();
+        // the sender is in a 300ms send, nothing can be shed meanwhile.
+        for (int i = 0; i < 100; i++) {
+            accepted += logger.log("stuck log " + i) ? 1 : 0;
+        }
+        long ms = (System.nanoTime() - begin) / 1000000;
+        Assert.assertTrue("took " + ms + "ms", ms < 250);
+        Assert.assertTrue(accepted < 100);
+        // a request taken while the publisher waits drops an accepted log; those not taken are withdrawn, so logs
+        // after the ring drained are not shed.
+        while (logger.ringRemaining() < 16) {
+            Thread.sleep(1);
+        }
+        long shed = ((ScribeLoggerMetrics) logger.metrics()).dropped(ScribeMetrics.Drop.DropOldest);
+        Assert.assertEquals(accepted - shed, client.await(accepted - shed, 5000));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(logger.log("later log " + i));
+        }
+        Assert.assertEquals(accepted - shed + 10, client.await(accepted - shed + 10, 5000));
+        Assert.assertEquals(shed, ((ScribeLoggerMetrics) logger.metrics()).dropped(ScribeMetrics.Drop.DropOldest));
+        logger.close();
+    }
+
+    @Test
+    public void testInvalid() {
+        try {
+            new ScribeLoggerConfig().publishPolicy(null);
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            new ScribeLoggerConfig().publishPolicy(PublishPolicy.BlockWithTimeout);
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        ScribeLoggerConfig config = new ScribeLoggerConfig().publishTimeoutMicros(100)
+                .publishPolicy(PublishPolicy.BlockWithTimeout);
+        Assert.assertEquals(100, config.publishTimeoutMicros());
+    }
+
+    private void run(final PublishPolicy policy) throws InterruptedException {
+        CountingScribeClient client = new CountingScribeClient(2);
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 10).batchSize(100);
+        if (policy == PublishPolicy.BlockWithTimeout) {
+            config.publishTimeoutMicros(500);
+        } else {
+            config.publishPolicy(policy);
+        }
+        final ScribeLogger logger = new ScribeLogger(new LogSender("usage", client, config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("policy-" + policy));
+        final AtomicLong accepted = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < LOGS_PER_THREAD; i++) {
+                        if (logger.log("policy log " + i)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+        // shed logs never arrive, so don't wait long for them.
+        long received = client.await(accepted.get(), policy == PublishPolicy.DropOldest ? 2000 : 30000);
+        if (policy == PublishPolicy.Block) {
+            Assert.assertEquals(THREADS * LOGS_PER_THREAD, accepted.get());
+        }
+        if (policy == PublishPolicy.DropOldest) {
+            Assert.assertTrue(received <= accepted.get());
+        } else {
+            Assert.assertEquals(accepted.get(), received);
+        }
+        logger.close();
+    }
+}
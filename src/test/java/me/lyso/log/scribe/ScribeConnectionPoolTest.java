@@ -0,0 +1,182 @@
+/**
+ * ScribeConnectionPoolTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:51:37 PM
+ */
+package me.lyso.log.scribe;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import scribe.thrift.ResultCode;
+
+/**
+ * Balancing between a fast and a slow scribe server, sticking to one, ejecting a stopped one, and swapping servers
+ * watched.
+ *
+ * @author leo
+ */
+public class ScribeConnectionPoolTest {
+    private static final int BATCHES = 200;
+    private static final long MIN_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 1000;
+
+    private static class Counter implements ScribeConnection.Listener {
+        private final AtomicInteger acked = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        @Override
+        public void onAck(LogBatch batch, ResultCode result, long rttNanos) {
+            acked.incrementAndGet();
+        }
+
+        @Override
+        public void onFail(LogBatch batch, Exception ex) {
+            failed.incrementAndGet();
+        }
+
+        private void await(int expected, long timeoutMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (acked.get() + failed.get() < expected && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Test
+    public void testBalance() throws Exception {
+        for (LoadBalance balance : new LoadBalance[] {LoadBalance.LeastOutstanding, LoadBalance.Latency}) {
+            FakeScribeServer fast = new FakeScribeServer(1);
+            FakeScribeServer slow = new FakeScribeServer(20);
+            Counter counter = new Counter();
+            ScribeConnectionPool pool = new ScribeConnectionPool(Arrays.asList(address(fast), address(slow)),
+                    "usage", balance, MIN_BACKOFF_MS, MAX_BACKOFF_MS, counter);
+            for (int i = 0; i < BATCHES; i++) {
+                ScribeConnection conn = pool.choose();
+                Assert.assertNotNull(conn);
+                conn.send(batch());
+                Thread.sleep(1);
+            }
+            counter.await(BATCHES, 5000);
+            Assert.assertEquals(BATCHES, fast.batches() + slow.batches());
+            Assert.assertTrue(fast.batches() > slow.batches());
+            pool.close();
+            fast.stop();
+            slow.stop();
+        }
+    }
+
+    @Test
+    public void testSticky() throws Exception {
+        FakeScribeServer a = new FakeScribeServer(1);
+        FakeScribeServer b = new FakeScribeServer(1);
+        Counter counter = new Counter();
+        ScribeConnectionPool pool = new ScribeConnectionPool(Arrays.asList(address(a), address(b)),
+                "usage", LoadBalance.Sticky, MIN_BACKOFF_MS, MAX_BACKOFF_MS, counter);
+        ScribeConnection first = pool.choose();
+        for (int i = 0; i < BATCHES; i++) {
+            ScribeConnection conn = pool.choose();
+            Assert.assertSame(first, conn);
+            conn.send(batch());
+        }
+        counter.await(BATCHES, 5000);
+        FakeScribeServer stuck = a.batches() > 0 ? a : b;
+        FakeScribeServer other = stuck == a ? b : a;
+        Assert.assertEquals(BATCHES, stuck.batches());
+        // picked again only when ejected, then sticks to the other one.
+        stuck.stop();
+        first.close();
+        ScribeConnection second = pool.choose();
+        Assert.assertNotSame(first, second);
+        for (int i = 0; i < BATCHES; i++) {
+            Assert.assertSame(second, pool.choose());
+            second.send(batch());
+        }
+        counter.await(2 * BATCHES, 5000);
+        Assert.assertEquals(BATCHES, other.batches());
+        pool.close();
+        other.stop();
+    }
+
+    @Test
+    public void testEject() throws Exception {
+        FakeScribeServer a = new FakeScribeServer(1);
+        FakeScribeServer b = new FakeScribeServer(1);
+        Counter counter = new Counter();
+        ScribeConnectionPool pool = new ScribeConnectionPool(Arrays.asList(address(a), address(b)),
+                "usage", LoadBalance.LeastOutstanding, MIN_BACKOFF_MS, MAX_BACKOFF_MS, counter);
+        b.stop();
+        // first sends to b may fail before its reader notices the reset.
+        for (int i = 0; i < BATCHES; i++) {
+            ScribeConnection conn = pool.choose();
+            Assert.assertNotNull(conn);
+            conn.send(batch());
+            Thread.sleep(1);
+        }
+        counter.await(BATCHES, 5000);
+        Assert.assertEquals(BATCHES, a.batches() + counter.failed.get());
+        Assert.assertTrue(counter.failed.get() < 5);
+        Assert.assertTrue(pool.isAvailable());
+        pool.close();
+        a.stop();
+    }
+
+    @Test
+    public void testWatchAndDrain() throws Exception {
+        FakeScribeServer a = new FakeScribeServer(20);
+        FakeScribeServer b = new FakeScribeServer(20);
+        Counter counter = new Counter();
+        final ScribeConnectionPool pool = new ScribeConnectionPool(Arrays.asList(address(a)),
+                "usage", LoadBalance.LeastOutstanding, MIN_BACKOFF_MS, MAX_BACKOFF_MS, counter);
+        final AtomicReference<List<InetSocketAddress>> zk = new AtomicReference<List<InetSocketAddress>>(
+                Arrays.asList(address(a)));
+        ScribeServerWatcher watcher = new ScribeServerWatcher("test", new Callable<List<InetSocketAddress>>() {
+            @Override
+            public List<InetSocketAddress> call() {
+                return zk.get();
+            }
+        }, zk.get(), 10, new ScribeServerWatcher.Listener() {
+            @Override
+            public void onServersChanged(List<InetSocketAddress> servers) {
+                pool.update(servers);
+            }
+        }).start();
+        for (int i = 0; i < BATCHES; i++) {
+            if (i == BATCHES / 2) {
+                // scale from a to b while batches are in flight on a.
+                zk.set(Arrays.asList(address(b)));
+                Thread.sleep(50);
+            }
+            pool.choose().send(batch());
+            Thread.sleep(1);
+        }
+        counter.await(BATCHES, 5000);
+        Assert.assertEquals(0, counter.failed.get());
+        Assert.assertEquals(BATCHES, a.batches() + b.batches());
+        Assert.assertEquals(BATCHES / 2, b.batches());
+        Assert.assertEquals(0, pool.draining());
+        Assert.assertEquals(1, pool.size());
+        watcher.stop();
+        pool.close();
+        a.stop();
+        b.stop();
+    }
+
+    private static InetSocketAddress address(FakeScribeServer server) {
+        return InetSocketAddress.createUnresolved(server.host(), server.port());
+    }
+
+    private static LogBatch batch() {
+        LogBatch batch = new LogBatch("usage", 1);
+        batch.add("pooled log", System.nanoTime());
+        return batch;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * ScribeLoggerConfigTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 6:40:17 PM
+ */
+package me.lyso.log.scribe;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Invalid settings are rejected, and settings depending on each other don't depend on the order they are set.
+ *
+ * @author leo
+ */
+public class ScribeLoggerConfigTest {
+    private interface Setting {
+        void set(ScribeLoggerConfig config);
+    }
+
+    private static void assertInvalid(Setting setting) {
+        try {
+            setting.set(new ScribeLoggerConfig());
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInvalid() {
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.ringSize(0);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.ringSize(1000);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.batchSize(0);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.batchIntervalMs(0);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.timerPeriodMs(-1);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.adaptiveBatch(0);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.maxInFlightBatches(-1);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.encoders(-1);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.loadBalance(null);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.reconnectBackoffMs(100, 10);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.tryLater(10, 100, -1);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.producerBatch(-1, 5);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.producerBatch(10, 0);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.spill(new File("spill"), 1 << 20, 1);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.pack(10, null);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.sample(1.5);
+            }
+        });
+        assertInvalid(new Setting() {
+            public void set(ScribeLoggerConfig config) {
+                config.rateLimit(100, 0);
+            }
+        });
+    }
+
+    @Test
+    public void testOrderFree() {
+        ScribeLoggerConfig before = new ScribeLoggerConfig().ringSize(64).producerBatch(100, 5);
+        ScribeLoggerConfig after = new ScribeLoggerConfig().producerBatch(100, 5).ringSize(64);
+        Assert.assertEquals(64, before.producerBatchSize());
+        Assert.assertEquals(64, after.producerBatchSize());
+        Assert.assertEquals(100, new ScribeLoggerConfig().producerBatch(100, 5).producerBatchSize());
+
+        Assert.assertEquals(200, new ScribeLoggerConfig().batchSize(200).adaptiveBatch(500).minBatchSize());
+        Assert.assertEquals(200, new ScribeLoggerConfig().adaptiveBatch(500).batchSize(200).minBatchSize());
+    }
+
+    @Test
+    public void testDefaults() {
+        // batches spread over servers unless a caller opts into order.
+        Assert.assertEquals(LoadBalance.LeastOutstanding, new ScribeLoggerConfig().loadBalance());
+        // batches are written from their bytes unless a caller opts into the thrift client.
+        Assert.assertEquals(ScribeLoggerConfig.DEFAULT_MAX_IN_FLIGHT_BATCHES,
+                new ScribeLoggerConfig().maxInFlightBatches());
+    }
+}
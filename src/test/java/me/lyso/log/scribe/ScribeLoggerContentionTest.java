@@ -0,0 +1,69 @@
+/**
+ * ScribeLoggerContentionTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:20:05 AM
+ */
+package me.lyso.log.scribe;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 1 to 64 producer threads logging to one {@link ScribeLogger}, every accepted log must reach the scribe client.
+ * PublishBenchmark measures the contention.
+ *
+ * @author leo
+ */
+public class ScribeLoggerContentionTest {
+    private static final int LOGS_PER_THREAD = 20000;
+
+    @Test
+    public void testMultiProducers() throws InterruptedException {
+        for (int threads = 1; threads <= 64; threads <<= 1) {
+            run(threads);
+        }
+    }
+
+    private void run(int threads) throws InterruptedException {
+        CountingScribeClient client = new CountingScribeClient();
+        final ScribeLogger logger = new ScribeLogger(new LogSender("usage", client));
+        try {
+            final AtomicLong accepted = new AtomicLong();
+            final AtomicLong dropped = new AtomicLong();
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                final int id = t;
+                new Thread("producer-" + t) {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int i = 0; i < LOGS_PER_THREAD; i++) {
+                                if (logger.log("contention log " + id + "-" + i)) {
+                                    accepted.incrementAndGet();
+                                } else {
+                                    dropped.incrementAndGet();
+                                }
+                            }
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }.start();
+            }
+            start.countDown();
+            done.await();
+            Assert.assertEquals((long) threads * LOGS_PER_THREAD, accepted.get() + dropped.get());
+            Assert.assertEquals(accepted.get(), client.await(accepted.get(), 10000));
+        } finally {
+            logger.close();
+        }
+    }
+}
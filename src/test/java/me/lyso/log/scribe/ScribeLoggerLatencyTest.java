@@ -0,0 +1,40 @@
+/**
+ * ScribeLoggerLatencyTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:48:36 AM
+ */
+package me.lyso.log.scribe;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Logs reach the client under each {@link WaitStrategyType}, including after the sender went idle.
+ * WaitStrategyBenchmark measures the latency of each.
+ *
+ * @author leo
+ */
+public class ScribeLoggerLatencyTest {
+    private static final int LOGS = 20000;
+
+    @Test
+    public void testWaitStrategies() throws InterruptedException {
+        for (WaitStrategyType type : WaitStrategyType.values()) {
+            CountingScribeClient client = new CountingScribeClient();
+            ScribeLogger logger = new ScribeLogger(new LogSender("usage", client), new ScribeLoggerConfig(), type,
+                    new SenderThreadFactory("latency-" + type));
+            try {
+                for (int i = 0; i < LOGS; i++) {
+                    logger.log("latency log " + i);
+                    if (i % 100 == 0) {
+                        Thread.sleep(1);
+                    }
+                }
+                Assert.assertEquals(LOGS, client.await(LOGS, 10000));
+            } finally {
+                logger.close();
+            }
+        }
+    }
+}
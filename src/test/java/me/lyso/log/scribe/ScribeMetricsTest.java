@@ -0,0 +1,124 @@
+/**
+ * ScribeMetricsTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 2:36:18 PM
+ */
+package me.lyso.log.scribe;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link ScribeLoggerMetrics} read over JMX, drops counted by reason, histograms windowed, and metrics allocate
+ * nothing.
+ *
+ * @author leo
+ */
+public class ScribeMetricsTest {
+    private static final int LOGS = 10000;
+
+    private static ScribeLogger logger(String category, CountingScribeClient client, ScribeLoggerConfig config) {
+        return new ScribeLogger(new LogSender(category, client, config), config, WaitStrategyType.Sleeping,
+                new SenderThreadFactory("metrics-" + category));
+    }
+
+    private static Object attribute(String category, String attribute) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("me.lyso.log.scribe:type=ScribeLogger,category=" + ObjectName.quote(category));
+        return server.getAttribute(name, attribute);
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        CountingScribeClient client = new CountingScribeClient();
+        ScribeLogger logger = logger("jmx-test", client, new ScribeLoggerConfig().batchSize(100)
+                .metrics(new ScribeLoggerMetrics(100)));
+        for (int i = 0; i < LOGS; i++) {
+            while (!logger.log("metrics log " + i)) {
+                Thread.sleep(1);
+            }
+        }
+        Assert.assertEquals(LOGS, client.await(LOGS, 10000));
+        Thread.sleep(100);
+        Assert.assertEquals(ScribeLoggerConfig.DEFAULT_RING_SIZE, attribute("jmx-test", "RingSize"));
+        Assert.assertEquals((long) LOGS, attribute("jmx-test", "LogsSent"));
+        Assert.assertEquals((long) LOGS, attribute("jmx-test", "LogsAcked"));
+        Assert.assertTrue((Long) attribute("jmx-test", "BytesSent") > LOGS * 12L);
+        Assert.assertTrue((Long) attribute("jmx-test", "BatchesSent") >= LOGS / 100);
+        Assert.assertTrue((Long) attribute("jmx-test", "BatchSizeMax") <= 100);
+        Assert.assertTrue((Long) attribute("jmx-test", "AckLatencyMaxMicros") > 0);
+        logger.close();
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                new ObjectName("me.lyso.log.scribe:type=ScribeLogger,category=" + ObjectName.quote("jmx-test"))));
+    }
+
+    @Test
+    public void testDrops() throws Exception {
+        CountingScribeClient client = new CountingScribeClient(5);
+        ScribeLogger logger = logger("drop-test", client, new ScribeLoggerConfig().ringSize(64).batchSize(10)
+                .sample(0.5));
+        ScribeLoggerMetrics metrics = (ScribeLoggerMetrics) logger.metrics();
+        int published = 0;
+        for (int i = 0; i < LOGS; i++) {
+            published += logger.logSampled("key" + i, "drop log " + i) ? 1 : 0;
+        }
+        Assert.assertEquals(published, client.await(published, 20000));
+        Assert.assertEquals(logger.admission().sampledOut(), metrics.dropped(ScribeMetrics.Drop.Sampled));
+        Assert.assertEquals(LOGS - published, metrics.dropped(ScribeMetrics.Drop.Sampled)
+                + metrics.dropped(ScribeMetrics.Drop.RingFull));
+        Assert.assertTrue(metrics.dropped(ScribeMetrics.Drop.RingFull) > 0);
+        Assert.assertEquals(0, metrics.dropped(ScribeMetrics.Drop.SendFailed));
+        logger.close();
+    }
+
+    @Test
+    public void testWindow() throws InterruptedException {
+        ScribeLoggerMetrics metrics = new ScribeLoggerMetrics(50);
+        for (int i = 1; i <= 1000; i++) {
+            metrics.acked(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        // the window is not over yet.
+        Assert.assertEquals(0, metrics.getAckLatencyMaxMicros());
+        Thread.sleep(60);
+        Assert.assertTrue(metrics.getAckLatencyP50Micros() >= 500000);
+        Assert.assertTrue(metrics.getAckLatencyMaxMicros() >= 1000000);
+        // fast acks of the next window don't mix with the slow ones.
+        for (int i = 0; i < 1000; i++) {
+            metrics.acked(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        Thread.sleep(60);
+        Assert.assertTrue(metrics.getAckLatencyMaxMicros() < 200);
+        Thread.sleep(60);
+        Assert.assertEquals(0, metrics.getAckLatencyMaxMicros());
+        Assert.assertEquals(2000, metrics.getLogsAcked());
+    }
+
+    @Test
+    public void testAllocationFree() {
+        ScribeLoggerMetrics metrics = new ScribeLoggerMetrics();
+        for (int round = 0; round < 2; round++) {
+            long before = allocated();
+            for (int i = 0; i < 100000; i++) {
+                metrics.batchSent(100, 12000);
+                metrics.acked(i * 1000L);
+                metrics.dropped(ScribeMetrics.Drop.RingFull, 1);
+            }
+            // the first round warms up.
+            if (round == 1) {
+                Assert.assertTrue(allocated() - before < 1024);
+            }
+        }
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * ScribePerfTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 3:12:57 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.lyso.log.scribe.ScribePerf.ScribePerfHisto;
+import me.lyso.log.scribe.ScribePerf.ScribePerfName;
+
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import scribe.thrift.LogEntry;
+import scribe.thrift.ResultCode;
+
+/**
+ * Counts of many chids from many threads are all dumped, windows roll up, and late ticks are caught up.
+ * PerfCounterBenchmark measures the striped counters against the actor path.
+ *
+ * @author leo
+ */
+public class ScribePerfTest {
+    private static final int INCS_PER_THREAD = 200000;
+    private static final ScribePerfName[] NAMES = ScribePerfName.values();
+
+    /** on a 15-minute boundary */
+    private static final long T0 = 1800000000000L;
+
+    /**
+     * Keeps "name,chid" -> fields of the last perf line.
+     */
+    private static class PerfClient implements scribe.thrift.scribe.Iface {
+        private final ConcurrentHashMap<String, String[]> lines = new ConcurrentHashMap<String, String[]>();
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public ResultCode Log(List<LogEntry> messages) throws TException {
+            for (LogEntry log : messages) {
+                // name,host,start,end,count,chid,instance[,p50,p90,p99,p999,max]
+                String[] f = log.getMessage().split(",");
+                lines.put(f[0] + "," + f[5], f);
+            }
+            count.addAndGet(messages.size());
+            return ResultCode.OK;
+        }
+
+        private long get(String name, int chid, int field) {
+            return Long.parseLong(lines.get(name + "," + chid)[field]);
+        }
+
+        private boolean has(String name, int chid) {
+            return lines.containsKey(name + "," + chid);
+        }
+
+        private void await(long n) throws InterruptedException {
+            while (count.get() < n) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Test
+    public void testDump() throws InterruptedException {
+        PerfClient client = new PerfClient();
+        ScribeLogger logger = new ScribeLogger(new LogSender("perf", client));
+        final ScribePerf perf = new ScribePerf(logger, null, "host", "instance", false, ScribePerf.DefaultWindows);
+        final int[] chids = {1, 2, 300};
+        run(4, new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < INCS_PER_THREAD; i++) {
+                    perf.inc(chids[i % chids.length], NAMES[i % NAMES.length]);
+                }
+            }
+        });
+        perf.tick(T0);
+        // 4 counters of each chid, histograms without values are skipped.
+        client.await(chids.length * 4);
+        long total = 0;
+        for (int chid : chids) {
+            for (String name : new String[] {"LOGIN_SUCC_PER_15_MIN", "LOGIN_FAIL_PER_15_MIN", "MSG_PER_15_MIN"}) {
+                total += client.get(name, chid, 4);
+            }
+        }
+        // connect lines of all chids share a key, only the last one is kept.
+        total += client.get("CONNECT_TRY_PER_15_MIN", 0, 4);
+        Assert.assertTrue(total <= 4L * INCS_PER_THREAD && total >= 4L * INCS_PER_THREAD * 3 / 4);
+        perf.tick(T0 + 15 * 60 * 1000);
+        client.await(chids.length * 8);
+        Assert.assertEquals(0L, client.get("MSG_PER_15_MIN", 300, 4));
+        perf.stop();
+    }
+
+    @Test
+    public void testWindows() throws InterruptedException {
+        PerfClient client = new PerfClient();
+        ScribeLogger logger = new ScribeLogger(new LogSender("perf", client));
+        ScribePerf perf = new ScribePerf(logger, null, "host", "instance", false, 900, 10, 60);
+        long lines = 0;
+        for (int t = 1; t <= 90; t++) {
+            for (int i = 0; i < t; i++) {
+                perf.inc(7, ScribePerfName.Send);
+            }
+            if (t == 90) {
+                for (int v = 1; v <= 10000; v++) {
+                    perf.record(7, ScribePerfHisto.SendTime, v);
+                }
+            }
+            perf.tick(T0 + t * 10000L);
+            int dumps = 1 + (t % 6 == 0 ? 1 : 0) + (t == 90 ? 1 : 0);
+            lines += 4 * dumps + (t == 90 ? dumps : 0);
+            client.await(lines);
+            Assert.assertEquals(t, client.get("MSG_PER_10_SEC", 7, 4));
+        }
+        Assert.assertEquals(85 + 86 + 87 + 88 + 89 + 90, client.get("MSG_PER_1_MIN", 7, 4));
+        Assert.assertEquals(90 * 91 / 2, client.get("MSG_PER_15_MIN", 7, 4));
+        for (String name : new String[] {"SEND_TIME_US_PER_10_SEC", "SEND_TIME_US_PER_15_MIN"}) {
+            Assert.assertEquals(10000, client.get(name, 7, 4));
+            assertNear(5000, client.get(name, 7, 7));
+            assertNear(9000, client.get(name, 7, 8));
+            assertNear(9900, client.get(name, 7, 9));
+            assertNear(9990, client.get(name, 7, 10));
+            assertNear(10000, client.get(name, 7, 11));
+        }
+        Assert.assertFalse(client.has("LOGIN_TIME_US_PER_15_MIN", 7));
+        Assert.assertEquals(lines, client.count.get());
+        perf.stop();
+    }
+
+    @Test
+    public void testCatchUp() throws InterruptedException {
+        PerfClient client = new PerfClient();
+        ScribeLogger logger = new ScribeLogger(new LogSender("perf", client));
+        ScribePerf perf = new ScribePerf(logger, null, "host", "instance", false, 10, 60);
+        perf.inc(7, ScribePerfName.Send);
+        perf.catchUp(T0 + 10300);
+        client.await(4);
+        Assert.assertEquals(1, client.get("MSG_PER_10_SEC", 7, 4));
+        perf.inc(7, ScribePerfName.Send);
+        perf.inc(7, ScribePerfName.Send);
+        // 5 ticks late: ticks ending at 20s~70s are all closed, and the minute ending at 60s is dumped.
+        perf.catchUp(T0 + 70300);
+        client.await(4 + 7 * 4);
+        Assert.assertEquals(3, client.get("MSG_PER_1_MIN", 7, 4));
+        Assert.assertEquals(0, client.get("MSG_PER_10_SEC", 7, 4));
+        Thread.sleep(100);
+        Assert.assertEquals(4 + 7 * 4, client.count.get());
+        perf.stop();
+        logger.close();
+    }
+
+    /**
+     * Within precision of {@link PerfHistogram}.
+     */
+    private static void assertNear(long expected, long actual) {
+        Assert.assertTrue(expected + " vs " + actual,
+                actual >= expected && actual <= expected + expected / PerfHistogram.HALF);
+    }
+
+    /**
+     * Run #task on #threads threads at once, and wait until all end.
+     */
+    private static void run(int threads, final Runnable task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread("inc-" + t) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        task.run();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        done.await();
+    }
+}
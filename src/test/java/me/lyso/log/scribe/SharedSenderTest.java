@@ -0,0 +1,108 @@
+/**
+ * SharedSenderTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 5:26:09 PM
+ */
+package me.lyso.log.scribe;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Loggers of all {@link Category}s with their own transports, against sharing one: threads and connections, and
+ * each log keeps its category in mixed batches; and settings a shared logger can't apply.
+ *
+ * @author leo
+ */
+public class SharedSenderTest {
+    private static final int LOGS_PER_CATEGORY = 10000;
+
+    @Test
+    public void testSavings() throws Exception {
+        long[] own = run(false);
+        long[] shared = run(true);
+        Assert.assertEquals(Category.values().length, own[1]);
+        Assert.assertEquals(1, shared[1]);
+        Assert.assertTrue(shared[0] < own[0]);
+    }
+
+    @Test
+    public void testIgnoredSettings() {
+        ScribeLogger.Builder origin = ScribeLogger.builder("a").config(new ScribeLoggerConfig().batchSize(100));
+        ScribeLogger.Builder same = ScribeLogger.builder("b").config(new ScribeLoggerConfig().batchSize(100)
+                .sample(0.5));
+        Assert.assertTrue(same.ignoredBy(origin).isEmpty());
+        ScribeLogger.Builder other = ScribeLogger.builder("c").config(new ScribeLoggerConfig().batchSize(200)
+                .ringSize(1 << 10)).waitStrategy(WaitStrategyType.Yielding).senderCpu(1);
+        Assert.assertEquals(Arrays.asList("ringSize", "batchSize", "waitStrategy", "senderCpu"),
+                other.ignoredBy(origin));
+    }
+
+    @Test
+    public void testCached() throws Exception {
+        FakeScribeServer server = new FakeScribeServer(0);
+        ScribeLoggerConfig config = new ScribeLoggerConfig().batchSize(100);
+        ScribeLogger own = ScribeLogger.builder("cached").server(server.host(), server.port()).config(config).build();
+        ScribeLogger shared = ScribeLogger.builder("cached").server(server.host(), server.port()).config(config)
+                .shared().build();
+        Assert.assertNotSame(own, shared);
+        Assert.assertSame(own, ScribeLogger.builder("cached").server(server.host(), server.port())
+                .config(new ScribeLoggerConfig().batchSize(200)).build());
+        Assert.assertSame(shared, ScribeLogger.builder("cached").server(server.host(), server.port()).config(config)
+                .shared().build());
+        ScribeLogger.Builder built = ScribeLogger.builder("cached").config(config);
+        Assert.assertEquals(Arrays.asList("batchSize", "sample"), ScribeLogger.builder("cached")
+                .config(new ScribeLoggerConfig().batchSize(200).sample(0.5)).differsFrom(built));
+        shared.close();
+        own.close();
+        server.stop();
+    }
+
+    /**
+     * Build a logger for each category and send logs of all categories.
+     *
+     * @return threads added and connections made.
+     */
+    private long[] run(boolean shared) throws Exception {
+        FakeScribeServer server = new FakeScribeServer(0);
+        ScribeLoggerConfig config = new ScribeLoggerConfig().maxInFlightBatches(2).batchSize(100);
+        int threads = scribeThreads();
+        Category[] categories = Category.values();
+        ScribeLogger[] loggers = new ScribeLogger[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            ScribeLogger.Builder builder = ScribeLogger.builder(categories[i].name()).server(server.host(),
+                    server.port()).config(config);
+            loggers[i] = (shared ? builder.shared() : builder).build();
+            Assert.assertEquals(categories[i].name(), loggers[i].category());
+        }
+        long[] result = {scribeThreads() - threads, 0};
+        for (int n = 0; n < LOGS_PER_CATEGORY; n++) {
+            for (ScribeLogger logger : loggers) {
+                while (!logger.log("log " + n)) {
+                    Thread.sleep(1);
+                }
+            }
+        }
+        long total = (long) LOGS_PER_CATEGORY * categories.length;
+        Assert.assertEquals(total, server.await(total, 10000));
+        for (Category category : categories) {
+            Assert.assertEquals(LOGS_PER_CATEGORY, server.received(category.name()));
+        }
+        result[1] = server.connections();
+        server.stop();
+        return result;
+    }
+
+    private static int scribeThreads() {
+        int n = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("scribe-")) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
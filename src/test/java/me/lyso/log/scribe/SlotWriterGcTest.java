@@ -0,0 +1,131 @@
+/**
+ * SlotWriterGcTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 10:48:33 AM
+ */
+package me.lyso.log.scribe;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Garbage of building a String per usage log, against writing fields into a claimed ring slot by
+ * {@link ScribeLogger#claimUsage()}; and unfinished writers never stall the ring. SlotWriterBenchmark measures the
+ * cost of each.
+ *
+ * @author leo
+ */
+public class SlotWriterGcTest {
+    private static final int LOGS = 100000;
+
+    @Test
+    public void testSameMessage() {
+        Utf8Buffer slot = new Utf8Buffer();
+        Log.Usage log = new Log.Usage();
+        log.bind(null, 0, slot);
+        fill(log, 7).$F_model("a,b 中文 " + new String(new char[100]).replace('\0', 'x'));
+        log.catchUp(Log.LastIndex);
+        String expected = fill(new Log.Usage(), 7).$F_model("a,b 中文 " + new String(new char[100]).replace('\0', 'x'))
+                .done();
+        Assert.assertEquals(expected, slot.toString());
+    }
+
+    @Test
+    public void testUnfinished() throws Exception {
+        CountingScribeClient client = new CountingScribeClient(), other = new CountingScribeClient();
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(128);
+        ScribeLogger logger = new ScribeLogger(new LogSender("usage", client, config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("slot-unfinished"));
+        ScribeLogger otherLogger = new ScribeLogger(new LogSender("usage", other, config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("slot-other"));
+        try {
+            // claimed again without done: the first slot is abandoned.
+            fill(logger.claimUsage(), 0);
+            Assert.assertTrue(fill(logger.claimUsage(), 1).done(logger));
+            // filling throws: published as a ping.
+            try {
+                logger.logUsage(null, new Log.Fill<Log.Usage>() {
+                    @Override
+                    public void fill(Log.Usage log) {
+                        throw new IllegalStateException("fill failed");
+                    }
+                });
+                Assert.fail();
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+            // done on another logger still publishes on the claimed ring.
+            Assert.assertTrue(fill(logger.claimUsage(), 2).done(otherLogger));
+            for (int i = 0; i < 100; i++) {
+                Assert.assertTrue(logger.logUsage(null, new Log.Fill<Log.Usage>() {
+                    @Override
+                    public void fill(Log.Usage log) {
+                        SlotWriterGcTest.fill(log, 3);
+                    }
+                }));
+            }
+            Assert.assertEquals(102, client.await(102, 5000));
+            Thread.sleep(100);
+            Assert.assertEquals(102, client.received());
+            Assert.assertEquals(0, other.received());
+        } finally {
+            logger.close();
+            otherLogger.close();
+        }
+    }
+
+    @Test
+    public void testAllocation() throws Exception {
+        CountingScribeClient client = new CountingScribeClient();
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 14).batchSize(500)
+                .publishPolicy(PublishPolicy.Block);
+        ScribeLogger logger = new ScribeLogger(new LogSender("usage", client, config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("slot-gc"));
+        try {
+            run(logger, false);
+            run(logger, true);
+            double stringBytes = run(logger, false);
+            double slotBytes = run(logger, true);
+            Assert.assertTrue(slotBytes + " vs " + stringBytes + " bytes/log", slotBytes * 10 < stringBytes);
+            Assert.assertEquals(LOGS * 4, client.await(LOGS * 4, 10000));
+        } finally {
+            logger.close();
+        }
+    }
+
+    /**
+     * Produce {@link #LOGS} logs.
+     *
+     * @return allocated bytes per log on producer thread.
+     */
+    private static double run(ScribeLogger logger, boolean slot) {
+        long allocated = allocated();
+        for (int i = 0; i < LOGS; i++) {
+            if (slot) {
+                Log.Usage log = logger.claimUsage();
+                try {
+                    fill(log, i);
+                } finally {
+                    log.done(logger);
+                }
+            } else {
+                logger.log(fill(new Log.Usage(), i).done());
+            }
+        }
+        return (allocated() - allocated) / (double) LOGS;
+    }
+
+    private static Log.Usage fill(Log.Usage log, int i) {
+        return log.$1_host("host-01").$2_action(UsageAction.msg).$3_from("from@lyso.me").$4_to("to@lyso.me/res")
+                .$5_msgId("msg-0123456789").$6_msgType("chat").$7_fromIp("10.0.0.1").$9_chid(i)
+                .$C_appId("app").$D_packageName("me.lyso.app");
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * SpillJournalTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:26:09 PM
+ */
+package me.lyso.log.scribe;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import scribe.thrift.LogEntry;
+
+/**
+ * @author leo
+ */
+public class SpillJournalTest {
+    private File dir;
+
+    @Before
+    public void setUp() {
+        dir = new File(System.getProperty("java.io.tmpdir"), "spill-test-" + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static class CollectSink implements SpillJournal.Sink {
+        private final List<String> received = new ArrayList<String>();
+        private boolean fail = false;
+
+        @Override
+        public boolean send(List<LogEntry> logs) {
+            if (fail) {
+                return false;
+            }
+            for (LogEntry log : logs) {
+                received.add(log.getCategory() + ":" + log.getMessage());
+            }
+            return true;
+        }
+    }
+
+    private static List<String> drain(SpillJournal journal, CollectSink sink) {
+        while (journal.hasPending()) {
+            journal.replay(7, sink);
+        }
+        return sink.received;
+    }
+
+    @Test
+    public void testAppendAndReplay() throws Exception {
+        SpillJournal journal = new SpillJournal(dir, 1024, 4);
+        String padding = String.format("%80s", "");
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(journal.append("usage", "log 中文 " + i + padding));
+        }
+        CollectSink sink = new CollectSink();
+        sink.fail = true;
+        Assert.assertEquals(-1, journal.replay(10, sink));
+        sink.fail = false;
+        List<String> received = drain(journal, sink);
+        // 1024-byte segments hold 9 records, the oldest ones were evicted to keep at most 4 segments.
+        Assert.assertEquals(50 - 9 * 2, received.size());
+        Assert.assertEquals("usage:log 中文 49" + padding, received.get(received.size() - 1));
+        Assert.assertEquals(1, dir.list().length);
+    }
+
+    @Test
+    public void testReplayActive() throws Exception {
+        SpillJournal journal = new SpillJournal(dir, 1 << 16, 4);
+        CollectSink sink = new CollectSink();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 10; i++) {
+                journal.append("usage", "log " + round + "-" + i);
+            }
+            Assert.assertEquals(7, journal.replay(7, sink));
+            Assert.assertEquals(3, journal.replay(7, sink));
+            Assert.assertEquals(0, journal.replay(7, sink));
+            Assert.assertFalse(journal.hasPending());
+        }
+        // replayed in place, no segment rotated for it.
+        Assert.assertEquals(30, sink.received.size());
+        Assert.assertEquals("usage:log 2-9", sink.received.get(29));
+        Assert.assertEquals(1, dir.list().length);
+        journal.close();
+    }
+
+    @Test
+    public void testOffer() throws Exception {
+        final SpillJournal journal = new SpillJournal(dir, 1 << 16, 4);
+        // producers never wait for the journal lock, held by another thread as by a long append or replay.
+        final CountDownLatch held = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean holding = new AtomicBoolean(true);
+        Thread holder = new Thread("journal-holder") {
+            @Override
+            public void run() {
+                synchronized (journal) {
+                    held.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    holding.set(false);
+                }
+            }
+        };
+        holder.start();
+        held.await();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(journal.offer("usage", "log " + i));
+        }
+        // a blocked offer would only have returned after the holder gave up.
+        Assert.assertTrue(holding.get());
+        release.countDown();
+        holder.join();
+        List<String> received = drain(journal, new CollectSink());
+        Assert.assertEquals(100, received.size());
+        Assert.assertEquals("usage:log 0", received.get(0));
+        journal.close();
+    }
+
+    @Test
+    public void testReplayAfterRestart() throws Exception {
+        SpillJournal journal = new SpillJournal(dir, 1 << 16, 4);
+        for (int i = 0; i < 100; i++) {
+            journal.append("usage", "log " + i);
+        }
+        journal.force();
+        CollectSink sink = new CollectSink();
+        List<String> received = drain(new SpillJournal(dir, 1 << 16, 4), sink);
+        Assert.assertEquals(100, received.size());
+        Assert.assertEquals("usage:log 0", received.get(0));
+    }
+
+    @Test
+    public void testCorruptedRecord() throws Exception {
+        SpillJournal journal = new SpillJournal(dir, 1 << 16, 4);
+        for (int i = 0; i < 10; i++) {
+            journal.append("usage", "log " + i);
+        }
+        journal.force();
+        File seg = dir.listFiles()[0];
+        RandomAccessFile raf = new RandomAccessFile(seg, "rw");
+        // flip a byte in the message of the 6th record: 5 records of 8 + 2 + 5 + 5 bytes before it.
+        raf.seek(5 * 20 + 16);
+        raf.write('x');
+        raf.close();
+        List<String> received = drain(new SpillJournal(dir, 1 << 16, 4), new CollectSink());
+        Assert.assertEquals(5, received.size());
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * TestLoggers.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 8:05:31 PM
+ */
+package me.lyso.log.scribe;
+
+/**
+ * Loggers sending to an in-process scribe client, for tests of other packages.
+ *
+ * @author leo
+ */
+public final class TestLoggers {
+    private TestLoggers() {
+    }
+
+    /**
+     * A logger of #category sending to #client, close it after use.
+     *
+     * @param category
+     * @param client
+     * @param config
+     * @return
+     */
+    public static ScribeLogger logger(String category, scribe.thrift.scribe.Iface client, ScribeLoggerConfig config) {
+        return new ScribeLogger(new LogSender(category, client, config), config, WaitStrategyType.Sleeping,
+                new SenderThreadFactory("test-" + category));
+    }
+}
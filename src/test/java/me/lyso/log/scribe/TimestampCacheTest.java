@@ -0,0 +1,47 @@
+/**
+ * TimestampCacheTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:12:45 AM
+ */
+package me.lyso.log.scribe;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Same text as SimpleDateFormat, whether returned or appended. TimestampBenchmark measures the cost against it
+ * and FastDateFormat.
+ *
+ * @author leo
+ */
+public class TimestampCacheTest {
+    @Test
+    public void testFormat() {
+        SimpleDateFormat fmt = new SimpleDateFormat(TimestampCache.PATTERN);
+        long base = System.currentTimeMillis();
+        // across seconds, backwards, and before epoch.
+        long[] times = {base, base + 1, base + 999, base + 1000, base - 1000, base + 3600000, 0, -1, -1001};
+        for (long t : times) {
+            Assert.assertEquals(fmt.format(new Date(t)), TimestampCache.format(t));
+        }
+    }
+
+    @Test
+    public void testAppendTo() {
+        SimpleDateFormat fmt = new SimpleDateFormat(TimestampCache.PATTERN);
+        long base = System.currentTimeMillis();
+        Utf8Buffer buf = new Utf8Buffer();
+        StringBuilder sb = new StringBuilder();
+        // cached second, a new one, and an older one.
+        for (long t : new long[] {base, base, base + 1000, base - 1000}) {
+            String expected = fmt.format(new Date(t));
+            Assert.assertEquals("a," + expected, TimestampCache.appendTo(t, buf.clear().append("a,")).toString());
+            sb.setLength(0);
+            Assert.assertEquals("a," + expected, TimestampCache.appendTo(t, sb.append("a,")).toString());
+        }
+    }
+}
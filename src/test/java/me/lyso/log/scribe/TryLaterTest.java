@@ -0,0 +1,113 @@
+/**
+ * TryLaterTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 4:02:51 PM
+ */
+package me.lyso.log.scribe;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import scribe.thrift.LogEntry;
+import scribe.thrift.ResultCode;
+
+/**
+ * Batches answered TRY_LATER to a non-pipelined sender are resent by the sender thread after backoff, and spilled
+ * or given up after max retries.
+ *
+ * @author leo
+ */
+public class TryLaterTest {
+    @Rule
+    public TemporaryFolder dir = new TemporaryFolder();
+
+    /**
+     * Answers TRY_LATER to the first #busyCalls calls.
+     */
+    private static class BusyClient implements scribe.thrift.scribe.Iface {
+        private final AtomicInteger busyCalls;
+        private final AtomicLong received = new AtomicLong();
+
+        private BusyClient(int busyCalls) {
+            this.busyCalls = new AtomicInteger(busyCalls);
+        }
+
+        @Override
+        public ResultCode Log(List<LogEntry> messages) throws TException {
+            if (busyCalls.getAndDecrement() > 0) {
+                return ResultCode.TRY_LATER;
+            }
+            received.addAndGet(messages.size());
+            return ResultCode.OK;
+        }
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        // first batch given up after 3 resends, spilled and replayed.
+        BusyClient client = new BusyClient(4);
+        File spill = dir.newFolder("try-later");
+        ScribeLoggerConfig config = new ScribeLoggerConfig().tryLater(10, 10, 3).batchSize(10).spill(spill);
+        ScribeLogger logger = new ScribeLogger(new LogSender("busy", client, config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("try-later"));
+        long begin = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            logger.log("busy log " + i);
+        }
+        while (client.received.get() < 1000 && System.currentTimeMillis() - begin < 10000) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(1000, client.received.get());
+        Assert.assertEquals(0, ((ScribeLoggerMetrics) logger.metrics()).dropped(ScribeMetrics.Drop.GivenUp));
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        BusyClient client = new BusyClient(1);
+        ScribeLoggerConfig config = new ScribeLoggerConfig().tryLater(50, 50, 3).batchSize(10);
+        ScribeLogger logger = new ScribeLogger(new LogSender("busy", client, config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("retry"));
+        long begin = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            while (!logger.log("retried log " + i)) {
+                Thread.sleep(1);
+            }
+        }
+        while (client.received.get() < 1000 && System.currentTimeMillis() - begin < 10000) {
+            Thread.sleep(1);
+        }
+        // first batch answered TRY_LATER and resent after backoff without a journal.
+        Assert.assertEquals(1000, client.received.get());
+        Assert.assertEquals(0, ((ScribeLoggerMetrics) logger.metrics()).dropped(ScribeMetrics.Drop.GivenUp));
+    }
+
+    @Test
+    public void testGiveUp() throws InterruptedException {
+        BusyClient client = new BusyClient(4);
+        ScribeLoggerConfig config = new ScribeLoggerConfig().tryLater(10, 10, 3).batchSize(10);
+        ScribeLogger logger = new ScribeLogger(new LogSender("busy", client, config), config,
+                WaitStrategyType.Sleeping, new SenderThreadFactory("give-up"));
+        long begin = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            logger.log("given up " + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            logger.log("sent " + i);
+        }
+        while (client.received.get() < 10 && System.currentTimeMillis() - begin < 5000) {
+            Thread.sleep(1);
+        }
+        // first batch answered TRY_LATER to the first send and 3 resends, then given up; second one sent.
+        Assert.assertEquals(10, client.received.get());
+        Assert.assertEquals(10, ((ScribeLoggerMetrics) logger.metrics()).dropped(ScribeMetrics.Drop.GivenUp));
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * UsageAggregationTest.java
+ * [CopyRight]
+ * @author leo [leoyonn@gmail.com]
+ * @date Oct 18, 2026 11:45:03 AM
+ */
+package me.lyso.log.usage;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.lyso.log.scribe.PublishPolicy;
+import me.lyso.log.scribe.ScribeLogger;
+import me.lyso.log.scribe.ScribeLoggerConfig;
+import me.lyso.log.scribe.TestLoggers;
+
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import scribe.thrift.LogEntry;
+import scribe.thrift.ResultCode;
+
+/**
+ * Producers pushing to a few topics through an aggregating {@link UsageLogger}: counts of all logs arrive in
+ * far fewer lines than sending each. UsageLoggerBenchmark measures the cost per log.
+ *
+ * @author leo
+ */
+public class UsageAggregationTest {
+    private static final int THREADS = 8;
+    private static final int LOGS_PER_THREAD = 100000;
+    private static final int TOPICS = 4;
+
+    /**
+     * Sums counts in usage lines, the last field if it's a number, else 1.
+     */
+    private static class SummingClient implements scribe.thrift.scribe.Iface {
+        private final AtomicLong lines = new AtomicLong();
+        private final AtomicLong counts = new AtomicLong();
+
+        @Override
+        public ResultCode Log(List<LogEntry> messages) throws TException {
+            for (LogEntry log : messages) {
+                String m = log.getMessage();
+                String last = m.substring(m.lastIndexOf(',') + 1);
+                counts.addAndGet(last.matches("\\d+") ? Long.parseLong(last) : 1);
+            }
+            lines.addAndGet(messages.size());
+            return ResultCode.OK;
+        }
+
+        long await(long expected, long timeoutMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (counts.get() < expected && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            return counts.get();
+        }
+    }
+
+    @Test
+    public void testAggregate() throws InterruptedException {
+        run(false, null);
+        run(true, null);
+    }
+
+    @Test
+    public void testSdkVersion() throws InterruptedException {
+        // lines with an sdkVersion have no count field, so they are not merged.
+        run(true, "3.0.1");
+    }
+
+    private void run(boolean aggregate, final String sdkVersion) throws InterruptedException {
+        SummingClient client = new SummingClient();
+        ScribeLoggerConfig config = new ScribeLoggerConfig().ringSize(1 << 14).publishPolicy(PublishPolicy.Block);
+        ScribeLogger slogger = TestLoggers.logger("usage", client, config);
+        final UsageLogger logger = new UsageLogger("usage", slogger).setModule("push");
+        if (aggregate) {
+            logger.setAggregate(50, 1024);
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            new Thread("pusher-" + t) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < LOGS_PER_THREAD; i++) {
+                            logger.log(new UsageLog().setModule(logger.module()).setAction("dlvr")
+                                    .setDir(MessageDirection.ServerToClient).setUuid(id + "-" + i)
+                                    .setMsgId("msg-" + (i >> 10)).setAppId("app").setPackageName("me.lyso.app")
+                                    .setTopicOrAlias("topic-" + (i % TOPICS)).setModel("model-x")
+                                    .setSdkVersion(sdkVersion));
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        long total = (long) THREADS * LOGS_PER_THREAD;
+        start.countDown();
+        while (aggregate && !done.await(20, TimeUnit.MILLISECONDS)) {
+            // swap aggregators under producers, counts added to the closed one must not be lost.
+            logger.setAggregate(50, 1024);
+        }
+        if (aggregate) {
+            // emit the last window now.
+            logger.setAggregate(0, 0);
+        }
+        Assert.assertEquals(total, client.await(total, 20000));
+        if (aggregate && sdkVersion == null) {
+            Assert.assertTrue(client.lines.get() < total / 100);
+        } else {
+            Assert.assertEquals(total, client.lines.get());
+        }
+        slogger.close();
+    }
+}